@@ -3,13 +3,17 @@ package com.jeffrey.finalwork;
 import android.Manifest;
 import android.content.ClipData;
 import android.content.ClipboardManager;
-import android.content.ContentResolver;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
 import android.content.pm.PackageManager;
 import android.net.Uri;
 import android.os.Bundle;
-import android.os.Handler;
-import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.text.TextUtils;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.WindowManager;
 import android.widget.Button;
 import android.widget.ImageView;
@@ -19,21 +23,56 @@ import android.widget.Toast;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.biometric.BiometricPrompt;
 import androidx.core.content.ContextCompat;
 import androidx.core.content.FileProvider;
-
+import androidx.lifecycle.Lifecycle;
+
+import com.jeffrey.finalwork.history.ScanHistory;
+import com.jeffrey.finalwork.idcard.IdCardValidator;
+import com.jeffrey.finalwork.image.CaptureStore;
+import com.jeffrey.finalwork.image.PreviewLoader;
+import com.jeffrey.finalwork.image.QualityAssessor;
+import com.jeffrey.finalwork.net.CardSide;
+import com.jeffrey.finalwork.net.EndpointSelector;
+import com.jeffrey.finalwork.net.OcrError;
+import com.jeffrey.finalwork.net.OcrException;
+import com.jeffrey.finalwork.net.OcrRateLimiter;
+import com.jeffrey.finalwork.net.OcrResponseDecoder;
+import com.jeffrey.finalwork.net.OcrResultCache;
+import com.jeffrey.finalwork.net.ScanMetrics;
+import com.jeffrey.finalwork.net.ScanQueue;
+import com.jeffrey.finalwork.net.ServerClock;
 import com.jeffrey.finalwork.net.TencentOcrClient;
+import com.jeffrey.finalwork.net.UploadPlanner;
+import com.jeffrey.finalwork.perf.FrameMonitor;
+import com.jeffrey.finalwork.perf.JankLog;
+import com.jeffrey.finalwork.queue.OfflineScanQueue;
+import com.jeffrey.finalwork.scan.ScanPipeline;
+import com.jeffrey.finalwork.security.KeystoreKeys;
+import com.jeffrey.finalwork.security.Redactor;
+import com.jeffrey.finalwork.startup.OcrClientProvider;
+import com.jeffrey.finalwork.startup.StartupTrace;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.InputStream;
 import java.util.Locale;
 import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import javax.crypto.SecretKey;
 
 public class MainActivity extends AppCompatActivity {
 
+    private static final long PREVIEW_ANIM_MS = 180;
+
+    // 进程级：界面重建（旋转等）不重复创建客户端，也不重复记冷启动
+    private static StartupTrace startupTrace;
+    private static OcrClientProvider clientProvider;
+    // 卡顿记录跨页面重建保留，约 500 条
+    private static final JankLog jankLog = new JankLog(512, FrameMonitor::nowMs);
+
     private ImageView img;
     private TextView txtResult;
     private TextView txtRisk;
@@ -49,11 +88,18 @@ public class MainActivity extends AppCompatActivity {
     private Button btnReveal; // 查看明文按钮
 
     private Uri photoUri;
-    private final Handler ui = new Handler(Looper.getMainLooper());
+    private File photoFile;
+    private CaptureStore captureStore;
 
-    private TencentOcrClient client;
     private TencentOcrClient.OcrResult lastResult;
     private boolean revealed = false;
+    private OfflineScanQueue offlineQueue;
+    private ScanHistory history;
+    private ScanPipeline scanPipeline;
+    private PreviewLoader previewLoader;
+    private FrameMonitor frames;
+    // 显示 / 复制文本共用的缓冲，切换明文时不反复拼接
+    private final StringBuilder textBuf = new StringBuilder(128);
 
     private final ActivityResultLauncher<String> requestCameraPerm =
             registerForActivityResult(new ActivityResultContracts.RequestPermission(), granted -> {
@@ -63,37 +109,45 @@ public class MainActivity extends AppCompatActivity {
 
     private final ActivityResultLauncher<Uri> takePictureLauncher =
             registerForActivityResult(new ActivityResultContracts.TakePicture(), success -> {
-                if (!success) {
-                    toast("拍照失败/取消");
-                    return;
-                }
-                if (img != null) img.setImageURI(photoUri);
-
-                // 拍到照片时，若预览折叠则自动展开
-                if (!previewExpanded) {
-                    previewExpanded = true;
-                    applyPreviewState(true);
+                frames.begin(JankLog.Phase.CAPTURE_RESULT);
+                try {
+                    onCaptureResult(success);
+                } finally {
+                    frames.end(JankLog.Phase.CAPTURE_RESULT);
                 }
-
-                doOcr(photoUri);
             });
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        initStartup();
 
         // 防截屏/防最近任务泄露
         //getWindow().setFlags(WindowManager.LayoutParams.FLAG_SECURE,
         //        WindowManager.LayoutParams.FLAG_SECURE);
 
         setContentView(R.layout.activity_main);
+        startupTrace.mark(StartupTrace.ACTIVITY_CREATED);
+        // 拍照到出结果各阶段的掉帧和主线程停顿
+        frames = new FrameMonitor(jankLog);
 
         // Edge-to-Edge：异常则降级，不闪退
         enableEdgeToEdgeSafely();
 
+        // 拍照原图只保留在固定的几个槽位里：最多 3 张、30MB、30 分钟
+        captureStore = new CaptureStore(new File(getCacheDir(), "captures"), 3, 30L * 1024 * 1024, 30L * 60 * 1000);
+
         // 恢复预览折叠状态
         if (savedInstanceState != null) {
             previewExpanded = savedInstanceState.getBoolean("previewExpanded", true);
+            // 拍照期间进程被回收，回来时还要接着用这个文件
+            String path = savedInstanceState.getString("photoFile");
+            if (path != null) {
+                photoFile = new File(path);
+                photoUri = FileProvider.getUriForFile(this, getPackageName() + ".fileprovider", photoFile);
+            }
+        } else {
+            captureStore.sweep(getCacheDir());
         }
 
         // 绑定控件
@@ -126,11 +180,22 @@ public class MainActivity extends AppCompatActivity {
             txtResult.setOnLongClickListener(v -> true);
         }
 
-        client = new TencentOcrClient(Secrets.SECRET_ID, Secrets.SECRET_KEY, Secrets.REGION);
+        // 识别客户端在首帧之后才在后台创建，流水线在自己的线程上取用
+        scanPipeline = new ScanPipeline(getContentResolver(), clientProvider);
+        previewLoader = new PreviewLoader(getContentResolver(), 8 * 1024 * 1024);
+        previewLoader.setOnShown(() -> frames.pulse(JankLog.Phase.PREVIEW_SET, FrameMonitor.TAIL_MS));
+        scanPipeline.setPreviewLoader(previewLoader);
+        // 弱网下按实测上行带宽降分辨率和质量，请求发出到响应头控制在 2 秒左右
+        scanPipeline.setUploadPlanner(new UploadPlanner());
+        // 断网时的拍摄先落盘排队，网络恢复后自动补识别；离线队列和识别历史都要取 Keystore 密钥，等客户端就绪后再接上
+        clientProvider.whenReady(this::bindStorage);
+        warmUpAfterFirstFrame();
         setWatermark();
         updateCopyButtonText();
 
         btnCapture.setOnClickListener(v -> {
+            // 用户拍照期间提前建立到 OCR 服务的连接
+            clientProvider.whenReady(TencentOcrClient::prewarm);
             if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
                     != PackageManager.PERMISSION_GRANTED) {
                 requestCameraPerm.launch(Manifest.permission.CAMERA);
@@ -178,11 +243,13 @@ public class MainActivity extends AppCompatActivity {
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         outState.putBoolean("previewExpanded", previewExpanded);
+        if (photoFile != null) outState.putString("photoFile", photoFile.getAbsolutePath());
         super.onSaveInstanceState(outState);
     }
 
     // 切后台遮罩，回前台恢复
     @Override protected void onPause() {
+        frames.detach();
         super.onPause();
         if (maskLayer != null) maskLayer.setVisibility(View.VISIBLE);
     }
@@ -190,6 +257,25 @@ public class MainActivity extends AppCompatActivity {
     @Override protected void onResume() {
         super.onResume();
         if (maskLayer != null) maskLayer.setVisibility(View.GONE);
+        frames.attach(getWindow());
+    }
+
+    @Override protected void onStart() {
+        super.onStart();
+        if (offlineQueue != null) offlineQueue.attach(queueListener);
+    }
+
+    @Override protected void onStop() {
+        if (offlineQueue != null) offlineQueue.detach(queueListener);
+        exportJankLog();
+        super.onStop();
+    }
+
+    @Override protected void onDestroy() {
+        // 页面销毁不再关心结果，连同网络请求一起取消，流水线线程也随之结束
+        if (scanPipeline != null) scanPipeline.shutdown();
+        if (previewLoader != null) previewLoader.clear();
+        super.onDestroy();
     }
 
     private void enableEdgeToEdgeSafely() {
@@ -216,13 +302,14 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        frames.pulse(JankLog.Phase.PREVIEW_ANIMATION, PREVIEW_ANIM_MS + FrameMonitor.TAIL_MS);
         if (previewExpanded) {
             previewContent.setAlpha(0f);
             previewContent.setVisibility(View.VISIBLE);
-            previewContent.animate().alpha(1f).setDuration(180).start();
+            previewContent.animate().alpha(1f).setDuration(PREVIEW_ANIM_MS).start();
             previewToggle.setText("收起 ▲");
         } else {
-            previewContent.animate().alpha(0f).setDuration(180).withEndAction(() -> {
+            previewContent.animate().alpha(0f).setDuration(PREVIEW_ANIM_MS).withEndAction(() -> {
                 previewContent.setVisibility(View.GONE);
                 previewContent.setAlpha(1f);
             }).start();
@@ -230,6 +317,97 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    // ========= 启动：首帧优先，客户端后台创建 =========
+
+    private void initStartup() {
+        if (startupTrace == null) {
+            startupTrace = new StartupTrace(Process.getStartElapsedRealtime(), SystemClock::elapsedRealtime);
+            startupTrace.setListener((name, ms) -> android.util.Log.i("STARTUP", name + "=" + ms + "ms"));
+        }
+        if (clientProvider == null) {
+            final Context app = getApplicationContext();
+            Executor startup = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "ocr-startup");
+                t.setDaemon(true);
+                return t;
+            });
+            clientProvider = new OcrClientProvider(() -> createClient(app), startup, startupTrace);
+        }
+    }
+
+    // 首帧提交后再开始创建客户端，不和首帧的布局绘制抢 CPU
+    private void warmUpAfterFirstFrame() {
+        final View content = findViewById(android.R.id.content);
+        content.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override public boolean onPreDraw() {
+                content.getViewTreeObserver().removeOnPreDrawListener(this);
+                content.post(() -> {
+                    startupTrace.mark(StartupTrace.FIRST_FRAME);
+                    clientProvider.warmUp();
+                });
+                return true;
+            }
+        });
+    }
+
+    // 后台线程：OkHttp、签名器、Keystore、SharedPreferences 都在这里初始化
+    private static TencentOcrClient createClient(Context app) {
+        TencentOcrClient client = new TencentOcrClient(Secrets.SECRET_ID, Secrets.SECRET_KEY, Secrets.REGION);
+        client.setCache(buildResultCache(app));
+        client.setClock(buildServerClock(app));
+        // 就近域名 + 几个地域域名，按探测延迟和失败率自动选择
+        client.setEndpointSelector(EndpointSelector.tencentRegions(Secrets.REGION));
+        // 完整响应文本只在可调试包里保留，用于脱敏日志
+        OcrResponseDecoder.Options responseOptions = new OcrResponseDecoder.Options();
+        responseOptions.keepRawJson = (app.getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        client.setResponseOptions(responseOptions);
+        client.warmUp();
+        return client;
+    }
+
+    // 已就绪时在主线程直接调用，否则在 ocr-startup 线程上
+    private void bindStorage(TencentOcrClient client) {
+        ScanHistory h = ScanHistory.get(getApplicationContext());
+        OfflineScanQueue q = OfflineScanQueue.get(getApplicationContext());
+        if (q != null) {
+            q.setClient(client);
+            q.drain();
+        }
+        runOnUiThread(() -> {
+            if (isDestroyed()) return;
+            history = h;
+            offlineQueue = q;
+            if (q != null && getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) q.attach(queueListener);
+        });
+    }
+
+    // 同一张图重复提交直接命中缓存；磁盘层用 Keystore 密钥加密，拿不到密钥则只用内存层
+    private static OcrResultCache buildResultCache(Context app) {
+        OcrResultCache.DiskTier disk = null;
+        try {
+            SecretKey key = KeystoreKeys.aesKey("ocr_result_cache");
+            disk = new OcrResultCache.EncryptedDiskTier(
+                    new File(app.getCacheDir(), "ocr_results"), key, 24L * 60 * 60 * 1000, 200);
+        } catch (Exception e) {
+            android.util.Log.w("OCR", "结果缓存磁盘层不可用: " + e.getMessage());
+        }
+        return new OcrResultCache(32, disk);
+    }
+
+    // 本机时钟与腾讯云的偏差存到 SharedPreferences，下次启动第一笔请求就用校正后的时间签名
+    private static ServerClock buildServerClock(Context app) {
+        final SharedPreferences prefs = app.getSharedPreferences("ocr_clock", MODE_PRIVATE);
+        return new ServerClock(new ServerClock.Store() {
+            @Override public long load() {
+                return prefs.getLong("offset_ms", 0);
+            }
+
+            @Override public void save(long offsetMs) {
+                prefs.edit().putLong("offset_ms", offsetMs).apply();
+            }
+        });
+    }
+
     private void setWatermark() {
         if (watermark == null) return;
         long ts = System.currentTimeMillis();
@@ -238,7 +416,7 @@ public class MainActivity extends AppCompatActivity {
 
     private void takePhoto() {
         try {
-            File photoFile = File.createTempFile("idcard_", ".jpg", getCacheDir());
+            photoFile = captureStore.acquire();
             photoUri = FileProvider.getUriForFile(
                     this, getPackageName() + ".fileprovider", photoFile
             );
@@ -248,46 +426,212 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
-    private void doOcr(@NonNull Uri uri) {
-        if (txtResult != null) txtResult.setText("识别中...");
+    private void onCaptureResult(boolean success) {
+        if (!success) {
+            releaseCapture(photoFile);
+            toast("拍照失败/取消");
+            return;
+        }
+        // 预览等扫描流水线解码后按 View 尺寸生成，主线程不解码原图
+        if (img != null) previewLoader.load(photoUri, img, true);
+
+        // 拍到照片时，若预览折叠则自动展开
+        if (!previewExpanded) {
+            previewExpanded = true;
+            applyPreviewState(true);
+        }
 
-        final String base64;
+        doOcr(photoUri);
+    }
+
+    private void doOcr(@NonNull Uri uri) {
+        frames.begin(JankLog.Phase.OCR_DISPATCH);
         try {
-            base64 = readUriToBase64(getContentResolver(), uri);
-        } catch (Exception e) {
-            toast("Base64转换失败: " + e.getMessage());
-            return;
+            submitOcr(uri);
+        } finally {
+            frames.end(JankLog.Phase.OCR_DISPATCH);
         }
+    }
+
+    private void submitOcr(@NonNull Uri uri) {
+        if (txtResult != null) txtResult.setText("识别中...");
 
         // 识别开始时先回到“脱敏状态”
         revealed = false;
         if (btnReveal != null) btnReveal.setText("查看明文");
         updateCopyButtonText();
 
-        client.idCardOcr(base64, "FRONT", "{\"CropIdCard\":true,\"CropPortrait\":true}", new TencentOcrClient.Callback() {
-            @Override public void onSuccess(TencentOcrClient.OcrResult result) {
-                ui.post(() -> {
-                    lastResult = result;
+        // 解码、压缩、编码、签名、上传全在后台；这里只登记这次拍照对应的文件
+        final File capture = photoFile;
+        // 不带 Config：裁剪图界面用不到，开了响应里平白多两张 Base64 图
+        scanPipeline.submit(uri, CardSide.FRONT, null, new ScanPipeline.Listener() {
+            @Override public void onResult(ScanPipeline.Scan scan, TencentOcrClient.OcrResult result) {
+                releaseCapture(capture);
+                logMetrics();
+                warnIfLowQuality(scan.prepared.qualityReport);
+                showResult(result);
+                toast("识别成功（默认脱敏显示）");
+                saveToHistory(result, scan.side);
+            }
 
-                    int score = riskScore(result);
-                    if (txtRisk != null) {
-                        txtRisk.setText("风险评分：" + score + "（越高越敏感，建议不要外发/截图）");
-                    }
+            @Override public void onInvalid(ScanPipeline.Scan scan, TencentOcrClient.OcrResult result,
+                                            IdCardValidator.Report report) {
+                releaseCapture(capture);
+                logMetrics();
+                showResult(result);
+                showValidationIssues(report);
+                // 号码本身读错的结果不进历史，免得按错误号码建索引
+                if (!report.idNumberSuspect()) saveToHistory(result, scan.side);
+            }
 
-                    showMasked(result);
-                    toast("识别成功（默认脱敏显示）");
+            @Override public void onRejected(ScanPipeline.Scan scan) {
+                releaseCapture(capture);
+                // 本地质量把关：明显不合格的照片不花一次识别调用
+                QualityAssessor.Report quality = scan.prepared.qualityReport;
+                if (txtResult != null) txtResult.setText("照片不合格：" + TextUtils.join("、", quality.issues));
+                toast("照片不合格，请重拍：" + TextUtils.join("、", quality.issues));
+            }
 
-                    // 日志只输出脱敏
-                    android.util.Log.d("OCR", redactDigits(result.rawJson));
-                });
+            @Override public void onFailed(ScanPipeline.Scan scan, Throwable error) {
+                releaseCapture(capture);
+                if (!(error instanceof OcrException)) {
+                    toast("图片处理失败: " + error.getMessage());
+                    return;
+                }
+                OcrError e = ((OcrException) error).error;
+                boolean offline = e.isNetwork() || OcrError.CIRCUIT_OPEN.equals(e.code);
+                if (offline && offlineQueue != null) {
+                    offlineQueue.enqueue(scan.prepared.jpeg, scan.side, scan.configJson);
+                    if (txtResult != null) txtResult.setText("网络不可用，已加入离线队列");
+                    toast("网络不可用，已加入离线队列，恢复后自动识别");
+                    return;
+                }
+                toast("请求失败: " + e);
             }
 
-            @Override public void onError(String msg) {
-                ui.post(() -> toast("请求失败: " + msg));
+            @Override public void onSuperseded(ScanPipeline.Scan scan) {
+                // 后台线程：被新拍照取代的原图直接删掉
+                captureStore.release(capture);
             }
         });
     }
 
+    // 结果加密存入本地历史；同一证件之前识别过时提示一下，便于发现重复办理
+    private void saveToHistory(TencentOcrClient.OcrResult result, CardSide side) {
+        final ScanHistory h = history;
+        if (h == null) return;
+        h.io().execute(() -> {
+            try {
+                ScanHistory.Entry previous = h.latest(result.idNumber);
+                h.insert(result, side, System.currentTimeMillis());
+                if (previous == null) return;
+                CharSequence when = android.text.format.DateUtils.getRelativeTimeSpanString(previous.createdAt);
+                runOnUiThread(() -> toast("该证件" + when + "已识别过"));
+            } catch (Exception e) {
+                android.util.Log.w("OCR_HISTORY", "保存历史失败: " + e.getMessage());
+            }
+        });
+    }
+
+    // 已经自动高清重识别过仍对不上，只能让用户重拍
+    private void showValidationIssues(IdCardValidator.Report report) {
+        String issues = TextUtils.join("、", report.messages());
+        if (txtRisk != null) txtRisk.setText("自检未通过：" + issues);
+        String hint = report.idNumberSuspect()
+                ? "身份证号可能识别错误。请让号码一行完整、无反光后重拍。"
+                : "出生日期或性别与身份证号对不上。请对准人像面、避免遮挡后重拍。";
+        new AlertDialog.Builder(this)
+                .setTitle("识别结果可能有误")
+                .setMessage(issues + "\n\n" + hint)
+                .setPositiveButton("重拍", (d, w) -> takePhoto())
+                .setNegativeButton("先这样", null)
+                .show();
+    }
+
+    private void warnIfLowQuality(QualityAssessor.Report quality) {
+        if (quality != null && quality.verdict == QualityAssessor.Verdict.WARN) {
+            toast("提示：" + TextUtils.join("、", quality.issues) + "，识别结果可能不准");
+        }
+    }
+
+    private void showResult(TencentOcrClient.OcrResult result) {
+        frames.begin(JankLog.Phase.RESULT_RENDER);
+        try {
+            renderResult(result);
+        } finally {
+            frames.end(JankLog.Phase.RESULT_RENDER);
+        }
+    }
+
+    private void renderResult(TencentOcrClient.OcrResult result) {
+        lastResult = result;
+
+        int score = riskScore(result);
+        if (txtRisk != null) {
+            txtRisk.setText("风险评分：" + score + "（越高越敏感，建议不要外发/截图）");
+        }
+
+        showMasked(result);
+
+        // 日志只输出脱敏
+        if (!result.rawJson.isEmpty()) android.util.Log.d("OCR", Redactor.redact(result.rawJson));
+    }
+
+    // 离线队列补识别的结果，回调都在主线程
+    private final OfflineScanQueue.Listener queueListener = new OfflineScanQueue.Listener() {
+        @Override public void onQueuedResult(ScanQueue.Entry entry, TencentOcrClient.OcrResult result) {
+            revealed = false;
+            if (btnReveal != null) btnReveal.setText("查看明文");
+            showResult(result);
+            // 原图已删，自检不过只能提示重拍
+            IdCardValidator.Report report = entry.side == CardSide.FRONT
+                    ? IdCardValidator.validate(result) : IdCardValidator.Report.OK;
+            if (!report.ok()) {
+                showValidationIssues(report);
+                if (report.idNumberSuspect()) return;
+            } else {
+                toast("离线队列识别完成（默认脱敏显示）");
+            }
+            saveToHistory(result, entry.side);
+        }
+
+        @Override public void onQueuedDropped(ScanQueue.Entry entry, OcrError error) {
+            toast("离线识别失败，请重拍: " + error);
+        }
+
+        @Override public void onQueueChanged(int pending) {
+            if (pending > 0) android.util.Log.d("OCR_QUEUE", "pending=" + pending);
+        }
+    };
+
+    // 识别有了结论就删掉原图；预览已单独生成，不再需要文件
+    private void releaseCapture(File capture) {
+        captureStore.release(capture);
+        if (photoFile == capture) photoFile = null;
+    }
+
+    // 分阶段耗时只在可调试包里输出
+    private void logMetrics() {
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) return;
+        android.util.Log.d("OCR_METRICS", ScanMetrics.global().snapshot().toJson().toString());
+        android.util.Log.d("OCR_METRICS", "limiter " + OcrRateLimiter.shared().stats().toJson());
+        android.util.Log.d("OCR_METRICS", "jank " + jankLog.toJson());
+    }
+
+    // 可调试包离开页面时把卡顿记录写到 cache/jank.log，adb shell run-as 取出
+    private void exportJankLog() {
+        if ((getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) == 0) return;
+        final File out = new File(getCacheDir(), "jank.log");
+        final FrameMonitor monitor = frames;
+        new Thread(() -> {
+            try {
+                monitor.exportTo(out);
+            } catch (java.io.IOException e) {
+                android.util.Log.w("OCR_JANK", "导出卡顿记录失败: " + e.getMessage());
+            }
+        }, "jank-export").start();
+    }
+
     // ========= 安全显示：默认脱敏 / 解锁明文10秒 =========
 
     private void showMasked(TencentOcrClient.OcrResult r) {
@@ -377,37 +721,37 @@ public class MainActivity extends AppCompatActivity {
 
     private String buildMaskedText(TencentOcrClient.OcrResult r) {
         // 这里用于“显示”和“复制脱敏”（都是脱敏版）
-        return "姓名：" + maskName(r.name) + "\n" +
-                "身份证号：" + maskId(r.idNumber) + "\n" +
-                "住址：" + maskAddress(r.address) + "\n" +
-                "性别：" + safe(r.sex) + "\n" +
-                "民族：" + safe(r.nation) + "\n" +
-                "出生：" + safe(r.birth);
+        StringBuilder sb = textBuf;
+        sb.setLength(0);
+        sb.append("姓名：");
+        Redactor.appendMaskedName(r.name, sb);
+        sb.append("\n身份证号：");
+        Redactor.appendMaskedId(r.idNumber, sb);
+        sb.append("\n住址：");
+        Redactor.appendMaskedAddress(r.address, sb);
+        appendCommonFields(r, sb);
+        return sb.toString();
     }
 
     private String buildPlainText(TencentOcrClient.OcrResult r) {
         // 这里用于“显示明文”和“复制明文”（纯内容，不加提示语）
-        return "姓名：" + safe(r.name) + "\n" +
-                "身份证号：" + safe(r.idNumber) + "\n" +
-                "住址：" + safe(r.address) + "\n" +
-                "性别：" + safe(r.sex) + "\n" +
-                "民族：" + safe(r.nation) + "\n" +
-                "出生：" + safe(r.birth);
-    }
-
-    // ========= 工具：Base64 / 脱敏 / 风险评分 / 日志脱敏 =========
-
-    private static String readUriToBase64(ContentResolver cr, Uri uri) throws Exception {
-        try (InputStream is = cr.openInputStream(uri);
-             ByteArrayOutputStream bos = new ByteArrayOutputStream()) {
-            if (is == null) throw new IllegalStateException("openInputStream returned null");
-            byte[] buf = new byte[8192];
-            int n;
-            while ((n = is.read(buf)) > 0) bos.write(buf, 0, n);
-            return android.util.Base64.encodeToString(bos.toByteArray(), android.util.Base64.NO_WRAP);
-        }
+        StringBuilder sb = textBuf;
+        sb.setLength(0);
+        sb.append("姓名：").append(safe(r.name))
+                .append("\n身份证号：").append(safe(r.idNumber))
+                .append("\n住址：").append(safe(r.address));
+        appendCommonFields(r, sb);
+        return sb.toString();
     }
 
+    private static void appendCommonFields(TencentOcrClient.OcrResult r, StringBuilder sb) {
+        sb.append("\n性别：").append(safe(r.sex))
+                .append("\n民族：").append(safe(r.nation))
+                .append("\n出生：").append(safe(r.birth));
+    }
+
+    // ========= 工具：风险评分（脱敏规则见 Redactor） =========
+
     private static int riskScore(TencentOcrClient.OcrResult r) {
         int s = 0;
         if (r.name != null && !r.name.isEmpty()) s += 20;
@@ -416,31 +760,6 @@ public class MainActivity extends AppCompatActivity {
         return Math.min(100, s);
     }
 
-    private static String maskName(String name) {
-        if (name == null || name.isEmpty()) return "";
-        if (name.length() == 1) return "*";
-        return name.charAt(0) + "*".repeat(Math.max(1, name.length() - 1));
-    }
-
-    private static String maskId(String id) {
-        if (id == null) return "";
-        String s = id.trim();
-        if (s.length() < 8) return "***";
-        return s.substring(0, 6) + "******" + s.substring(s.length() - 4);
-    }
-
-    private static String maskAddress(String addr) {
-        if (addr == null) return "";
-        String s = addr.trim();
-        if (s.length() <= 6) return s.isEmpty() ? "" : (s.charAt(0) + "***");
-        return s.substring(0, 6) + "***";
-    }
-
-    private static String redactDigits(String s) {
-        if (s == null) return "";
-        return s.replaceAll("\\d{6,}", "******");
-    }
-
     private static String safe(String s) {
         return s == null ? "" : s;
     }
@@ -0,0 +1,65 @@
+package com.jeffrey.finalwork.history;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.jeffrey.finalwork.net.SealedBox;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Locale;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+
+/**
+ * 历史记录的落盘加密和检索索引（纯 Java，可在 JVM 上测试）。
+ * 整条结果用 AES-GCM 封存；身份证号另算一个带密钥的 HMAC 作为索引列，
+ * 按证件号查找只比较索引、不用逐行解密，库被拷走也无法用号码反查。
+ */
+public final class HistoryCipher {
+
+    // 截断到 128 位：十万级记录碰撞概率可忽略，索引更小
+    static final int INDEX_BYTES = 16;
+    private static final Gson GSON = new Gson();
+
+    private final SealedBox box;
+    private final SecretKey indexKey;
+
+    public HistoryCipher(SecretKey aesKey, SecretKey hmacKey) {
+        this.box = new SealedBox(aesKey);
+        this.indexKey = hmacKey;
+    }
+
+    /** 号码为空（如国徽面）返回 null */
+    public byte[] index(String idNumber) throws GeneralSecurityException {
+        String normalized = normalize(idNumber);
+        if (normalized.isEmpty()) return null;
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(indexKey);
+        return Arrays.copyOf(mac.doFinal(normalized.getBytes(StandardCharsets.UTF_8)), INDEX_BYTES);
+    }
+
+    public byte[] seal(TencentOcrClient.OcrResult result) throws GeneralSecurityException {
+        JsonObject json = GSON.toJsonTree(result).getAsJsonObject();
+        // 完整响应文本只用于调试日志，不进历史
+        json.remove("rawJson");
+        return box.seal(json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    public TencentOcrClient.OcrResult open(byte[] sealed) throws GeneralSecurityException {
+        return GSON.fromJson(new String(box.open(sealed), StandardCharsets.UTF_8), TencentOcrClient.OcrResult.class);
+    }
+
+    // OCR 结果里偶有空格，末位 x 大小写不一
+    static String normalize(String idNumber) {
+        if (idNumber == null) return "";
+        StringBuilder sb = new StringBuilder(18);
+        for (int i = 0; i < idNumber.length(); i++) {
+            char c = idNumber.charAt(i);
+            if (!Character.isWhitespace(c)) sb.append(c);
+        }
+        return sb.toString().toUpperCase(Locale.ROOT);
+    }
+}
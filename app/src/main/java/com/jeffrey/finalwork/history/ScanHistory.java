@@ -0,0 +1,260 @@
+package com.jeffrey.finalwork.history;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import com.jeffrey.finalwork.net.CardSide;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+import com.jeffrey.finalwork.security.KeystoreKeys;
+
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 本地识别历史：SQLite 存储，结果整条加密，身份证号只以 HMAC 索引形式出现。
+ * 列表用 id 做游标分页（不用 OFFSET，翻到十万条之后也是索引定位）；
+ * 超过保留期或条数上限的旧记录由后台任务分批删除。
+ * 除 get 外的方法都会读写数据库或 Keystore，在后台线程调用，{@link #io()} 可直接用。
+ */
+public final class ScanHistory {
+
+    private static final String TAG = "OCR_HISTORY";
+    private static final String DB_NAME = "scan_history.db";
+    private static final int DB_VERSION = 1;
+
+    // 每写入这么多条检查一次保留策略
+    private static final int EVICT_EVERY = 200;
+    // 分批删除，单个事务不长时间占着写锁
+    private static final int DELETE_BATCH = 500;
+
+    public static final class Entry {
+        public final long id;
+        public final long createdAt;
+        public final CardSide side;
+        public final TencentOcrClient.OcrResult result;
+
+        Entry(long id, long createdAt, CardSide side, TencentOcrClient.OcrResult result) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.side = side;
+            this.result = result;
+        }
+    }
+
+    public static final class Page {
+        public final List<Entry> entries;
+        /** 下一页的游标，0 表示没有更多 */
+        public final long next;
+
+        Page(List<Entry> entries, long next) {
+            this.entries = entries;
+            this.next = next;
+        }
+    }
+
+    private static volatile ScanHistory instance;
+
+    private final Helper helper;
+    private final HistoryCipher cipher;
+    private final long maxAgeMs;
+    private final int maxRows;
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "scan-history");
+        t.setDaemon(true);
+        return t;
+    });
+    private int insertsSinceEvict;
+
+    private ScanHistory(Context app, HistoryCipher cipher, long maxAgeMs, int maxRows) {
+        this.helper = new Helper(app);
+        this.cipher = cipher;
+        this.maxAgeMs = maxAgeMs;
+        this.maxRows = maxRows;
+        // 打开时先按保留策略清一遍
+        io.execute(this::evict);
+    }
+
+    /** 保留 90 天、最多 10 万条；取不到 Keystore 密钥时返回 null */
+    public static ScanHistory get(Context context) {
+        ScanHistory h = instance;
+        if (h == null) {
+            synchronized (ScanHistory.class) {
+                h = instance;
+                if (h == null) {
+                    try {
+                        HistoryCipher cipher = new HistoryCipher(
+                                KeystoreKeys.aesKey("ocr_history"), KeystoreKeys.hmacKey("ocr_history_index"));
+                        instance = h = new ScanHistory(context.getApplicationContext(), cipher,
+                                90L * 24 * 60 * 60 * 1000, 100_000);
+                    } catch (GeneralSecurityException e) {
+                        Log.w(TAG, "识别历史不可用: " + e.getMessage());
+                        return null;
+                    }
+                }
+            }
+        }
+        return h;
+    }
+
+    /** 历史读写专用的后台线程，按提交顺序执行 */
+    public ExecutorService io() {
+        return io;
+    }
+
+    public long insert(TencentOcrClient.OcrResult result, CardSide side, long createdAt) throws GeneralSecurityException {
+        byte[] index = cipher.index(result.idNumber);
+        byte[] payload = cipher.seal(result);
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long id;
+        SQLiteStatement insert = db.compileStatement(
+                "INSERT INTO scans (created_at, side, id_hash, payload) VALUES (?, ?, ?, ?)");
+        try {
+            insert.bindLong(1, createdAt);
+            insert.bindString(2, side.name());
+            if (index != null) insert.bindBlob(3, index);
+            else insert.bindNull(3);
+            insert.bindBlob(4, payload);
+            id = insert.executeInsert();
+        } finally {
+            insert.close();
+        }
+        synchronized (this) {
+            if (++insertsSinceEvict >= EVICT_EVERY) {
+                insertsSinceEvict = 0;
+                io.execute(this::evict);
+            }
+        }
+        return id;
+    }
+
+    /** 同一证件号最近一次的记录，没有返回 null；用于重复识别提示 */
+    public Entry latest(String idNumber) throws GeneralSecurityException {
+        List<Entry> list = find(idNumber, 1);
+        return list.isEmpty() ? null : list.get(0);
+    }
+
+    /** 按证件号查找，新的在前；走 id_hash 索引，只解密命中的行 */
+    public List<Entry> find(String idNumber, int limit) throws GeneralSecurityException {
+        byte[] index = cipher.index(idNumber);
+        if (index == null) return Collections.emptyList();
+        // rawQuery 的参数只能按字符串绑定，索引值是定长二进制，直接写成 blob 字面量
+        String sql = "SELECT id, created_at, side, payload FROM scans WHERE id_hash = X'" + hex(index)
+                + "' ORDER BY id DESC LIMIT " + Math.max(1, limit);
+        try (Cursor c = helper.getReadableDatabase().rawQuery(sql, null)) {
+            return read(c, limit);
+        }
+    }
+
+    /** 历史列表分页，新的在前；cursor 传 0 取第一页，之后传上一页的 next */
+    public Page page(long cursor, int limit) {
+        String sql = "SELECT id, created_at, side, payload FROM scans"
+                + (cursor > 0 ? " WHERE id < ?" : "") + " ORDER BY id DESC LIMIT " + Math.max(1, limit);
+        String[] args = cursor > 0 ? new String[]{Long.toString(cursor)} : null;
+        List<Entry> entries;
+        long last = 0;
+        int rows;
+        try (Cursor c = helper.getReadableDatabase().rawQuery(sql, args)) {
+            rows = c.getCount();
+            entries = read(c, limit);
+            if (c.moveToLast()) last = c.getLong(0);
+        }
+        return new Page(entries, rows < limit ? 0 : last);
+    }
+
+    public long count() {
+        try (Cursor c = helper.getReadableDatabase().rawQuery("SELECT COUNT(*) FROM scans", null)) {
+            return c.moveToFirst() ? c.getLong(0) : 0;
+        }
+    }
+
+    /** 删除超过保留期和超出条数上限的旧记录，返回删除条数 */
+    public int evict() {
+        SQLiteDatabase db = helper.getWritableDatabase();
+        long cutoff = System.currentTimeMillis() - maxAgeMs;
+        int deleted = 0;
+        try {
+            // created_at 有索引，按时间删只扫要删的那部分
+            int n;
+            do {
+                n = db.delete("scans", "id IN (SELECT id FROM scans WHERE created_at < ? LIMIT " + DELETE_BATCH + ")",
+                        new String[]{Long.toString(cutoff)});
+                deleted += n;
+            } while (n == DELETE_BATCH);
+            // 条数上限：第 maxRows 新的那条之前的全部删掉
+            long boundary;
+            try (Cursor c = db.rawQuery("SELECT id FROM scans ORDER BY id DESC LIMIT 1 OFFSET " + maxRows, null)) {
+                boundary = c.moveToFirst() ? c.getLong(0) : 0;
+            }
+            while (boundary > 0) {
+                n = db.delete("scans", "id IN (SELECT id FROM scans WHERE id <= ? ORDER BY id LIMIT " + DELETE_BATCH + ")",
+                        new String[]{Long.toString(boundary)});
+                deleted += n;
+                if (n < DELETE_BATCH) break;
+            }
+        } catch (RuntimeException e) {
+            Log.w(TAG, "历史清理失败: " + e.getMessage());
+        }
+        if (deleted > 0) Log.d(TAG, "evicted " + deleted);
+        return deleted;
+    }
+
+    private static String hex(byte[] b) {
+        char[] digits = "0123456789ABCDEF".toCharArray();
+        char[] out = new char[b.length * 2];
+        for (int i = 0; i < b.length; i++) {
+            out[i * 2] = digits[(b[i] >> 4) & 0xf];
+            out[i * 2 + 1] = digits[b[i] & 0xf];
+        }
+        return new String(out);
+    }
+
+    // 解不开的行（密钥被清除等）跳过，由保留策略最终删掉
+    private List<Entry> read(Cursor c, int limit) {
+        List<Entry> out = new ArrayList<>(Math.min(limit, c.getCount()));
+        while (c.moveToNext()) {
+            try {
+                out.add(new Entry(c.getLong(0), c.getLong(1), CardSide.valueOf(c.getString(2)), cipher.open(c.getBlob(3))));
+            } catch (GeneralSecurityException | RuntimeException e) {
+                Log.w(TAG, "跳过无法解密的记录 " + c.getLong(0));
+            }
+        }
+        return out;
+    }
+
+    private static final class Helper extends SQLiteOpenHelper {
+
+        Helper(Context context) {
+            super(context, DB_NAME, null, DB_VERSION);
+            // 写入不阻塞列表读取
+            setWriteAheadLoggingEnabled(true);
+        }
+
+        @Override public void onConfigure(SQLiteDatabase db) {
+            // WAL 下 NORMAL 已能保证崩溃后数据库一致，少一次 fsync
+            db.execSQL("PRAGMA synchronous = NORMAL");
+        }
+
+        @Override public void onCreate(SQLiteDatabase db) {
+            // id 即 rowid，单调递增，分页和条数上限都按它走
+            db.execSQL("CREATE TABLE scans ("
+                    + "id INTEGER PRIMARY KEY AUTOINCREMENT, "
+                    + "created_at INTEGER NOT NULL, "
+                    + "side TEXT NOT NULL, "
+                    + "id_hash BLOB, "
+                    + "payload BLOB NOT NULL)");
+            // 国徽面没有证件号，部分索引不收录
+            db.execSQL("CREATE INDEX idx_scans_id_hash ON scans(id_hash) WHERE id_hash IS NOT NULL");
+            db.execSQL("CREATE INDEX idx_scans_created_at ON scans(created_at)");
+        }
+
+        @Override public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {}
+    }
+}
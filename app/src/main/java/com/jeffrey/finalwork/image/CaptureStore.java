@@ -0,0 +1,141 @@
+package com.jeffrey.finalwork.image;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 拍照原图的落盘管理：固定几个槽位循环复用，文件总大小和存活时间有上限，
+ * 识别结束后覆写再删除，身份证照片不在缓存目录里长期留存。
+ */
+public final class CaptureStore {
+
+    private static final String PREFIX = "capture_";
+    private static final String SUFFIX = ".jpg";
+    // 旧版本 File.createTempFile 留下的文件
+    private static final String LEGACY_PREFIX = "idcard_";
+
+    private final File dir;
+    private final int slots;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    // 槽位最近一次被占用的时间，0 表示空闲
+    private final long[] acquiredAt;
+
+    public CaptureStore(File dir, int slots, long maxBytes, long maxAgeMs) {
+        this.dir = dir;
+        this.slots = Math.max(1, slots);
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.acquiredAt = new long[this.slots];
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+    }
+
+    /** 取一个空槽位给相机写入；全部占用时回收最早的那个 */
+    public synchronized File acquire() throws IOException {
+        int slot = -1;
+        for (int i = 0; i < slots; i++) {
+            if (acquiredAt[i] == 0) {
+                slot = i;
+                break;
+            }
+            if (slot < 0 || acquiredAt[i] < acquiredAt[slot]) slot = i;
+        }
+        File f = slotFile(slot);
+        if (f.exists() && !secureDelete(f)) throw new IOException("无法回收拍照文件 " + f.getName());
+        acquiredAt[slot] = System.currentTimeMillis();
+        trim();
+        return f;
+    }
+
+    /** 识别结束（成功、失败或取消拍照）后调用，覆写并删除文件，槽位可复用 */
+    public synchronized void release(File f) {
+        if (f == null) return;
+        int slot = slotOf(f);
+        if (slot < 0) return;
+        secureDelete(f);
+        acquiredAt[slot] = 0;
+    }
+
+    /** 按存活时间和总字节数清理空闲槽位，最久未用的先删 */
+    public synchronized void trim() {
+        long now = System.currentTimeMillis();
+        File[] files = dir.listFiles((d, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) return;
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+
+        long total = 0;
+        for (File f : files) total += f.length();
+        for (File f : files) {
+            int slot = slotOf(f);
+            boolean inUse = slot >= 0 && acquiredAt[slot] != 0;
+            boolean expired = now - f.lastModified() > maxAgeMs;
+            // 槽位编号超出当前配置的文件一律清掉
+            if (slot < 0 || (!inUse && (expired || total > maxBytes))) {
+                total -= f.length();
+                secureDelete(f);
+            }
+        }
+    }
+
+    /** 启动时调用：清掉上次进程遗留的文件（含旧版本的临时文件），进程死后占用标记已无意义 */
+    public synchronized void sweep(File legacyDir) {
+        Arrays.fill(acquiredAt, 0);
+        File[] files = dir.listFiles();
+        if (files != null) for (File f : files) secureDelete(f);
+        File[] legacy = legacyDir == null ? null
+                : legacyDir.listFiles((d, name) -> name.startsWith(LEGACY_PREFIX) && name.endsWith(SUFFIX));
+        if (legacy != null) for (File f : legacy) secureDelete(f);
+    }
+
+    public synchronized List<File> files() {
+        List<File> out = new ArrayList<>();
+        for (int i = 0; i < slots; i++) {
+            File f = slotFile(i);
+            if (f.exists()) out.add(f);
+        }
+        return out;
+    }
+
+    /**
+     * 先用 0 覆写再删除。闪存有磨损均衡，覆写不能保证物理擦除，
+     * 但能防止文件在删除前被其他途径（备份、误分享的 Uri）读到原内容。
+     */
+    static boolean secureDelete(File f) {
+        if (!f.exists()) return true;
+        if (f.isFile()) {
+            try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+                byte[] zeros = new byte[8192];
+                long len = raf.length();
+                for (long pos = 0; pos < len; pos += zeros.length) {
+                    raf.write(zeros, 0, (int) Math.min(zeros.length, len - pos));
+                }
+                raf.getFD().sync();
+            } catch (IOException ignored) {
+                // 覆写失败也要尽量删掉
+            }
+        }
+        return f.delete();
+    }
+
+    private File slotFile(int slot) {
+        return new File(dir, PREFIX + slot + SUFFIX);
+    }
+
+    private int slotOf(File f) {
+        File parent = f.getAbsoluteFile().getParentFile();
+        if (parent == null || !dir.getAbsoluteFile().equals(parent)) return -1;
+        String name = f.getName();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) return -1;
+        try {
+            int slot = Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+            return slot >= 0 && slot < slots ? slot : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.jeffrey.finalwork.image;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.net.Uri;
+
+import androidx.exifinterface.media.ExifInterface;
+
+import com.jeffrey.finalwork.net.UploadPlanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 上传前的图片预处理：采样解码 → EXIF 旋正 → 质量评估 → 缩放到 OCR 所需分辨率 → 按字节预算重新压缩。
+ */
+public final class ImagePreparer {
+
+    public static final class Config {
+        // 身份证 OCR 长边 1600px 已足够清晰，再大只是浪费流量
+        public int maxLongEdge = 1600;
+        public int minLongEdge = 960;
+        public int maxBytes = 600 * 1024;
+        public int startQuality = 90;
+        public int minQuality = 60;
+        // 质量评估用的亮度图长边
+        public int qualitySampleEdge = 320;
+        public QualityAssessor.Thresholds thresholds = QualityAssessor.Thresholds.defaults();
+
+        public static Config defaults() {
+            return new Config();
+        }
+
+        /** 识别结果自检不过时重试用：分辨率和质量都放宽，多花流量换细节 */
+        public Config highFidelity() {
+            Config c = new Config();
+            c.maxLongEdge = Math.max(maxLongEdge, 2400);
+            c.minLongEdge = Math.max(minLongEdge, 1600);
+            c.maxBytes = Math.max(maxBytes, 1200 * 1024);
+            c.startQuality = Math.max(startQuality, 95);
+            c.minQuality = Math.max(minQuality, 80);
+            c.qualitySampleEdge = qualitySampleEdge;
+            c.thresholds = thresholds;
+            return c;
+        }
+
+        /** 按网络情况调整后的副本：长边、体积预算和起始质量取 target，其余不变 */
+        public Config withTarget(UploadPlanner.Target target) {
+            Config c = new Config();
+            c.maxLongEdge = Math.min(maxLongEdge, target.maxLongEdge);
+            c.minLongEdge = Math.min(minLongEdge, c.maxLongEdge);
+            c.maxBytes = Math.min(maxBytes, target.maxBytes);
+            c.startQuality = Math.min(startQuality, target.quality);
+            c.minQuality = Math.min(minQuality, c.startQuality);
+            c.qualitySampleEdge = qualitySampleEdge;
+            c.thresholds = thresholds;
+            return c;
+        }
+    }
+
+    public static final class PreparedImage {
+        public final byte[] jpeg;
+        public final int width;
+        public final int height;
+        public final int quality;
+        public QualityAssessor.Report qualityReport;
+
+        PreparedImage(byte[] jpeg, int width, int height, int quality) {
+            this.jpeg = jpeg;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+        }
+    }
+
+    private ImagePreparer() {}
+
+    public static PreparedImage prepare(ContentResolver cr, Uri uri, Config cfg) throws IOException {
+        Bitmap bitmap = decodeOriented(cr, uri, cfg.maxLongEdge);
+        try {
+            return prepare(bitmap, cfg);
+        } finally {
+            bitmap.recycle();
+        }
+    }
+
+    /** 对已解码旋正的位图做评估和压缩，不回收 bitmap（调用方可能还要拿它生成预览） */
+    public static PreparedImage prepare(Bitmap bitmap, Config cfg) {
+        // 复用已解码的位图做质量评估，不再单独解码
+        QualityAssessor.Report report = LumaSampler.sample(bitmap, cfg.qualitySampleEdge).assess(cfg.thresholds);
+        // 必然要重拍的图不再花时间压缩，jpeg 为空
+        PreparedImage prepared = report.verdict == QualityAssessor.Verdict.REJECT
+                ? new PreparedImage(new byte[0], bitmap.getWidth(), bitmap.getHeight(), 0)
+                : encodeWithinBudget(bitmap, cfg);
+        prepared.qualityReport = report;
+        return prepared;
+    }
+
+    /** 采样解码并旋正，返回长边不超过 targetLongEdge 的位图 */
+    public static Bitmap decodeOriented(ContentResolver cr, Uri uri, int targetLongEdge) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream is = open(cr, uri)) {
+            BitmapFactory.decodeStream(is, null, bounds);
+        }
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            throw new IOException("无法解析图片尺寸");
+        }
+
+        BitmapFactory.Options opts = new BitmapFactory.Options();
+        opts.inSampleSize = sampleSize(Math.max(bounds.outWidth, bounds.outHeight), targetLongEdge);
+        opts.inPreferredConfig = Bitmap.Config.ARGB_8888;
+        Bitmap sampled;
+        try (InputStream is = open(cr, uri)) {
+            sampled = BitmapFactory.decodeStream(is, null, opts);
+        }
+        if (sampled == null) throw new IOException("图片解码失败");
+
+        int orientation;
+        try (InputStream is = open(cr, uri)) {
+            orientation = new ExifInterface(is).getAttributeInt(
+                    ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+        }
+
+        Matrix m = orientationMatrix(orientation);
+        float scale = Math.min(1f, targetLongEdge / (float) Math.max(sampled.getWidth(), sampled.getHeight()));
+        if (scale < 1f) m.postScale(scale, scale);
+        if (m.isIdentity()) return sampled;
+
+        Bitmap out = Bitmap.createBitmap(sampled, 0, 0, sampled.getWidth(), sampled.getHeight(), m, true);
+        if (out != sampled) sampled.recycle();
+        return out;
+    }
+
+    /** 先降质量，仍超预算再缩小尺寸，直到落入 maxBytes 或触到下限 */
+    public static PreparedImage encodeWithinBudget(Bitmap bitmap, Config cfg) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(cfg.maxBytes);
+        Bitmap current = bitmap;
+        try {
+            while (true) {
+                int quality = cfg.startQuality;
+                while (true) {
+                    bos.reset();
+                    current.compress(Bitmap.CompressFormat.JPEG, quality, bos);
+                    if (bos.size() <= cfg.maxBytes || quality <= cfg.minQuality) break;
+                    quality = Math.max(cfg.minQuality, quality - 10);
+                }
+                int longEdge = Math.max(current.getWidth(), current.getHeight());
+                if (bos.size() <= cfg.maxBytes || longEdge <= cfg.minLongEdge) {
+                    return new PreparedImage(bos.toByteArray(), current.getWidth(), current.getHeight(), quality);
+                }
+                float scale = Math.max(cfg.minLongEdge / (float) longEdge, 0.8f);
+                Bitmap smaller = Bitmap.createScaledBitmap(current,
+                        Math.round(current.getWidth() * scale), Math.round(current.getHeight() * scale), true);
+                if (current != bitmap) current.recycle();
+                current = smaller;
+            }
+        } finally {
+            if (current != bitmap) current.recycle();
+        }
+    }
+
+    static int sampleSize(int longEdge, int targetLongEdge) {
+        int sample = 1;
+        // 采样后长边仍需 >= 目标，剩余部分交给 Matrix 精确缩放
+        while (longEdge / (sample * 2) >= targetLongEdge) sample *= 2;
+        return sample;
+    }
+
+    private static Matrix orientationMatrix(int orientation) {
+        Matrix m = new Matrix();
+        switch (orientation) {
+            case ExifInterface.ORIENTATION_FLIP_HORIZONTAL: m.setScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_ROTATE_180: m.setRotate(180); break;
+            case ExifInterface.ORIENTATION_FLIP_VERTICAL: m.setRotate(180); m.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_TRANSPOSE: m.setRotate(90); m.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_ROTATE_90: m.setRotate(90); break;
+            case ExifInterface.ORIENTATION_TRANSVERSE: m.setRotate(-90); m.postScale(-1, 1); break;
+            case ExifInterface.ORIENTATION_ROTATE_270: m.setRotate(-90); break;
+            default: break;
+        }
+        return m;
+    }
+
+    private static InputStream open(ContentResolver cr, Uri uri) throws IOException {
+        InputStream is = cr.openInputStream(uri);
+        if (is == null) throw new IOException("openInputStream returned null");
+        return is;
+    }
+}
@@ -0,0 +1,42 @@
+package com.jeffrey.finalwork.image;
+
+import android.graphics.Bitmap;
+
+/** 把位图缩小到指定长边并提取 8 位亮度（BT.601） */
+public final class LumaSampler {
+
+    public final byte[] luma;
+    public final int width;
+    public final int height;
+
+    private LumaSampler(byte[] luma, int width, int height) {
+        this.luma = luma;
+        this.width = width;
+        this.height = height;
+    }
+
+    public static LumaSampler sample(Bitmap src, int maxLongEdge) {
+        float scale = Math.min(1f, maxLongEdge / (float) Math.max(src.getWidth(), src.getHeight()));
+        int w = Math.max(3, Math.round(src.getWidth() * scale));
+        int h = Math.max(3, Math.round(src.getHeight() * scale));
+        Bitmap small = (w == src.getWidth() && h == src.getHeight())
+                ? src : Bitmap.createScaledBitmap(src, w, h, true);
+        try {
+            int[] argb = new int[w * h];
+            small.getPixels(argb, 0, w, 0, 0, w, h);
+            byte[] luma = new byte[w * h];
+            for (int i = 0; i < argb.length; i++) {
+                int c = argb[i];
+                int r = (c >> 16) & 0xff, g = (c >> 8) & 0xff, b = c & 0xff;
+                luma[i] = (byte) ((77 * r + 150 * g + 29 * b) >> 8);
+            }
+            return new LumaSampler(luma, w, h);
+        } finally {
+            if (small != src) small.recycle();
+        }
+    }
+
+    public QualityAssessor.Report assess(QualityAssessor.Thresholds t) {
+        return QualityAssessor.assess(luma, width, height, t);
+    }
+}
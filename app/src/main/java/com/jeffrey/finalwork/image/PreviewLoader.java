@@ -0,0 +1,239 @@
+package com.jeffrey.finalwork.image;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.widget.ImageView;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 预览图加载：按 ImageView 尺寸在后台解码并旋正，小 LRU 缓存 + 位图复用池。
+ * 拍照后的预览优先复用扫描流水线的那次解码（{@link #publish}），不再单独读一遍原图。
+ */
+public final class PreviewLoader {
+
+    private static final int POOL_SIZE = 3;
+
+    private final ContentResolver resolver;
+    private final Handler ui = new Handler(Looper.getMainLooper());
+    private final ExecutorService decoder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "preview-decoder");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    // 以下三项只在主线程访问
+    private final LruCache<String, Bitmap> cache;
+    private final Set<Bitmap> cached = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<ImageView, Bitmap> shown = new WeakHashMap<>();
+
+    // 已回收的预览位图，尺寸一致时直接画进去，省一次分配
+    private final ArrayDeque<Bitmap> pool = new ArrayDeque<>(POOL_SIZE);
+    // uri -> 等待流水线解码结果的 View
+    private final Map<String, Target> pending = new HashMap<>();
+    private Runnable onShown;
+
+    private static final class Target {
+        final WeakReference<ImageView> view;
+        final int width;
+        final int height;
+
+        Target(ImageView view, int width, int height) {
+            this.view = new WeakReference<>(view);
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    public PreviewLoader(ContentResolver resolver, int maxCacheBytes) {
+        this.resolver = resolver;
+        this.cache = new LruCache<String, Bitmap>(maxCacheBytes) {
+            @Override protected int sizeOf(String key, Bitmap value) {
+                return value.getAllocationByteCount();
+            }
+
+            @Override protected void entryRemoved(boolean evicted, String key, Bitmap oldValue, Bitmap newValue) {
+                cached.remove(oldValue);
+                if (!shown.containsValue(oldValue)) recycleToPool(oldValue);
+            }
+        };
+    }
+
+    /**
+     * 主线程调用。sharedDecode 为 true 表示马上会有扫描流水线解码同一张图，
+     * 这里只登记等待，不重复解码。
+     */
+    public void load(Uri uri, ImageView view, boolean sharedDecode) {
+        String key = uri.toString();
+        synchronized (pending) {
+            // 同一个 View 之前在等的图已经不需要了
+            for (Iterator<Target> it = pending.values().iterator(); it.hasNext(); ) {
+                if (it.next().view.get() == view) it.remove();
+            }
+        }
+        // 拍照槽位的文件名会复用，新拍的照片不能命中旧预览
+        if (sharedDecode) cache.remove(key);
+        Bitmap hit = cache.get(key);
+        if (hit != null) {
+            show(view, hit);
+            return;
+        }
+        int[] size = targetSize(view);
+        Target target = new Target(view, size[0], size[1]);
+        if (sharedDecode) {
+            synchronized (pending) {
+                pending.put(key, target);
+            }
+            return;
+        }
+        decode(key, uri, target);
+    }
+
+    /**
+     * 流水线解码出旋正后的位图时调用（任意线程）。source 归调用方所有，这里只在返回前读取它。
+     * 没人在等这张图时直接返回。
+     */
+    public void publish(Uri uri, Bitmap source) {
+        String key = uri.toString();
+        Target target;
+        synchronized (pending) {
+            target = pending.remove(key);
+        }
+        if (target == null) return;
+        deliver(key, target, scaleToFit(source, target.width, target.height));
+    }
+
+    /**
+     * 流水线没能解码这张图时调用（任意线程），比如读取原图出错。
+     * 有 View 在等就改为单独解码一次，免得预览一直空着。
+     */
+    public void publishFailed(Uri uri) {
+        String key = uri.toString();
+        Target target;
+        synchronized (pending) {
+            target = pending.remove(key);
+        }
+        if (target != null) decode(key, uri, target);
+    }
+
+    /** 主线程调用：每次把预览图设到 View 上之后回调，用于卡顿归因 */
+    public void setOnShown(Runnable onShown) {
+        this.onShown = onShown;
+    }
+
+    /** 释放缓存和复用池并结束解码线程，页面销毁时调用；之后不能再 load */
+    public void clear() {
+        decoder.shutdownNow();
+        cache.evictAll();
+        synchronized (pool) {
+            for (Bitmap b : pool) b.recycle();
+            pool.clear();
+        }
+        synchronized (pending) {
+            pending.clear();
+        }
+    }
+
+    private void decode(String key, Uri uri, Target target) {
+        try {
+            decoder.execute(() -> {
+                Bitmap decoded;
+                try {
+                    decoded = ImagePreparer.decodeOriented(resolver, uri, Math.max(target.width, target.height));
+                } catch (Exception e) {
+                    return;
+                }
+                Bitmap preview = scaleToFit(decoded, target.width, target.height);
+                if (preview != decoded) decoded.recycle();
+                deliver(key, target, preview);
+            });
+        } catch (RejectedExecutionException e) {
+            // 已 clear，页面不在了
+        }
+    }
+
+    private void deliver(String key, Target target, Bitmap preview) {
+        ui.post(() -> {
+            cache.put(key, preview);
+            cached.add(preview);
+            ImageView view = target.view.get();
+            if (view != null) show(view, preview);
+        });
+    }
+
+    private void show(ImageView view, Bitmap bitmap) {
+        Bitmap previous = shown.put(view, bitmap);
+        view.setImageBitmap(bitmap);
+        if (onShown != null) onShown.run();
+        if (previous != null && previous != bitmap && !cached.contains(previous)
+                && !shown.containsValue(previous)) {
+            recycleToPool(previous);
+        }
+    }
+
+    private void recycleToPool(Bitmap b) {
+        if (b.isRecycled() || !b.isMutable()) return;
+        synchronized (pool) {
+            if (pool.size() >= POOL_SIZE) pool.pollFirst().recycle();
+            pool.addLast(b);
+        }
+    }
+
+    private Bitmap takeFromPool(int width, int height) {
+        synchronized (pool) {
+            for (Iterator<Bitmap> it = pool.iterator(); it.hasNext(); ) {
+                Bitmap b = it.next();
+                if (b.getWidth() == width && b.getHeight() == height && b.getConfig() == Bitmap.Config.ARGB_8888) {
+                    it.remove();
+                    return b;
+                }
+            }
+        }
+        return null;
+    }
+
+    /** 等比缩小到目标框内；复用池里有同尺寸位图就画进去 */
+    private Bitmap scaleToFit(Bitmap src, int maxWidth, int maxHeight) {
+        float scale = Math.min(1f, Math.min(maxWidth / (float) src.getWidth(), maxHeight / (float) src.getHeight()));
+        int w = Math.max(1, Math.round(src.getWidth() * scale));
+        int h = Math.max(1, Math.round(src.getHeight() * scale));
+        Bitmap out = takeFromPool(w, h);
+        if (out == null) out = Bitmap.createBitmap(w, h, Bitmap.Config.ARGB_8888);
+        else out.eraseColor(0);
+        Matrix m = new Matrix();
+        m.setScale(w / (float) src.getWidth(), h / (float) src.getHeight());
+        new Canvas(out).drawBitmap(src, m, paint);
+        return out;
+    }
+
+    // 预览区折叠时 View 尺寸为 0，按屏幕宽度兜底
+    private static int[] targetSize(ImageView view) {
+        int w = view.getWidth();
+        int h = view.getHeight();
+        if (w <= 0 || h <= 0) {
+            android.util.DisplayMetrics dm = view.getResources().getDisplayMetrics();
+            w = dm.widthPixels;
+            h = dm.heightPixels / 2;
+        }
+        return new int[]{w, h};
+    }
+}
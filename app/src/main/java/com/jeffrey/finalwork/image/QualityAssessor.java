@@ -0,0 +1,117 @@
+package com.jeffrey.finalwork.image;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 本地成像质量评估：在缩小后的亮度图上计算清晰度（拉普拉斯方差）、曝光和反光。
+ * 纯 Java 实现，不依赖 Android，可直接在 JVM 上单测。
+ */
+public final class QualityAssessor {
+
+    public enum Verdict { OK, WARN, REJECT }
+
+    /** 阈值按约 320px 长边的亮度图标定 */
+    public static final class Thresholds {
+        public double rejectSharpness = 40;
+        public double warnSharpness = 100;
+        public double minMeanLuma = 45;
+        public double maxMeanLuma = 225;
+        public double warnGlareRatio = 0.02;
+        public double rejectGlareRatio = 0.08;
+        public int glareLuma = 250;
+        public int darkLuma = 30;
+        public double rejectDarkRatio = 0.6;
+
+        public static Thresholds defaults() {
+            return new Thresholds();
+        }
+    }
+
+    public static final class Report {
+        public final double sharpness;
+        public final double meanLuma;
+        public final double glareRatio;
+        public final double darkRatio;
+        public final Verdict verdict;
+        public final List<String> issues;
+
+        Report(double sharpness, double meanLuma, double glareRatio, double darkRatio,
+               Verdict verdict, List<String> issues) {
+            this.sharpness = sharpness;
+            this.meanLuma = meanLuma;
+            this.glareRatio = glareRatio;
+            this.darkRatio = darkRatio;
+            this.verdict = verdict;
+            this.issues = Collections.unmodifiableList(issues);
+        }
+    }
+
+    private QualityAssessor() {}
+
+    /** luma 为按行存放的 8 位亮度（无符号） */
+    public static Report assess(byte[] luma, int width, int height, Thresholds t) {
+        if (width < 3 || height < 3 || luma.length < width * height) {
+            throw new IllegalArgumentException("luma buffer too small");
+        }
+
+        long sum = 0;
+        int glare = 0;
+        int dark = 0;
+        int n = width * height;
+        for (int i = 0; i < n; i++) {
+            int v = luma[i] & 0xff;
+            sum += v;
+            if (v >= t.glareLuma) glare++;
+            else if (v <= t.darkLuma) dark++;
+        }
+
+        // 4 邻域拉普拉斯，只算内部像素
+        double lapSum = 0;
+        double lapSq = 0;
+        for (int y = 1; y < height - 1; y++) {
+            int row = y * width;
+            for (int x = 1; x < width - 1; x++) {
+                int i = row + x;
+                int lap = 4 * (luma[i] & 0xff)
+                        - (luma[i - 1] & 0xff) - (luma[i + 1] & 0xff)
+                        - (luma[i - width] & 0xff) - (luma[i + width] & 0xff);
+                lapSum += lap;
+                lapSq += (double) lap * lap;
+            }
+        }
+        int inner = (width - 2) * (height - 2);
+        double lapMean = lapSum / inner;
+        double sharpness = lapSq / inner - lapMean * lapMean;
+
+        double mean = (double) sum / n;
+        double glareRatio = (double) glare / n;
+        double darkRatio = (double) dark / n;
+
+        List<String> issues = new ArrayList<>();
+        Verdict verdict = Verdict.OK;
+        if (sharpness < t.rejectSharpness) {
+            issues.add("图片模糊");
+            verdict = Verdict.REJECT;
+        } else if (sharpness < t.warnSharpness) {
+            issues.add("图片略模糊");
+            verdict = Verdict.WARN;
+        }
+        if (mean < t.minMeanLuma || darkRatio > t.rejectDarkRatio) {
+            issues.add("光线太暗");
+            verdict = Verdict.REJECT;
+        } else if (mean > t.maxMeanLuma) {
+            issues.add("曝光过度");
+            verdict = Verdict.REJECT;
+        }
+        if (glareRatio > t.rejectGlareRatio) {
+            issues.add("反光严重");
+            verdict = Verdict.REJECT;
+        } else if (glareRatio > t.warnGlareRatio) {
+            issues.add("有反光");
+            if (verdict == Verdict.OK) verdict = Verdict.WARN;
+        }
+        return new Report(sharpness, mean, glareRatio, darkRatio, verdict, issues);
+    }
+}
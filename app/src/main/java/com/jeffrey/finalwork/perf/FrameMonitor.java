@@ -0,0 +1,139 @@
+package com.jeffrey.finalwork.perf;
+
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把窗口的帧耗时和主线程停顿记进 {@link JankLog}：
+ * FrameMetrics 报告每一帧的渲染耗时；扫描阶段生效期间再挂一个 Choreographer 心跳，
+ * 两次 vsync 回调间隔过长说明主线程被占住了（这段时间可能根本没有帧可报）。
+ * 除 FrameMetrics 回调外都在主线程调用。
+ */
+public final class FrameMonitor {
+
+    // 结束后延续的归因时长，覆盖随后的布局和绘制
+    public static final long TAIL_MS = 100;
+    // 心跳间隔超过这么多个刷新周期记一次停顿
+    private static final int STALL_FRAMES = 3;
+
+    private static HandlerThread metricsThread;
+
+    private final JankLog log;
+    private final Choreographer choreographer = Choreographer.getInstance();
+    private final Choreographer.FrameCallback heartbeat = this::onVsync;
+    private Window window;
+    private Window.OnFrameMetricsAvailableListener metricsListener;
+    private boolean beating;
+    private long lastVsyncNanos;
+
+    /** log 的时钟须为 System.nanoTime 的毫秒数，与 FrameMetrics 的时间戳同基准 */
+    public FrameMonitor(JankLog log) {
+        this.log = log;
+    }
+
+    public static long nowMs() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    public JankLog log() {
+        return log;
+    }
+
+    /** 开始接收 window 的帧数据，页面可见时调用 */
+    public void attach(Window window) {
+        detach();
+        this.window = window;
+        float hz = window.getWindowManager().getDefaultDisplay().getRefreshRate();
+        if (hz > 1) log.setFrameIntervalMicros(Math.round(1_000_000 / hz));
+        metricsListener = (w, metrics, dropCount) -> onFrame(metrics);
+        window.addOnFrameMetricsAvailableListener(metricsListener, metricsHandler());
+    }
+
+    public void detach() {
+        if (window != null && metricsListener != null) {
+            try {
+                window.removeOnFrameMetricsAvailableListener(metricsListener);
+            } catch (RuntimeException ignored) {
+                // 窗口已销毁时会抛异常，监听也随之失效
+            }
+        }
+        window = null;
+        metricsListener = null;
+        stopHeartbeat();
+    }
+
+    public void begin(JankLog.Phase phase) {
+        log.begin(phase);
+        startHeartbeat();
+    }
+
+    public void end(JankLog.Phase phase) {
+        log.end(phase, TAIL_MS);
+    }
+
+    public void pulse(JankLog.Phase phase, long windowMs) {
+        log.pulse(phase, windowMs);
+        startHeartbeat();
+    }
+
+    /** 写到文件（覆盖），供 adb 拉取 */
+    public void exportTo(File file) throws IOException {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(log.export().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static synchronized Handler metricsHandler() {
+        if (metricsThread == null) {
+            metricsThread = new HandlerThread("frame-metrics");
+            metricsThread.start();
+        }
+        return new Handler(metricsThread.getLooper());
+    }
+
+    // FrameMetrics 线程
+    private void onFrame(FrameMetrics metrics) {
+        long total = metrics.getMetric(FrameMetrics.TOTAL_DURATION);
+        long startNanos = Build.VERSION.SDK_INT >= 26
+                ? metrics.getMetric(FrameMetrics.INTENDED_VSYNC_TIMESTAMP)
+                : System.nanoTime() - total;
+        log.frame(startNanos / 1_000_000, total / 1_000);
+    }
+
+    // 空闲时不挂心跳，避免每帧唤醒主线程
+    private void startHeartbeat() {
+        if (beating) return;
+        beating = true;
+        lastVsyncNanos = 0;
+        choreographer.postFrameCallback(heartbeat);
+    }
+
+    private void stopHeartbeat() {
+        if (!beating) return;
+        beating = false;
+        choreographer.removeFrameCallback(heartbeat);
+    }
+
+    private void onVsync(long frameTimeNanos) {
+        long gap = lastVsyncNanos == 0 ? 0 : frameTimeNanos - lastVsyncNanos;
+        if (gap > log.frameIntervalMicros() * 1_000 * STALL_FRAMES) {
+            log.stall(lastVsyncNanos / 1_000_000, gap / 1_000);
+        }
+        lastVsyncNanos = frameTimeNanos;
+        if (log.anyActive()) {
+            choreographer.postFrameCallback(heartbeat);
+        } else {
+            beating = false;
+        }
+    }
+}
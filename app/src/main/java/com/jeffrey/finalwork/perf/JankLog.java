@@ -0,0 +1,211 @@
+package com.jeffrey.finalwork.perf;
+
+import com.google.gson.JsonObject;
+
+import java.util.Locale;
+import java.util.function.LongSupplier;
+
+/**
+ * 主线程卡顿的环形日志：超时帧和主线程停顿按发生时所处的扫描阶段归类。
+ * 记录存在定长的原始类型数组里，写满后覆盖最旧的；各阶段的累计计数不受覆盖影响。
+ * 同一时刻有多个阶段生效时，算到最近开始的那个上。
+ */
+public final class JankLog {
+
+    public enum Phase {
+        IDLE,
+        CAPTURE_RESULT,     // 拍照返回回调
+        PREVIEW_SET,        // 预览图设到 ImageView 及随后的绘制
+        OCR_DISPATCH,       // 提交识别
+        RESULT_RENDER,      // 识别结果上屏
+        PREVIEW_ANIMATION   // 预览展开 / 收起动画
+    }
+
+    public enum Kind {
+        FRAME,              // 渲染超过一个刷新周期的帧
+        STALL               // 主线程一段时间没有响应 vsync
+    }
+
+    // 超过刷新周期这么多倍才算卡顿帧，留出调度抖动
+    private static final double JANK_FACTOR = 1.5;
+    private static final Phase[] PHASE_VALUES = Phase.values();
+    private static final Kind[] KIND_VALUES = Kind.values();
+    private static final int PHASES = PHASE_VALUES.length;
+
+    private final LongSupplier clockMs;
+
+    // 环形缓冲
+    private final long[] at;
+    private final int[] micros;
+    private final short[] dropped;
+    private final byte[] kinds;
+    private final byte[] phases;
+    private int next;
+    private int size;
+
+    // 按阶段累计
+    private final long[] frames = new long[PHASES];
+    private final long[] janky = new long[PHASES];
+    private final long[] droppedFrames = new long[PHASES];
+    private final long[] stalls = new long[PHASES];
+    private final long[] worstMicros = new long[PHASES];
+
+    // 阶段生效区间，[from, until]
+    private final long[] activeFrom = new long[PHASES];
+    private final long[] activeUntil = new long[PHASES];
+
+    private long frameIntervalMicros = 16_667;
+
+    /** clockMs 与 {@link #frame}、{@link #stall} 的时间戳需同一基准 */
+    public JankLog(int capacity, LongSupplier clockMs) {
+        this.clockMs = clockMs;
+        this.at = new long[capacity];
+        this.micros = new int[capacity];
+        this.dropped = new short[capacity];
+        this.kinds = new byte[capacity];
+        this.phases = new byte[capacity];
+        for (int i = 0; i < PHASES; i++) activeUntil[i] = Long.MIN_VALUE;
+    }
+
+    /** 屏幕刷新率变化时更新，卡顿和掉帧数都以它为准 */
+    public synchronized void setFrameIntervalMicros(long intervalMicros) {
+        frameIntervalMicros = Math.max(1, intervalMicros);
+    }
+
+    public synchronized long frameIntervalMicros() {
+        return frameIntervalMicros;
+    }
+
+    public synchronized void begin(Phase phase) {
+        activeFrom[phase.ordinal()] = clockMs.getAsLong();
+        activeUntil[phase.ordinal()] = Long.MAX_VALUE;
+    }
+
+    /** 阶段结束后再延续 tailMs：回调里的改动要到随后一两帧才真正布局绘制 */
+    public synchronized void end(Phase phase, long tailMs) {
+        int p = phase.ordinal();
+        if (activeUntil[p] == Long.MAX_VALUE) activeUntil[p] = clockMs.getAsLong() + tailMs;
+    }
+
+    /** 从现在起生效 windowMs，用于动画这类知道时长的阶段 */
+    public synchronized void pulse(Phase phase, long windowMs) {
+        long now = clockMs.getAsLong();
+        activeFrom[phase.ordinal()] = now;
+        activeUntil[phase.ordinal()] = now + windowMs;
+    }
+
+    /** 是否有扫描阶段在生效（含结束后的延续期） */
+    public synchronized boolean anyActive() {
+        long now = clockMs.getAsLong();
+        for (int p = 1; p < PHASES; p++) {
+            if (activeUntil[p] >= now) return true;
+        }
+        return false;
+    }
+
+    /** 一帧渲染完成；startMs 为该帧的 vsync 时刻 */
+    public synchronized void frame(long startMs, long durationMicros) {
+        int p = phaseAt(startMs, startMs + durationMicros / 1000).ordinal();
+        frames[p]++;
+        if (durationMicros <= frameIntervalMicros * JANK_FACTOR) return;
+        janky[p]++;
+        append(Kind.FRAME, p, startMs, durationMicros);
+    }
+
+    /** 主线程从 startMs 起 durationMicros 没有处理 vsync */
+    public synchronized void stall(long startMs, long durationMicros) {
+        int p = phaseAt(startMs, startMs + durationMicros / 1000).ordinal();
+        stalls[p]++;
+        append(Kind.STALL, p, startMs, durationMicros);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized long janky(Phase phase) {
+        return janky[phase.ordinal()];
+    }
+
+    public synchronized long droppedFrames(Phase phase) {
+        return droppedFrames[phase.ordinal()];
+    }
+
+    public synchronized long stalls(Phase phase) {
+        return stalls[phase.ordinal()];
+    }
+
+    public synchronized long frames(Phase phase) {
+        return frames[phase.ordinal()];
+    }
+
+    /**
+     * 导出为文本：先是各阶段汇总，再按时间顺序列出缓冲区里的记录，
+     * 时间为相对第一条记录的毫秒数。
+     */
+    public synchronized String export() {
+        StringBuilder sb = new StringBuilder(64 * (PHASES + size));
+        sb.append(String.format(Locale.US, "# interval=%.1fms records=%d%n", frameIntervalMicros / 1000.0, size));
+        sb.append("# phase frames janky dropped stalls worst_ms\n");
+        for (Phase phase : PHASE_VALUES) {
+            int p = phase.ordinal();
+            if (frames[p] == 0 && stalls[p] == 0) continue;
+            sb.append(String.format(Locale.US, "%s %d %d %d %d %.1f%n",
+                    phase, frames[p], janky[p], droppedFrames[p], stalls[p], worstMicros[p] / 1000.0));
+        }
+        int first = (next - size + at.length) % at.length;
+        long origin = size == 0 ? 0 : at[first];
+        for (int i = 0; i < size; i++) {
+            int k = (first + i) % at.length;
+            sb.append(String.format(Locale.US, "+%d %s %s %.1fms drop=%d%n",
+                    at[k] - origin, KIND_VALUES[kinds[k]], PHASE_VALUES[phases[k]], micros[k] / 1000.0, dropped[k]));
+        }
+        return sb.toString();
+    }
+
+    /** 各阶段汇总，只含有数据的阶段 */
+    public synchronized JsonObject toJson() {
+        JsonObject root = new JsonObject();
+        for (Phase phase : PHASE_VALUES) {
+            int p = phase.ordinal();
+            if (frames[p] == 0 && stalls[p] == 0) continue;
+            JsonObject o = new JsonObject();
+            o.addProperty("frames", frames[p]);
+            o.addProperty("janky", janky[p]);
+            o.addProperty("dropped", droppedFrames[p]);
+            o.addProperty("stalls", stalls[p]);
+            o.addProperty("worstMs", worstMicros[p] / 1000);
+            root.add(phase.name(), o);
+        }
+        return root;
+    }
+
+    // 调用方持有锁
+    private void append(Kind kind, int p, long startMs, long durationMicros) {
+        // 超出一个周期的部分折算成错过的刷新次数
+        long drop = Math.max(0, (durationMicros - 1) / frameIntervalMicros);
+        droppedFrames[p] += drop;
+        worstMicros[p] = Math.max(worstMicros[p], durationMicros);
+        at[next] = startMs;
+        micros[next] = (int) Math.min(Integer.MAX_VALUE, durationMicros);
+        dropped[next] = (short) Math.min(Short.MAX_VALUE, drop);
+        kinds[next] = (byte) kind.ordinal();
+        phases[next] = (byte) p;
+        next = (next + 1) % at.length;
+        if (size < at.length) size++;
+    }
+
+    // 调用方持有锁
+    private Phase phaseAt(long fromMs, long toMs) {
+        int best = 0;
+        long bestFrom = Long.MIN_VALUE;
+        for (int p = 1; p < PHASES; p++) {
+            if (activeUntil[p] < fromMs || activeFrom[p] > toMs) continue;
+            if (activeFrom[p] >= bestFrom) {
+                best = p;
+                bestFrom = activeFrom[p];
+            }
+        }
+        return PHASE_VALUES[best];
+    }
+}
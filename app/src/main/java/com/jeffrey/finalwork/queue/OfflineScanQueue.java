@@ -0,0 +1,144 @@
+package com.jeffrey.finalwork.queue;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.net.Network;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+
+import com.jeffrey.finalwork.net.CardSide;
+import com.jeffrey.finalwork.net.OcrError;
+import com.jeffrey.finalwork.net.ScanQueue;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+import com.jeffrey.finalwork.security.KeystoreKeys;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 离线识别队列的 Android 外壳：网络恢复时自动清空 {@link ScanQueue}，
+ * 结果在主线程交给当前界面；界面不在时先暂存，attach 后补发。
+ */
+public final class OfflineScanQueue {
+
+    private static final String TAG = "OCR_QUEUE";
+    private static final int MAX_PARALLEL = 2;
+
+    public interface Listener {
+        void onQueuedResult(ScanQueue.Entry entry, TencentOcrClient.OcrResult result);
+        void onQueuedDropped(ScanQueue.Entry entry, OcrError error);
+        void onQueueChanged(int pending);
+    }
+
+    private static volatile OfflineScanQueue instance;
+
+    private final ScanQueue queue;
+    private final Handler ui = new Handler(Looper.getMainLooper());
+    // 文件读写和解密不放主线程
+    private final ExecutorService io = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ocr-queue");
+        t.setDaemon(true);
+        return t;
+    });
+    private final List<Runnable> undelivered = new ArrayList<>();
+    private volatile TencentOcrClient client;
+    private Listener listener;
+
+    private OfflineScanQueue(Context app) throws Exception {
+        queue = new ScanQueue(new File(app.getFilesDir(), "scan_queue"), KeystoreKeys.aesKey("ocr_scan_queue"), io);
+        ConnectivityManager cm = (ConnectivityManager) app.getSystemService(Context.CONNECTIVITY_SERVICE);
+        if (cm != null) {
+            cm.registerDefaultNetworkCallback(new ConnectivityManager.NetworkCallback() {
+                @Override public void onAvailable(Network network) {
+                    drain();
+                }
+            });
+        }
+    }
+
+    /** 取不到 Keystore 密钥时返回 null，调用方退化为直接提示失败 */
+    public static OfflineScanQueue get(Context context) {
+        OfflineScanQueue q = instance;
+        if (q == null) {
+            synchronized (OfflineScanQueue.class) {
+                q = instance;
+                if (q == null) {
+                    try {
+                        instance = q = new OfflineScanQueue(context.getApplicationContext());
+                    } catch (Exception e) {
+                        Log.w(TAG, "离线队列不可用: " + e.getMessage());
+                        return null;
+                    }
+                }
+            }
+        }
+        return q;
+    }
+
+    public void setClient(TencentOcrClient client) {
+        this.client = client;
+    }
+
+    public void attach(Listener l) {
+        listener = l;
+        List<Runnable> pending = new ArrayList<>(undelivered);
+        undelivered.clear();
+        for (Runnable r : pending) r.run();
+        io.execute(() -> notifyChanged(queue.size()));
+    }
+
+    public void detach(Listener l) {
+        if (listener == l) listener = null;
+    }
+
+    public void enqueue(byte[] image, CardSide side, String configJson) {
+        io.execute(() -> {
+            try {
+                queue.enqueue(image, side, configJson);
+                notifyChanged(queue.size());
+            } catch (IOException e) {
+                Log.w(TAG, "入队失败: " + e.getMessage());
+            }
+        });
+    }
+
+    public void drain() {
+        TencentOcrClient c = client;
+        if (c == null) return;
+        io.execute(() -> {
+            if (queue.size() == 0) return;
+            queue.drain(c, MAX_PARALLEL, new ScanQueue.DrainListener() {
+                @Override public void onResult(ScanQueue.Entry entry, TencentOcrClient.OcrResult result) {
+                    deliver(() -> listener.onQueuedResult(entry, result));
+                }
+
+                @Override public void onDropped(ScanQueue.Entry entry, OcrError error) {
+                    deliver(() -> listener.onQueuedDropped(entry, error));
+                }
+
+                @Override public void onDrained(int succeeded, int remaining) {
+                    Log.d(TAG, "queue drained ok=" + succeeded + " remaining=" + remaining);
+                    notifyChanged(remaining);
+                }
+            });
+        });
+    }
+
+    private void deliver(Runnable r) {
+        ui.post(() -> {
+            if (listener != null) r.run();
+            else undelivered.add(r);
+        });
+    }
+
+    private void notifyChanged(int pending) {
+        ui.post(() -> {
+            if (listener != null) listener.onQueueChanged(pending);
+        });
+    }
+}
@@ -0,0 +1,292 @@
+package com.jeffrey.finalwork.scan;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.jeffrey.finalwork.idcard.IdCardValidator;
+import com.jeffrey.finalwork.image.ImagePreparer;
+import com.jeffrey.finalwork.image.PreviewLoader;
+import com.jeffrey.finalwork.image.QualityAssessor;
+import com.jeffrey.finalwork.net.CardSide;
+import com.jeffrey.finalwork.net.OcrError;
+import com.jeffrey.finalwork.net.OcrException;
+import com.jeffrey.finalwork.net.ScanMetrics;
+import com.jeffrey.finalwork.net.ScanTrace;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+import com.jeffrey.finalwork.net.UploadPlanner;
+
+import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * 一次拍照到出结果的完整流程：解码预处理、质量把关、编码签名上传都在专用线程上跑，
+ * 主线程只收到最终结论。新的拍照会取消还没结束的上一次（包括底层 HTTP 请求）。
+ * 人像面结果先在本地自检，号码校验码、出生日期、性别对不上时用更高清的图自动重识别一次。
+ */
+public final class ScanPipeline {
+
+    /** 除 onSuperseded 外都在主线程回调，且每次扫描只回调其中一个 */
+    public interface Listener {
+        void onResult(Scan scan, TencentOcrClient.OcrResult result);
+        void onRejected(Scan scan);
+        /** error 为 {@link OcrException} 时带错误分类，其余是本地图片处理失败 */
+        void onFailed(Scan scan, Throwable error);
+        /** 高清重试后仍没通过本地自检，result 取问题较少的一次；默认按正常结果处理 */
+        default void onInvalid(Scan scan, TencentOcrClient.OcrResult result, IdCardValidator.Report report) {
+            onResult(scan, result);
+        }
+        /** 被新的拍照取代，在后台线程调用，只适合做文件清理 */
+        default void onSuperseded(Scan scan) {}
+    }
+
+    public static final class Scan {
+        public final Uri uri;
+        public final CardSide side;
+        public final String configJson;
+        public final ScanTrace trace;
+        /** 预处理完成后才有值 */
+        public volatile ImagePreparer.PreparedImage prepared;
+        /** 人像面结果的本地自检结论，国徽面为 null */
+        public volatile IdCardValidator.Report validation;
+        /** 是否因自检不过做过一次高清重识别 */
+        public volatile boolean retried;
+
+        private final Listener listener;
+        private volatile boolean canceled;
+        private volatile Future<?> task;
+        private volatile CompletableFuture<TencentOcrClient.OcrResult> request;
+
+        Scan(Uri uri, CardSide side, String configJson, ScanTrace trace, Listener listener) {
+            this.uri = uri;
+            this.side = side;
+            this.configJson = configJson;
+            this.trace = trace;
+            this.listener = listener;
+        }
+
+        public boolean isCanceled() {
+            return canceled;
+        }
+    }
+
+    private final ContentResolver resolver;
+    private final Supplier<TencentOcrClient> client;
+    private final Handler ui = new Handler(Looper.getMainLooper());
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "scan-pipeline");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile ImagePreparer.Config config = ImagePreparer.Config.defaults();
+    private volatile PreviewLoader previews;
+    private volatile UploadPlanner planner;
+    private Scan current;
+
+    /** client 在后台线程上获取，可以是延迟创建的 */
+    public ScanPipeline(ContentResolver resolver, Supplier<TencentOcrClient> client) {
+        this.resolver = resolver;
+        this.client = client;
+    }
+
+    public void setConfig(ImagePreparer.Config config) {
+        this.config = config;
+    }
+
+    /** 设置后，每张图的分辨率和压缩质量按最近的上行带宽调整，弱网下控制上传耗时 */
+    public void setUploadPlanner(UploadPlanner planner) {
+        this.planner = planner;
+    }
+
+    /** 设置后，预处理的那次解码顺便生成预览图，原图只读一遍 */
+    public void setPreviewLoader(PreviewLoader previews) {
+        this.previews = previews;
+    }
+
+    /** 在主线程调用 */
+    public Scan submit(Uri uri, CardSide side, String configJson, Listener listener) {
+        cancel(true);
+        Scan scan = new Scan(uri, side, configJson, ScanMetrics.global().newTrace(), listener);
+        current = scan;
+        scan.task = executor.submit(() -> run(scan, listener));
+        return scan;
+    }
+
+    /** 取消当前扫描（页面销毁等），不会再有回调 */
+    public void cancel() {
+        cancel(false);
+    }
+
+    /** 取消当前扫描并结束流水线线程，页面销毁时调用；之后不能再 submit */
+    public void shutdown() {
+        cancel(false);
+        executor.shutdownNow();
+    }
+
+    // 被取代的扫描用它自己的 listener 清理，新扫描的文件不受影响
+    private void cancel(boolean superseded) {
+        Scan old = current;
+        current = null;
+        if (old == null || old.canceled) return;
+        old.canceled = true;
+        Future<?> task = old.task;
+        if (task != null) task.cancel(false);
+        CompletableFuture<TencentOcrClient.OcrResult> request = old.request;
+        if (request != null) request.cancel(true);
+        if (superseded) executor.execute(() -> old.listener.onSuperseded(old));
+    }
+
+    private void run(Scan scan, Listener listener) {
+        if (scan.canceled) return;
+        TencentOcrClient ocr;
+        ImagePreparer.PreparedImage prepared;
+        try {
+            // 一般早已就绪；冷启动后立刻拍照时在这里等客户端创建完
+            ocr = client.get();
+            ImagePreparer.Config cfg = config;
+            UploadPlanner p = planner;
+            if (p != null) cfg = cfg.withTarget(p.plan(ocr.uplink()));
+            prepared = prepare(scan, cfg, true);
+        } catch (Exception e) {
+            // 没解码出来就没有预览可给，让预览自己去读原图
+            PreviewLoader loader = previews;
+            if (loader != null) loader.publishFailed(scan.uri);
+            deliver(scan, () -> listener.onFailed(scan, e));
+            return;
+        }
+        scan.prepared = prepared;
+        if (scan.canceled) return;
+
+        // 本地质量把关：明显不合格的照片不花一次识别调用
+        QualityAssessor.Report quality = prepared.qualityReport;
+        if (quality != null && quality.verdict == QualityAssessor.Verdict.REJECT) {
+            deliver(scan, () -> listener.onRejected(scan));
+            return;
+        }
+
+        upload(scan, ocr, prepared.jpeg).whenComplete((result, error) -> {
+            if (error != null) {
+                fail(scan, listener, error);
+                return;
+            }
+            IdCardValidator.Report report = validate(scan, result);
+            if (report.ok()) {
+                deliver(scan, () -> listener.onResult(scan, result));
+                return;
+            }
+            // 回调在网络线程上，重新解码放回流水线线程
+            if (scan.canceled) return;
+            try {
+                executor.execute(() -> retry(scan, ocr, result, report, listener));
+            } catch (RejectedExecutionException e) {
+                // 流水线已关闭，页面不在了
+            }
+        });
+    }
+
+    // 同一张原图按高清规格重新解码上传；重试本身出错时退回第一次的结果
+    private void retry(Scan scan, TencentOcrClient ocr, TencentOcrClient.OcrResult first,
+                       IdCardValidator.Report firstReport, Listener listener) {
+        if (scan.canceled) return;
+        scan.retried = true;
+        ImagePreparer.PreparedImage hd;
+        try {
+            hd = prepare(scan, config.highFidelity(), false);
+        } catch (Exception e) {
+            deliver(scan, () -> listener.onInvalid(scan, first, firstReport));
+            return;
+        }
+        if (scan.canceled) return;
+        // 高清图反而过不了质量把关，就不再上传
+        if (hd.jpeg.length == 0) {
+            deliver(scan, () -> listener.onInvalid(scan, first, firstReport));
+            return;
+        }
+        upload(scan, ocr, hd.jpeg).whenComplete((result, error) -> {
+            if (error != null) {
+                if (isCanceled(cause(error))) return;
+                scan.validation = firstReport;
+                deliver(scan, () -> listener.onInvalid(scan, first, firstReport));
+                return;
+            }
+            IdCardValidator.Report report = validate(scan, result);
+            if (report.ok()) {
+                deliver(scan, () -> listener.onResult(scan, result));
+            } else if (report.issues.size() <= firstReport.issues.size()) {
+                deliver(scan, () -> listener.onInvalid(scan, result, report));
+            } else {
+                scan.validation = firstReport;
+                deliver(scan, () -> listener.onInvalid(scan, first, firstReport));
+            }
+        });
+    }
+
+    private ImagePreparer.PreparedImage prepare(Scan scan, ImagePreparer.Config cfg, boolean publishPreview)
+            throws IOException {
+        long t0 = System.nanoTime();
+        ImagePreparer.PreparedImage prepared;
+        Bitmap bitmap = ImagePreparer.decodeOriented(resolver, scan.uri, cfg.maxLongEdge);
+        try {
+            PreviewLoader loader = previews;
+            if (publishPreview && loader != null) loader.publish(scan.uri, bitmap);
+            prepared = ImagePreparer.prepare(bitmap, cfg);
+        } finally {
+            bitmap.recycle();
+        }
+        scan.trace.since(ScanMetrics.Stage.PREPARE, t0, prepared.jpeg.length);
+        return prepared;
+    }
+
+    private CompletableFuture<TencentOcrClient.OcrResult> upload(Scan scan, TencentOcrClient ocr, byte[] jpeg) {
+        CompletableFuture<TencentOcrClient.OcrResult> request =
+                ocr.idCardOcrAsync(jpeg, scan.side, scan.configJson, scan.trace);
+        scan.request = request;
+        // 赋值前被取消的话这里补上
+        if (scan.canceled) request.cancel(true);
+        return request;
+    }
+
+    private static IdCardValidator.Report validate(Scan scan, TencentOcrClient.OcrResult result) {
+        // 国徽面没有可交叉核对的字段
+        if (scan.side != CardSide.FRONT) return IdCardValidator.Report.OK;
+        IdCardValidator.Report report = IdCardValidator.validate(result);
+        scan.validation = report;
+        return report;
+    }
+
+    private void fail(Scan scan, Listener listener, Throwable error) {
+        Throwable cause = cause(error);
+        if (isCanceled(cause)) return;
+        deliver(scan, () -> listener.onFailed(scan, cause));
+    }
+
+    private static Throwable cause(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static boolean isCanceled(Throwable cause) {
+        if (cause instanceof CancellationException) return true;
+        return cause instanceof OcrException && OcrError.CANCELED.equals(((OcrException) cause).error.code);
+    }
+
+    // 切到主线程时再确认一次，被取代的扫描结果直接丢弃
+    private void deliver(Scan scan, Runnable callback) {
+        final long posted = System.nanoTime();
+        ui.post(() -> {
+            if (scan.canceled || current != scan) return;
+            current = null;
+            scan.trace.since(ScanMetrics.Stage.UI_DISPATCH, posted, 0);
+            scan.trace.finish();
+            callback.run();
+        });
+    }
+}
@@ -0,0 +1,56 @@
+package com.jeffrey.finalwork.security;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+/**
+ * Android Keystore 中的不可导出密钥，用于本地缓存/队列等落盘数据加密。
+ */
+public final class KeystoreKeys {
+
+    private static final String PROVIDER = "AndroidKeyStore";
+
+    private KeystoreKeys() {}
+
+    public static synchronized SecretKey aesKey(String alias) throws GeneralSecurityException {
+        SecretKey existing = existing(alias);
+        if (existing != null) return existing;
+
+        KeyGenerator gen = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, PROVIDER);
+        gen.init(new KeyGenParameterSpec.Builder(alias,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(256)
+                .build());
+        return gen.generateKey();
+    }
+
+    /** HMAC-SHA256 密钥，用于对敏感字段做不可逆的检索索引 */
+    public static synchronized SecretKey hmacKey(String alias) throws GeneralSecurityException {
+        SecretKey existing = existing(alias);
+        if (existing != null) return existing;
+
+        KeyGenerator gen = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_HMAC_SHA256, PROVIDER);
+        gen.init(new KeyGenParameterSpec.Builder(alias, KeyProperties.PURPOSE_SIGN).build());
+        return gen.generateKey();
+    }
+
+    private static SecretKey existing(String alias) throws GeneralSecurityException {
+        try {
+            KeyStore ks = KeyStore.getInstance(PROVIDER);
+            ks.load(null);
+            KeyStore.Entry entry = ks.getEntry(alias, null);
+            return entry instanceof KeyStore.SecretKeyEntry ? ((KeyStore.SecretKeyEntry) entry).getSecretKey() : null;
+        } catch (IOException e) {
+            throw new GeneralSecurityException(e);
+        }
+    }
+}
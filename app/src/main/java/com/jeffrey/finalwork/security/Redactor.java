@@ -0,0 +1,316 @@
+package com.jeffrey.finalwork.security;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+
+/**
+ * 日志 / 响应文本脱敏：单遍逐字符扫描，不用正则，不生成中间字符串。
+ * <ul>
+ *   <li>连续 6 位及以上数字替换为 ******，末尾紧跟的 X 校验位一并吞掉（身份证号）</li>
+ *   <li>JSON 中 "Name" / "Address" 字段的值按界面规则打码</li>
+ * </ul>
+ * 扫描状态可以跨分块保留，所以同一套逻辑既能处理 CharSequence 也能处理 Reader。
+ */
+public final class Redactor {
+
+    public static final int MIN_DIGIT_RUN = 6;
+    private static final String DIGIT_MASK = "******";
+
+    private static final ThreadLocal<Redactor> LOCAL = new ThreadLocal<Redactor>() {
+        @Override protected Redactor initialValue() {
+            return new Redactor();
+        }
+    };
+
+    private static final int FIELD_NONE = 0;
+    private static final int FIELD_NAME = 1;
+    private static final int FIELD_ADDRESS = 2;
+
+    // 地址保留前 6 个字，多缓存一个用于判断是否超长
+    private static final int VALUE_HEAD = 7;
+
+    private StringBuilder out;
+
+    // 数字串
+    private final char[] digits = new char[MIN_DIGIT_RUN];
+    private int digitCount;
+    private boolean digitMasked;
+    private boolean afterMaskedDigits;
+
+    // JSON 字符串 / 键
+    private boolean inString;
+    private boolean escape;
+    private final char[] key = new char[8];
+    private int keyLen;
+    private int candidateField;
+    private int pendingField;
+    private int valueField;
+    private final char[] valueHead = new char[VALUE_HEAD];
+    private int valueLen;
+
+    // 复用的输出缓冲
+    private final StringBuilder scratch = new StringBuilder(256);
+
+    private Redactor() {}
+
+    // ========= 整段文本 =========
+
+    /** 脱敏结果追加到 out 末尾 */
+    public static void redact(CharSequence in, StringBuilder out) {
+        if (in == null) return;
+        Redactor r = LOCAL.get();
+        r.reset(out);
+        for (int i = 0, n = in.length(); i < n; i++) r.feed(in.charAt(i));
+        r.flush();
+        r.out = null;
+    }
+
+    public static String redact(CharSequence in) {
+        if (in == null) return "";
+        StringBuilder sb = LOCAL.get().scratch;
+        sb.setLength(0);
+        redact(in, sb);
+        String s = sb.toString();
+        trim(sb);
+        return s;
+    }
+
+    /** 流式脱敏，适合直接从响应体读到日志文件 */
+    public static void redact(Reader in, Writer out) throws IOException {
+        Redactor r = LOCAL.get();
+        StringBuilder sb = r.scratch;
+        sb.setLength(0);
+        r.reset(sb);
+        char[] buf = new char[2048];
+        try {
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                for (int i = 0; i < n; i++) r.feed(buf[i]);
+                if (sb.length() >= buf.length) {
+                    out.append(sb);
+                    sb.setLength(0);
+                }
+            }
+            r.flush();
+            out.append(sb);
+        } finally {
+            r.out = null;
+            sb.setLength(0);
+            trim(sb);
+        }
+    }
+
+    // ========= 界面打码规则 =========
+
+    /** 张三 → 张*，单字 → * */
+    public static void appendMaskedName(CharSequence name, StringBuilder out) {
+        if (name == null || name.length() == 0) return;
+        if (name.length() == 1) {
+            out.append('*');
+            return;
+        }
+        out.append(name.charAt(0));
+        for (int i = 1; i < name.length(); i++) out.append('*');
+    }
+
+    /** 保留前 6 位和后 4 位，过短直接 *** */
+    public static void appendMaskedId(CharSequence id, StringBuilder out) {
+        if (id == null) return;
+        int start = trimStart(id);
+        int end = trimEnd(id, start);
+        if (end - start < 8) {
+            out.append("***");
+            return;
+        }
+        out.append(id, start, start + 6).append("******").append(id, end - 4, end);
+    }
+
+    /** 保留前 6 个字，不足 6 个字只留首字 */
+    public static void appendMaskedAddress(CharSequence addr, StringBuilder out) {
+        if (addr == null) return;
+        int start = trimStart(addr);
+        int end = trimEnd(addr, start);
+        int len = end - start;
+        if (len == 0) return;
+        if (len <= 6) out.append(addr.charAt(start)).append("***");
+        else out.append(addr, start, start + 6).append("***");
+    }
+
+    public static String maskName(CharSequence name) {
+        StringBuilder sb = LOCAL.get().scratch;
+        sb.setLength(0);
+        appendMaskedName(name, sb);
+        return sb.toString();
+    }
+
+    public static String maskId(CharSequence id) {
+        StringBuilder sb = LOCAL.get().scratch;
+        sb.setLength(0);
+        appendMaskedId(id, sb);
+        return sb.toString();
+    }
+
+    public static String maskAddress(CharSequence addr) {
+        StringBuilder sb = LOCAL.get().scratch;
+        sb.setLength(0);
+        appendMaskedAddress(addr, sb);
+        return sb.toString();
+    }
+
+    // ========= 扫描状态机 =========
+
+    private void reset(StringBuilder out) {
+        this.out = out;
+        digitCount = 0;
+        digitMasked = false;
+        afterMaskedDigits = false;
+        inString = false;
+        escape = false;
+        keyLen = 0;
+        candidateField = FIELD_NONE;
+        pendingField = FIELD_NONE;
+        valueField = FIELD_NONE;
+        valueLen = 0;
+    }
+
+    private void feed(char c) {
+        if (valueField != FIELD_NONE) {
+            feedValue(c);
+            return;
+        }
+
+        // 数字串不论在字符串内外都处理
+        if (c >= '0' && c <= '9') {
+            if (digitMasked) return;
+            if (digitCount < MIN_DIGIT_RUN) digits[digitCount] = c;
+            if (++digitCount >= MIN_DIGIT_RUN) digitMasked = true;
+            if (inString) keyLen = -1;
+            return;
+        }
+        if (digitCount > 0) endDigits();
+        if (afterMaskedDigits) {
+            afterMaskedDigits = false;
+            if (c == 'X' || c == 'x') return;
+        }
+
+        if (inString) {
+            out.append(c);
+            if (escape) {
+                escape = false;
+                keyLen = -1;
+            } else if (c == '\\') {
+                escape = true;
+            } else if (c == '"') {
+                inString = false;
+                candidateField = keyLen >= 0 ? fieldOf(keyLen) : FIELD_NONE;
+            } else if (keyLen >= 0) {
+                keyLen = keyLen < key.length ? keyLen + 1 : -1;
+                if (keyLen > 0) key[keyLen - 1] = c;
+            }
+            return;
+        }
+
+        out.append(c);
+        if (c == '"') {
+            if (pendingField != FIELD_NONE) {
+                valueField = pendingField;
+                pendingField = FIELD_NONE;
+                valueLen = 0;
+            } else {
+                inString = true;
+                keyLen = 0;
+            }
+            candidateField = FIELD_NONE;
+        } else if (c == ':') {
+            pendingField = candidateField;
+            candidateField = FIELD_NONE;
+        } else if (!isWhitespace(c)) {
+            candidateField = FIELD_NONE;
+            pendingField = FIELD_NONE;
+        }
+    }
+
+    // 敏感字段的值：只缓存开头几个字，结束时按规则输出
+    private void feedValue(char c) {
+        if (escape) {
+            escape = false;
+        } else if (c == '\\') {
+            escape = true;
+        } else if (c == '"') {
+            emitMaskedValue();
+            out.append('"');
+            valueField = FIELD_NONE;
+            return;
+        }
+        if (valueLen < VALUE_HEAD) valueHead[valueLen] = c;
+        valueLen++;
+    }
+
+    private void emitMaskedValue() {
+        if (valueLen == 0) return;
+        if (valueField == FIELD_NAME) {
+            if (valueLen == 1) {
+                out.append('*');
+                return;
+            }
+            out.append(valueHead[0]);
+            for (int i = 1; i < valueLen; i++) out.append('*');
+        } else if (valueLen <= 6) {
+            out.append(valueHead[0]).append("***");
+        } else {
+            out.append(valueHead, 0, 6).append("***");
+        }
+    }
+
+    private void endDigits() {
+        if (digitMasked) {
+            out.append(DIGIT_MASK);
+            afterMaskedDigits = true;
+        } else {
+            out.append(digits, 0, digitCount);
+        }
+        digitCount = 0;
+        digitMasked = false;
+    }
+
+    private void flush() {
+        if (digitCount > 0) endDigits();
+        // 被截断的敏感值也不能原样漏出去
+        if (valueField != FIELD_NONE) {
+            emitMaskedValue();
+            valueField = FIELD_NONE;
+        }
+    }
+
+    private int fieldOf(int len) {
+        if (len == 4 && key[0] == 'N' && key[1] == 'a' && key[2] == 'm' && key[3] == 'e') return FIELD_NAME;
+        if (len == 7 && key[0] == 'A' && key[1] == 'd' && key[2] == 'd' && key[3] == 'r'
+                && key[4] == 'e' && key[5] == 's' && key[6] == 's') return FIELD_ADDRESS;
+        return FIELD_NONE;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static int trimStart(CharSequence s) {
+        int i = 0;
+        while (i < s.length() && s.charAt(i) <= ' ') i++;
+        return i;
+    }
+
+    private static int trimEnd(CharSequence s, int start) {
+        int j = s.length();
+        while (j > start && s.charAt(j - 1) <= ' ') j--;
+        return j;
+    }
+
+    // 偶尔处理过超大响应后，不让线程一直攥着大缓冲
+    private static void trim(StringBuilder sb) {
+        if (sb.capacity() > 64 * 1024) {
+            sb.setLength(0);
+            sb.trimToSize();
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.jeffrey.finalwork.startup;
+
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 识别客户端的延迟创建：OkHttp、签名器、结果缓存等在后台线程构建，
+ * 一般在首帧之后调 {@link #warmUp()}，用户拍完照时已经就绪。
+ * 还没就绪时 {@link #get()} 会阻塞等待，只能在后台线程调用。
+ */
+public final class OcrClientProvider implements Supplier<TencentOcrClient> {
+
+    private final Supplier<TencentOcrClient> factory;
+    private final Executor executor;
+    private final StartupTrace trace;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final CompletableFuture<TencentOcrClient> ready = new CompletableFuture<>();
+
+    /** trace 可为 null */
+    public OcrClientProvider(Supplier<TencentOcrClient> factory, Executor executor, StartupTrace trace) {
+        this.factory = factory;
+        this.executor = executor;
+        this.trace = trace;
+    }
+
+    /** 开始后台创建，重复调用无副作用 */
+    public void warmUp() {
+        if (!started.compareAndSet(false, true)) return;
+        executor.execute(() -> {
+            try {
+                TencentOcrClient client = factory.get();
+                if (trace != null) trace.mark(StartupTrace.CLIENT_READY);
+                ready.complete(client);
+            } catch (Throwable t) {
+                ready.completeExceptionally(t);
+            }
+        });
+    }
+
+    public boolean isReady() {
+        return ready.isDone() && !ready.isCompletedExceptionally();
+    }
+
+    /** 没开始创建的话顺带开始；创建失败时抛出原始异常 */
+    @Override public TencentOcrClient get() {
+        warmUp();
+        try {
+            return ready.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    /** 就绪后执行；已就绪时在调用线程立即执行，否则在创建线程上执行。创建失败不会执行 */
+    public void whenReady(Consumer<TencentOcrClient> action) {
+        ready.thenAccept(action);
+    }
+}
@@ -0,0 +1,72 @@
+package com.jeffrey.finalwork.startup;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * 冷启动打点：各阶段相对进程启动的耗时，每个点只记第一次。
+ * 首帧和识别客户端都就绪时自动记 {@link #INTERACTIVE}，即用户可以拍照识别的时刻。
+ */
+public final class StartupTrace {
+
+    public static final String ACTIVITY_CREATED = "activity_created";
+    public static final String FIRST_FRAME = "first_frame";
+    public static final String CLIENT_READY = "client_ready";
+    public static final String INTERACTIVE = "interactive";
+
+    public interface Listener {
+        /** 在打点的线程上回调 */
+        void onMark(String name, long sinceStartMs);
+    }
+
+    private final long originMs;
+    private final LongSupplier clockMs;
+    private final Map<String, Long> marks = new LinkedHashMap<>();
+    private volatile Listener listener;
+
+    /** originMs 与 clockMs 需同一时间基准，Android 上用进程启动的 elapsedRealtime */
+    public StartupTrace(long originMs, LongSupplier clockMs) {
+        this.originMs = originMs;
+        this.clockMs = clockMs;
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    /** 返回是否是第一次记录该点 */
+    public boolean mark(String name) {
+        long since = clockMs.getAsLong() - originMs;
+        boolean interactive;
+        synchronized (marks) {
+            if (marks.containsKey(name)) return false;
+            marks.put(name, since);
+            interactive = !marks.containsKey(INTERACTIVE)
+                    && marks.containsKey(FIRST_FRAME) && marks.containsKey(CLIENT_READY);
+            if (interactive) marks.put(INTERACTIVE, since);
+        }
+        Listener l = listener;
+        if (l != null) {
+            l.onMark(name, since);
+            if (interactive) l.onMark(INTERACTIVE, since);
+        }
+        return true;
+    }
+
+    /** 某个点相对进程启动的毫秒数，没记过返回 -1 */
+    public long elapsedMs(String name) {
+        synchronized (marks) {
+            Long v = marks.get(name);
+            return v == null ? -1 : v;
+        }
+    }
+
+    /** 按记录顺序的快照 */
+    public Map<String, Long> marks() {
+        synchronized (marks) {
+            return Collections.unmodifiableMap(new LinkedHashMap<>(marks));
+        }
+    }
+}
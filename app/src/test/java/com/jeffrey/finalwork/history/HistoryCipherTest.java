@@ -0,0 +1,70 @@
+package com.jeffrey.finalwork.history;
+
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.*;
+
+public class HistoryCipherTest {
+
+    private static SecretKey key(String algorithm) throws Exception {
+        return KeyGenerator.getInstance(algorithm).generateKey();
+    }
+
+    private static TencentOcrClient.OcrResult sample() {
+        TencentOcrClient.OcrResult r = new TencentOcrClient.OcrResult();
+        r.name = "张三";
+        r.idNumber = "11010119900101123X";
+        r.address = "北京市东城区景山前街4号";
+        r.rawJson = "{\"Response\":{}}";
+        return r;
+    }
+
+    @Test
+    public void indexIsStableAcrossFormattingButKeyed() throws Exception {
+        SecretKey hmac = key("HmacSHA256");
+        HistoryCipher cipher = new HistoryCipher(key("AES"), hmac);
+
+        byte[] a = cipher.index("11010119900101123X");
+        assertEquals(HistoryCipher.INDEX_BYTES, a.length);
+        assertArrayEquals(a, cipher.index(" 110101 19900101123x "));
+        assertFalse(java.util.Arrays.equals(a, cipher.index("110101199001011234")));
+        // 换一把索引密钥，同一号码的索引完全不同，库被拷走也没法拿号码去撞
+        assertFalse(java.util.Arrays.equals(a, new HistoryCipher(key("AES"), key("HmacSHA256")).index("11010119900101123X")));
+
+        assertNull(cipher.index(""));
+        assertNull(cipher.index(null));
+    }
+
+    @Test
+    public void sealedPayloadRoundTripsWithoutPlaintextOrRawJson() throws Exception {
+        HistoryCipher cipher = new HistoryCipher(key("AES"), key("HmacSHA256"));
+        TencentOcrClient.OcrResult r = sample();
+
+        byte[] sealed = cipher.seal(r);
+        String asText = new String(sealed, StandardCharsets.ISO_8859_1);
+        assertFalse(asText.contains("11010119900101123X"));
+        // 调用方手里的结果不受影响
+        assertEquals("{\"Response\":{}}", r.rawJson);
+
+        TencentOcrClient.OcrResult back = cipher.open(sealed);
+        assertEquals(r.name, back.name);
+        assertEquals(r.idNumber, back.idNumber);
+        assertEquals(r.address, back.address);
+        assertEquals("", back.rawJson);
+    }
+
+    @Test(expected = java.security.GeneralSecurityException.class)
+    public void tamperedPayloadIsRejected() throws Exception {
+        HistoryCipher cipher = new HistoryCipher(key("AES"), key("HmacSHA256"));
+        byte[] sealed = cipher.seal(sample());
+        sealed[sealed.length - 1] ^= 1;
+        cipher.open(sealed);
+    }
+}
@@ -0,0 +1,87 @@
+package com.jeffrey.finalwork.image;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class CaptureStoreTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static void write(File f, int bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(f)) {
+            out.write(new byte[bytes]);
+        }
+    }
+
+    @Test
+    public void slotsAreRecycledOldestFirst() throws Exception {
+        CaptureStore store = new CaptureStore(tmp.newFolder("captures"), 2, Long.MAX_VALUE, Long.MAX_VALUE);
+        File a = store.acquire();
+        write(a, 10);
+        Thread.sleep(2);
+        File b = store.acquire();
+        write(b, 10);
+        assertNotEquals(a, b);
+
+        // 两个槽位都占着，第三次拍照回收最早的 a
+        File c = store.acquire();
+        assertEquals(a, c);
+        assertFalse(c.exists());
+
+        store.release(b);
+        assertFalse(b.exists());
+        assertEquals(b, store.acquire());
+    }
+
+    @Test
+    public void trimEvictsIdleFilesOverCaps() throws Exception {
+        File dir = tmp.newFolder("captures");
+        CaptureStore store = new CaptureStore(dir, 4, 250, 60_000);
+        // 上次进程遗留、没有占用标记的文件
+        File stale = new File(dir, "capture_2.jpg");
+        write(stale, 100);
+        stale.setLastModified(System.currentTimeMillis() - 10_000);
+        File expired = new File(dir, "capture_3.jpg");
+        write(expired, 10);
+        expired.setLastModified(System.currentTimeMillis() - 120_000);
+
+        File a = store.acquire();
+        write(a, 100);
+        File b = store.acquire();
+        write(b, 100);
+        store.trim();
+
+        // 在用的文件超限也不删，空闲的按 LRU 和存活时间清掉
+        assertTrue(a.exists() && b.exists());
+        assertFalse(stale.exists());
+        assertFalse(expired.exists());
+    }
+
+    @Test
+    public void sweepRemovesLegacyTempFiles() throws Exception {
+        File cache = tmp.newFolder("cache");
+        File legacy = new File(cache, "idcard_123.jpg");
+        write(legacy, 10);
+        File other = new File(cache, "keep.bin");
+        write(other, 10);
+
+        new CaptureStore(new File(cache, "captures"), 3, 1024, 60_000).sweep(cache);
+        assertFalse(legacy.exists());
+        assertTrue(other.exists());
+    }
+
+    @Test
+    public void secureDeleteZeroesBeforeDelete() throws Exception {
+        File f = tmp.newFile("x.jpg");
+        write(f, 20_000);
+        assertTrue(CaptureStore.secureDelete(f));
+        assertFalse(f.exists());
+    }
+}
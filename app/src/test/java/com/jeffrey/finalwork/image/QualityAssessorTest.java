@@ -0,0 +1,66 @@
+package com.jeffrey.finalwork.image;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class QualityAssessorTest {
+
+    private static final int W = 320;
+    private static final int H = 200;
+
+    // 模拟证件上的文字：中灰底上的细黑线
+    private static byte[] sharpCard() {
+        byte[] luma = new byte[W * H];
+        for (int y = 0; y < H; y++) {
+            for (int x = 0; x < W; x++) {
+                boolean stroke = (x % 8 == 0) || (y % 12 == 0);
+                luma[y * W + x] = (byte) (stroke ? 40 : 170);
+            }
+        }
+        return luma;
+    }
+
+    @Test
+    public void sharpWellExposed_isOk() {
+        QualityAssessor.Report r = QualityAssessor.assess(sharpCard(), W, H, QualityAssessor.Thresholds.defaults());
+        assertEquals(QualityAssessor.Verdict.OK, r.verdict);
+        assertTrue(r.issues.isEmpty());
+    }
+
+    @Test
+    public void flatImage_isRejectedAsBlurry() {
+        byte[] luma = new byte[W * H];
+        Arrays.fill(luma, (byte) 150);
+        QualityAssessor.Report r = QualityAssessor.assess(luma, W, H, QualityAssessor.Thresholds.defaults());
+        assertEquals(QualityAssessor.Verdict.REJECT, r.verdict);
+        assertEquals(0, r.sharpness, 1e-9);
+        assertTrue(r.issues.contains("图片模糊"));
+    }
+
+    @Test
+    public void darkImage_isRejected() {
+        byte[] luma = sharpCard();
+        for (int i = 0; i < luma.length; i++) luma[i] = (byte) ((luma[i] & 0xff) / 8);
+        QualityAssessor.Report r = QualityAssessor.assess(luma, W, H, QualityAssessor.Thresholds.defaults());
+        assertEquals(QualityAssessor.Verdict.REJECT, r.verdict);
+        assertTrue(r.issues.contains("光线太暗"));
+    }
+
+    @Test
+    public void glarePatch_isDetected() {
+        byte[] small = sharpCard();
+        for (int y = 20; y < 45; y++) Arrays.fill(small, y * W + 20, y * W + 80, (byte) 255);
+        QualityAssessor.Report warn = QualityAssessor.assess(small, W, H, QualityAssessor.Thresholds.defaults());
+        assertEquals(QualityAssessor.Verdict.WARN, warn.verdict);
+        assertTrue(warn.issues.contains("有反光"));
+
+        byte[] big = sharpCard();
+        for (int y = 20; y < 120; y++) Arrays.fill(big, y * W + 20, y * W + 200, (byte) 255);
+        QualityAssessor.Report reject = QualityAssessor.assess(big, W, H, QualityAssessor.Thresholds.defaults());
+        assertEquals(QualityAssessor.Verdict.REJECT, reject.verdict);
+        assertTrue(reject.glareRatio > 0.08);
+    }
+}
@@ -0,0 +1,79 @@
+package com.jeffrey.finalwork.perf;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class JankLogTest {
+
+    private static final long FRAME_US = 16_667;
+
+    @Test
+    public void framesAreAttributedToTheLatestActivePhase() {
+        AtomicLong now = new AtomicLong(1_000);
+        JankLog log = new JankLog(16, now::get);
+        assertFalse(log.anyActive());
+
+        log.frame(990, FRAME_US);
+        assertEquals(1, log.frames(JankLog.Phase.IDLE));
+
+        log.begin(JankLog.Phase.CAPTURE_RESULT);
+        now.set(1_005);
+        log.begin(JankLog.Phase.OCR_DISPATCH);
+        now.set(1_020);
+        log.end(JankLog.Phase.OCR_DISPATCH, 100);
+        log.end(JankLog.Phase.CAPTURE_RESULT, 100);
+        assertTrue(log.anyActive());
+
+        // 回调里的改动在下一帧才绘制，仍算在最近开始的阶段上
+        log.frame(1_030, 3 * FRAME_US + 1);
+        assertEquals(1, log.janky(JankLog.Phase.OCR_DISPATCH));
+        assertEquals(3, log.droppedFrames(JankLog.Phase.OCR_DISPATCH));
+        assertEquals(0, log.janky(JankLog.Phase.CAPTURE_RESULT));
+
+        // 延续期过后回到空闲
+        now.set(1_200);
+        assertFalse(log.anyActive());
+        log.frame(1_200, 2 * FRAME_US);
+        assertEquals(1, log.janky(JankLog.Phase.IDLE));
+    }
+
+    @Test
+    public void pulseCoversAnimationWindowOnly() {
+        AtomicLong now = new AtomicLong(0);
+        JankLog log = new JankLog(16, now::get);
+        log.pulse(JankLog.Phase.PREVIEW_ANIMATION, 280);
+
+        log.frame(100, FRAME_US);
+        log.stall(200, 120_000);
+        log.frame(400, FRAME_US);
+
+        assertEquals(1, log.frames(JankLog.Phase.PREVIEW_ANIMATION));
+        assertEquals(1, log.stalls(JankLog.Phase.PREVIEW_ANIMATION));
+        assertEquals(7, log.droppedFrames(JankLog.Phase.PREVIEW_ANIMATION));
+        assertEquals(1, log.frames(JankLog.Phase.IDLE));
+        // 顺畅的帧只计数，不占缓冲
+        assertEquals(1, log.size());
+    }
+
+    @Test
+    public void ringKeepsNewestRecordsAndTotals() {
+        AtomicLong now = new AtomicLong(0);
+        JankLog log = new JankLog(4, now::get);
+        log.setFrameIntervalMicros(8_333);
+        for (int i = 0; i < 10; i++) log.frame(i * 100, (20 + i) * 1_000);
+
+        assertEquals(4, log.size());
+        assertEquals(10, log.janky(JankLog.Phase.IDLE));
+
+        String export = log.export();
+        assertTrue(export.startsWith("# interval=8.3ms records=4\n"));
+        assertTrue(export.contains("IDLE 10 10 "));
+        // 只剩最后四条，时间相对第一条
+        assertTrue(export.contains("+0 FRAME IDLE 26.0ms drop=3\n"));
+        assertTrue(export.endsWith("+300 FRAME IDLE 29.0ms drop=3\n"));
+        assertEquals(29, log.toJson().getAsJsonObject("IDLE").get("worstMs").getAsLong());
+    }
+}
@@ -0,0 +1,73 @@
+package com.jeffrey.finalwork.scan;
+
+import com.jeffrey.finalwork.net.CardSide;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class ScanPipelineTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    // 和 MainActivity 一样：每次拍照一个 listener，被取代时删自己那张原图
+    private static final class CaptureListener implements ScanPipeline.Listener {
+        final File capture;
+
+        CaptureListener(File capture) {
+            this.capture = capture;
+        }
+
+        @Override public void onResult(ScanPipeline.Scan scan, TencentOcrClient.OcrResult result) {}
+        @Override public void onRejected(ScanPipeline.Scan scan) {}
+        @Override public void onFailed(ScanPipeline.Scan scan, Throwable error) {}
+
+        @Override public void onSuperseded(ScanPipeline.Scan scan) {
+            assertTrue(capture.delete());
+        }
+    }
+
+    @Test
+    public void retakeReleasesOnlyTheSupersededCapture() throws Exception {
+        File first = tmp.newFile("first.jpg");
+        File second = tmp.newFile("second.jpg");
+        CountDownLatch firstStarted = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        CountDownLatch bothRan = new CountDownLatch(2);
+        AtomicInteger gets = new AtomicInteger();
+        // 第一次扫描卡在取客户端上，第二次拍照在它还没结束时提交
+        ScanPipeline pipeline = new ScanPipeline(null, () -> {
+            try {
+                if (gets.incrementAndGet() == 1) {
+                    firstStarted.countDown();
+                    proceed.await();
+                }
+                throw new IllegalStateException("no client");
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                bothRan.countDown();
+            }
+        });
+        try {
+            pipeline.submit(null, CardSide.FRONT, "{}", new CaptureListener(first));
+            assertTrue(firstStarted.await(5, TimeUnit.SECONDS));
+            pipeline.submit(null, CardSide.FRONT, "{}", new CaptureListener(second));
+            proceed.countDown();
+            assertTrue(bothRan.await(5, TimeUnit.SECONDS));
+
+            assertFalse(first.exists());
+            assertTrue(second.exists());
+        } finally {
+            pipeline.shutdown();
+        }
+    }
+}
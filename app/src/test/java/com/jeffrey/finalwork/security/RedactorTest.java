@@ -0,0 +1,67 @@
+package com.jeffrey.finalwork.security;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class RedactorTest {
+
+    private static final String RESPONSE = "{\"Response\":{\"Name\":\"张三丰\",\"Sex\":\"男\",\"Birth\":\"1990/1/1\","
+            + "\"Address\": \"北京市东城区景山前街4号\",\"IdNum\":\"11010119900101123X\","
+            + "\"AdvancedInfo\":\"{\\\"WarnInfos\\\":[]}\",\"RequestId\":\"a1-2\"}}";
+
+    @Test
+    public void digitRuns_matchLegacyRegex() {
+        String[] samples = {"", "12345", "123456", "tel 13800138000 ok", "a1b22c333", "9999999x", "end 1234567"};
+        for (String s : samples) {
+            // 旧实现：replaceAll("\\d{6,}", "******")，身份证末位 X 现在也一起隐藏
+            String legacy = s.replaceAll("\\d{6,}[Xx]?", "******");
+            assertEquals(s, legacy, Redactor.redact(s));
+        }
+    }
+
+    @Test
+    public void jsonResponse_masksFieldsAndIds() {
+        String out = Redactor.redact(RESPONSE);
+        assertTrue(out, out.contains("\"Name\":\"张**\""));
+        assertTrue(out, out.contains("\"Address\": \"北京市东城区***\""));
+        assertTrue(out, out.contains("\"IdNum\":\"******\""));
+        assertTrue(out, out.contains("\"Birth\":\"1990/1/1\""));
+        assertTrue(out, out.contains("\"AdvancedInfo\":\"{\\\"WarnInfos\\\":[]}\""));
+        assertFalse(out.contains("张三丰"));
+        assertFalse(out.contains("景山"));
+    }
+
+    @Test
+    public void streamAndBuilderAgree() throws Exception {
+        StringBuilder big = new StringBuilder();
+        for (int i = 0; i < 500; i++) big.append(RESPONSE).append('\n');
+
+        StringWriter w = new StringWriter();
+        Redactor.redact(new StringReader(big.toString()), w);
+
+        StringBuilder sb = new StringBuilder("prefix:");
+        Redactor.redact(big, sb);
+        assertEquals("prefix:" + w, sb.toString());
+    }
+
+    @Test
+    public void truncatedSensitiveValue_isStillMasked() {
+        assertEquals("{\"Name\":\"张**", Redactor.redact("{\"Name\":\"张三丰"));
+    }
+
+    @Test
+    public void uiMasks() {
+        assertEquals("", Redactor.maskName(""));
+        assertEquals("*", Redactor.maskName("张"));
+        assertEquals("张**", Redactor.maskName("张三丰"));
+        assertEquals("110101******123X", Redactor.maskId(" 11010119900101123X "));
+        assertEquals("***", Redactor.maskId("1234"));
+        assertEquals("北***", Redactor.maskAddress("北京"));
+        assertEquals("北京市东城区***", Redactor.maskAddress("北京市东城区景山前街4号"));
+        assertEquals("", Redactor.maskAddress("  "));
+    }
+}
@@ -0,0 +1,86 @@
+package com.jeffrey.finalwork.startup;
+
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class OcrClientProviderTest {
+
+    @Test
+    public void createsOnceInBackgroundAfterWarmUp() throws Exception {
+        List<Runnable> queued = new ArrayList<>();
+        Executor manual = queued::add;
+        AtomicInteger created = new AtomicInteger();
+        StartupTrace trace = new StartupTrace(0, System::currentTimeMillis);
+        OcrClientProvider provider = new OcrClientProvider(() -> {
+            created.incrementAndGet();
+            TencentOcrClient client = new TencentOcrClient("id", "key", "ap-guangzhou");
+            client.warmUp();
+            return client;
+        }, manual, trace);
+
+        // 构造时不创建，首帧后 warmUp 才排进后台
+        assertEquals(0, queued.size());
+        provider.warmUp();
+        provider.warmUp();
+        assertEquals(1, queued.size());
+        assertFalse(provider.isReady());
+
+        List<TencentOcrClient> seen = new ArrayList<>();
+        provider.whenReady(seen::add);
+        queued.get(0).run();
+
+        assertTrue(provider.isReady());
+        assertEquals(1, created.get());
+        assertSame(provider.get(), seen.get(0));
+        assertTrue(trace.elapsedMs(StartupTrace.CLIENT_READY) >= 0);
+    }
+
+    @Test
+    public void getBlocksUntilBackgroundCreationFinishes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        OcrClientProvider provider = new OcrClientProvider(() -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+            return new TencentOcrClient("id", "key", "ap-guangzhou");
+        }, Executors.newSingleThreadExecutor(), null);
+
+        // 没调 warmUp 直接 get：顺带开始创建并等待
+        TencentOcrClient[] got = new TencentOcrClient[1];
+        Thread scan = new Thread(() -> got[0] = provider.get());
+        scan.start();
+        scan.join(200);
+        assertTrue(scan.isAlive());
+
+        release.countDown();
+        scan.join(5_000);
+        assertNotNull(got[0]);
+    }
+
+    @Test
+    public void creationFailureSurfacesOriginalException() {
+        OcrClientProvider provider = new OcrClientProvider(() -> {
+            throw new IllegalStateException("keystore");
+        }, Runnable::run, null);
+        try {
+            provider.get();
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("keystore", e.getMessage());
+        }
+        assertFalse(provider.isReady());
+    }
+}
@@ -0,0 +1,45 @@
+package com.jeffrey.finalwork.startup;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class StartupTraceTest {
+
+    @Test
+    public void marksRelativeToProcessStartOnlyOnce() {
+        AtomicLong now = new AtomicLong(1_150);
+        StartupTrace trace = new StartupTrace(1_000, now::get);
+
+        assertTrue(trace.mark(StartupTrace.ACTIVITY_CREATED));
+        now.set(1_400);
+        assertFalse(trace.mark(StartupTrace.ACTIVITY_CREATED));
+
+        assertEquals(150, trace.elapsedMs(StartupTrace.ACTIVITY_CREATED));
+        assertEquals(-1, trace.elapsedMs(StartupTrace.FIRST_FRAME));
+    }
+
+    @Test
+    public void interactiveWhenBothFrameAndClientAreReady() {
+        AtomicLong now = new AtomicLong(0);
+        StartupTrace trace = new StartupTrace(0, now::get);
+        List<String> seen = new ArrayList<>();
+        trace.setListener((name, ms) -> seen.add(name + "@" + ms));
+
+        now.set(300);
+        trace.mark(StartupTrace.FIRST_FRAME);
+        assertEquals(-1, trace.elapsedMs(StartupTrace.INTERACTIVE));
+
+        now.set(520);
+        trace.mark(StartupTrace.CLIENT_READY);
+        assertEquals(520, trace.elapsedMs(StartupTrace.INTERACTIVE));
+        assertEquals(Arrays.asList("first_frame@300", "client_ready@520", "interactive@520"), seen);
+        assertEquals(Arrays.asList(StartupTrace.FIRST_FRAME, StartupTrace.CLIENT_READY, StartupTrace.INTERACTIVE),
+                new ArrayList<>(trace.marks().keySet()));
+    }
+}
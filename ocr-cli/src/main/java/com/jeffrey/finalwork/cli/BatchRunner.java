@@ -0,0 +1,256 @@
+package com.jeffrey.finalwork.cli;
+
+import com.jeffrey.finalwork.idcard.IdCardValidator;
+import com.jeffrey.finalwork.net.CardSide;
+import com.jeffrey.finalwork.net.OcrError;
+import com.jeffrey.finalwork.net.OcrException;
+import com.jeffrey.finalwork.net.ScanMetrics;
+import com.jeffrey.finalwork.net.ScanTrace;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * 目录批处理流水线：读文件 -> 预处理 -> 编码签名 -> 上传解析。
+ * 前三步在 prepareThreads 个线程上跑，上传走 OkHttp 异步；
+ * 同时在处理中的图片（含已读入内存、等待上传的）不超过 parallel 张，内存和在途请求都有上限。
+ */
+public final class BatchRunner {
+
+    public static final class Options {
+        /** 同时处理中的图片数，即最大在途请求数 */
+        public int parallel = 8;
+        public int prepareThreads = Math.max(1, Runtime.getRuntime().availableProcessors());
+        /** null 表示按文件名判断正反面 */
+        public CardSide side;
+        public String configJson = "{}";
+        /** 每写多少行 flush 一次，进程被杀时已完成的结果不丢 */
+        public int flushEvery = 100;
+    }
+
+    /** 一张图的处理结果和各阶段耗时 */
+    public static final class Record {
+        static final List<String> COLUMNS = Collections.unmodifiableList(Arrays.asList(
+                "file", "side", "ok", "error_code", "error_message", "request_id",
+                "name", "sex", "nation", "birth", "address", "id_number", "authority", "valid_date",
+                "check_issues", "bytes_in", "bytes_sent", "read_ms", "prepare_ms", "encode_ms", "queue_ms", "sign_ms",
+                "network_ms", "parse_ms", "total_ms"));
+
+        public final String file;
+        public final CardSide side;
+        public TencentOcrClient.OcrResult result;
+        public String errorCode = "";
+        public String errorMessage = "";
+        public long bytesIn;
+        public long bytesSent;
+        public long readNanos;
+        public ScanTrace trace;
+
+        Record(String file, CardSide side) {
+            this.file = file;
+            this.side = side;
+        }
+
+        public boolean ok() {
+            return result != null;
+        }
+
+        Map<String, Object> toRow() {
+            TencentOcrClient.OcrResult r = result != null ? result : new TencentOcrClient.OcrResult();
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("file", file);
+            row.put("side", side.name());
+            row.put("ok", ok());
+            row.put("error_code", errorCode);
+            row.put("error_message", errorMessage);
+            row.put("request_id", r.requestId);
+            row.put("name", r.name);
+            row.put("sex", r.sex);
+            row.put("nation", r.nation);
+            row.put("birth", r.birth);
+            row.put("address", r.address);
+            row.put("id_number", r.idNumber);
+            row.put("authority", r.authority);
+            row.put("valid_date", r.validDate);
+            // 人像面本地自检不过的字段，多项用分号隔开；空串表示通过或不适用
+            row.put("check_issues", result != null && side == CardSide.FRONT
+                    ? String.join(";", IdCardValidator.validate(result).messages()) : "");
+            row.put("bytes_in", bytesIn);
+            row.put("bytes_sent", bytesSent);
+            row.put("read_ms", ms(readNanos));
+            row.put("prepare_ms", ms(stage(ScanMetrics.Stage.PREPARE)));
+            row.put("encode_ms", ms(stage(ScanMetrics.Stage.ENCODE)));
+            row.put("queue_ms", ms(stage(ScanMetrics.Stage.QUEUE)));
+            row.put("sign_ms", ms(stage(ScanMetrics.Stage.SIGN)));
+            row.put("network_ms", ms(stage(ScanMetrics.Stage.DNS) + stage(ScanMetrics.Stage.CONNECT)
+                    + stage(ScanMetrics.Stage.TLS) + stage(ScanMetrics.Stage.UPLOAD)
+                    + stage(ScanMetrics.Stage.SERVER_WAIT) + stage(ScanMetrics.Stage.DOWNLOAD)));
+            row.put("parse_ms", ms(stage(ScanMetrics.Stage.PARSE)));
+            row.put("total_ms", ms(readNanos + stage(ScanMetrics.Stage.TOTAL)));
+            return row;
+        }
+
+        private long stage(ScanMetrics.Stage s) {
+            return trace == null ? 0 : trace.nanos(s);
+        }
+
+        private static double ms(long nanos) {
+            return Math.round(nanos / 10_000.0) / 100.0;
+        }
+    }
+
+    public static final class Summary {
+        public final int total;
+        public final int succeeded;
+        public final long elapsedMs;
+        public final ScanMetrics.Snapshot metrics;
+
+        Summary(int total, int succeeded, long elapsedMs, ScanMetrics.Snapshot metrics) {
+            this.total = total;
+            this.succeeded = succeeded;
+            this.elapsedMs = elapsedMs;
+            this.metrics = metrics;
+        }
+
+        public int failed() {
+            return total - succeeded;
+        }
+
+        public double perSecond() {
+            return elapsedMs == 0 ? 0 : total * 1000.0 / elapsedMs;
+        }
+    }
+
+    public interface ProgressListener {
+        /** 在上传回调线程上调用 */
+        void onRecord(Record record, int done);
+    }
+
+    private final TencentOcrClient client;
+    private final ImageIoPreparer preparer;
+    private final Options options;
+    // 批处理独立统计，不和其他调用方的全局指标混在一起
+    private final ScanMetrics metrics = new ScanMetrics(60_000, 10);
+
+    public BatchRunner(TencentOcrClient client, ImageIoPreparer preparer, Options options) {
+        this.client = client;
+        this.preparer = preparer;
+        this.options = options;
+    }
+
+    /** 阻塞直到目录下所有图片处理完并写出；progress 可为 null */
+    public Summary run(Path root, ResultWriter out, ProgressListener progress) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        int parallel = Math.max(1, options.parallel);
+        Semaphore slots = new Semaphore(parallel);
+        AtomicInteger total = new AtomicInteger();
+        AtomicInteger done = new AtomicInteger();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger writeFailures = new AtomicInteger();
+        ExecutorService prepare = Executors.newFixedThreadPool(Math.min(options.prepareThreads, parallel), r -> {
+            Thread t = new Thread(r, "batch-prepare");
+            t.setDaemon(true);
+            return t;
+        });
+        try (Stream<Path> files = Files.walk(root)) {
+            // 目录边遍历边提交，几万个文件也不用先全部列出来
+            Iterator<Path> it = files.filter(Files::isRegularFile).filter(ImageIoPreparer::isImage).iterator();
+            while (it.hasNext()) {
+                Path file = it.next();
+                slots.acquire();
+                total.incrementAndGet();
+                prepare.execute(() -> process(root, file, record -> {
+                    try {
+                        out.write(record);
+                        int n = done.incrementAndGet();
+                        if (record.ok()) succeeded.incrementAndGet();
+                        if (n % Math.max(1, options.flushEvery) == 0) out.flush();
+                        if (progress != null) progress.onRecord(record, n);
+                    } catch (IOException e) {
+                        writeFailures.incrementAndGet();
+                    } finally {
+                        slots.release();
+                    }
+                }));
+            }
+            // 拿回全部名额即所有图片都已写出
+            slots.acquire(parallel);
+        } finally {
+            prepare.shutdownNow();
+        }
+        out.flush();
+        if (writeFailures.get() > 0) throw new IOException(writeFailures.get() + " 条结果写出失败");
+        return new Summary(total.get(), succeeded.get(), (System.nanoTime() - start) / 1_000_000, metrics.snapshot());
+    }
+
+    private interface Sink {
+        void accept(Record record);
+    }
+
+    private void process(Path root, Path file, Sink sink) {
+        Record record = new Record(root.relativize(file).toString(), sideOf(file));
+        CompletableFuture<TencentOcrClient.OcrResult> request;
+        try {
+            long t0 = System.nanoTime();
+            byte[] original = Files.readAllBytes(file);
+            record.readNanos = System.nanoTime() - t0;
+            record.bytesIn = original.length;
+
+            record.trace = metrics.newTrace();
+            long t1 = System.nanoTime();
+            ImageIoPreparer.Prepared prepared = preparer.prepare(original);
+            record.trace.since(ScanMetrics.Stage.PREPARE, t1, prepared.jpeg.length);
+            record.bytesSent = prepared.jpeg.length;
+
+            // 编码和签名在当前线程完成，网络部分交给 OkHttp，线程马上去处理下一张
+            request = client.idCardOcrAsync(prepared.jpeg, record.side, options.configJson, record.trace);
+        } catch (Throwable e) {
+            // 超大图片读入或解码时的 OutOfMemoryError 也要记一条失败，否则名额不归还，run 会一直等下去
+            if (record.trace != null) record.trace.finish();
+            fail(record, e);
+            sink.accept(record);
+            return;
+        }
+        request.whenComplete((result, error) -> {
+            record.trace.finish();
+            if (error == null) record.result = result;
+            else fail(record, error);
+            sink.accept(record);
+        });
+    }
+
+    private static void fail(Record record, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        if (cause instanceof OcrException) {
+            OcrError e = ((OcrException) cause).error;
+            record.errorCode = e.code;
+            record.errorMessage = e.message;
+        } else {
+            record.errorCode = "LocalError";
+            // OutOfMemoryError 之类常常没有 message，退回类名
+            record.errorMessage = cause.getMessage() != null ? cause.getMessage() : cause.toString();
+        }
+    }
+
+    CardSide sideOf(Path file) {
+        if (options.side != null) return options.side;
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.contains("back") || name.contains("国徽") || name.contains("反面") ? CardSide.BACK : CardSide.FRONT;
+    }
+}
@@ -0,0 +1,136 @@
+package com.jeffrey.finalwork.cli;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Locale;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+/**
+ * App 端 ImagePreparer 的服务端版本：ImageIO 解码，长边和体积预算与 App 一致。
+ * 已经合规的 JPEG 原样上传，不做二次压缩。
+ */
+public final class ImageIoPreparer {
+
+    public int maxLongEdge = 1600;
+    public int minLongEdge = 960;
+    public int maxBytes = 600 * 1024;
+    public int startQuality = 90;
+    public int minQuality = 60;
+
+    public static final class Prepared {
+        public final byte[] jpeg;
+        public final int width;
+        public final int height;
+        /** 0 表示原图直传 */
+        public final int quality;
+
+        Prepared(byte[] jpeg, int width, int height, int quality) {
+            this.jpeg = jpeg;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+        }
+    }
+
+    public static boolean isImage(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jpg") || name.endsWith(".jpeg") || name.endsWith(".png") || name.endsWith(".bmp");
+    }
+
+    public Prepared prepare(byte[] original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) throw new IOException("不支持的图片格式");
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                // 只读文件头拿尺寸
+                int w = reader.getWidth(0);
+                int h = reader.getHeight(0);
+                int longEdge = Math.max(w, h);
+                boolean jpeg = "jpeg".equalsIgnoreCase(reader.getFormatName());
+                if (jpeg && longEdge <= maxLongEdge && original.length <= maxBytes) {
+                    return new Prepared(original, w, h, 0);
+                }
+                // 大图按 2 的幂隔行采样解码，省内存；剩余部分再精确缩放
+                ImageReadParam param = reader.getDefaultReadParam();
+                int sample = 1;
+                while (longEdge / (sample * 2) >= maxLongEdge) sample *= 2;
+                if (sample > 1) param.setSourceSubsampling(sample, sample, 0, 0);
+                BufferedImage decoded = reader.read(0, param);
+                return encodeWithinBudget(scale(decoded, maxLongEdge));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /** 先降质量，仍超预算再缩小尺寸，直到落入 maxBytes 或触到下限 */
+    Prepared encodeWithinBudget(BufferedImage image) throws IOException {
+        BufferedImage current = image;
+        while (true) {
+            int quality = startQuality;
+            byte[] out;
+            while (true) {
+                out = encodeJpeg(current, quality);
+                if (out.length <= maxBytes || quality <= minQuality) break;
+                quality = Math.max(minQuality, quality - 10);
+            }
+            int longEdge = Math.max(current.getWidth(), current.getHeight());
+            if (out.length <= maxBytes || longEdge <= minLongEdge) {
+                return new Prepared(out, current.getWidth(), current.getHeight(), quality);
+            }
+            int target = Math.max(minLongEdge, Math.round(longEdge * 0.8f));
+            current = scale(current, target);
+        }
+    }
+
+    // 统一转成不带透明通道的 RGB，PNG 的透明区域铺白底
+    private static BufferedImage scale(BufferedImage src, int targetLongEdge) {
+        float s = Math.min(1f, targetLongEdge / (float) Math.max(src.getWidth(), src.getHeight()));
+        int w = Math.max(1, Math.round(src.getWidth() * s));
+        int h = Math.max(1, Math.round(src.getHeight() * s));
+        if (s == 1f && src.getType() == BufferedImage.TYPE_INT_RGB) return src;
+        BufferedImage out = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = out.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, w, h);
+            g.drawImage(src, 0, 0, w, h, null);
+        } finally {
+            g.dispose();
+        }
+        return out;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image, int quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(64 * 1024);
+        try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bos)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality / 100f);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bos.toByteArray();
+    }
+}
@@ -0,0 +1,150 @@
+package com.jeffrey.finalwork.cli;
+
+import com.jeffrey.finalwork.net.CardSide;
+import com.jeffrey.finalwork.net.OcrHttp;
+import com.jeffrey.finalwork.net.OcrRateLimiter;
+import com.jeffrey.finalwork.net.RetryPolicy;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+
+/**
+ * 命令行批量识别：ocr-batch [选项] 图片目录
+ * 密钥从环境变量 TENCENTCLOUD_SECRET_ID / TENCENTCLOUD_SECRET_KEY 读取，不走命令行参数（会出现在进程列表里）。
+ * 退出码：0 全部成功，1 有失败条目，2 参数或环境错误。
+ */
+public final class OcrBatchCli {
+
+    private static final String USAGE = String.join("\n",
+            "用法: ocr-batch [选项] <图片目录>",
+            "  --out <文件>        结果输出文件，默认标准输出；扩展名 .csv 时写 CSV",
+            "  --format jsonl|csv  指定输出格式，覆盖按扩展名的判断",
+            "  --parallel <n>      同时处理中的图片数（最大在途请求数），默认 8",
+            "  --threads <n>       读图和预处理线程数，默认 CPU 核数",
+            "  --qps <n>           每秒最多发出的请求数，建议取账号配额的九成，默认 " + (int) OcrRateLimiter.DEFAULT_QPS,
+            "  --side front|back|auto  证件面，auto 按文件名（含 back / 国徽 / 反面 为国徽面），默认 auto",
+            "  --config <json>     IDCardOCR 的 Config 参数，默认 {}",
+            "  --region <地域>     默认取 TENCENTCLOUD_REGION，未设置时 ap-guangzhou",
+            "  --endpoint <url>    服务地址，默认 " + TencentOcrClient.DEFAULT_ENDPOINT);
+
+    private OcrBatchCli() {}
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run(args));
+    }
+
+    static int run(String[] args) throws IOException, InterruptedException {
+        BatchRunner.Options options = new BatchRunner.Options();
+        options.side = null;
+        String out = null;
+        String format = null;
+        String region = env("TENCENTCLOUD_REGION", "ap-guangzhou");
+        String endpoint = null;
+        double qps = OcrRateLimiter.DEFAULT_QPS;
+        Path dir = null;
+
+        try {
+            for (int i = 0; i < args.length; i++) {
+                String a = args[i];
+                switch (a) {
+                    case "--out": out = args[++i]; break;
+                    case "--format": format = args[++i].toLowerCase(Locale.ROOT); break;
+                    case "--parallel": options.parallel = Integer.parseInt(args[++i]); break;
+                    case "--threads": options.prepareThreads = Integer.parseInt(args[++i]); break;
+                    case "--qps": qps = Double.parseDouble(args[++i]); break;
+                    case "--side": options.side = parseSide(args[++i]); break;
+                    case "--config": options.configJson = args[++i]; break;
+                    case "--region": region = args[++i]; break;
+                    case "--endpoint": endpoint = args[++i]; break;
+                    case "-h":
+                    case "--help":
+                        System.out.println(USAGE);
+                        return 0;
+                    default:
+                        if (a.startsWith("--") || dir != null) throw new IllegalArgumentException("无法识别的参数: " + a);
+                        dir = Paths.get(a);
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException | IllegalArgumentException e) {
+            System.err.println(e instanceof ArrayIndexOutOfBoundsException ? "参数缺少取值" : e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        if (dir == null || !Files.isDirectory(dir)) {
+            System.err.println(dir == null ? "缺少图片目录" : "不是目录: " + dir);
+            System.err.println(USAGE);
+            return 2;
+        }
+        String secretId = System.getenv("TENCENTCLOUD_SECRET_ID");
+        String secretKey = System.getenv("TENCENTCLOUD_SECRET_KEY");
+        if (secretId == null || secretKey == null) {
+            System.err.println("请设置环境变量 TENCENTCLOUD_SECRET_ID 和 TENCENTCLOUD_SECRET_KEY");
+            return 2;
+        }
+
+        TencentOcrClient client = newClient(secretId, secretKey, region, endpoint, options.parallel);
+        client.rateLimiter().setQps(qps);
+        Writer sink = out == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8);
+        String formatName = format != null ? "x." + format : out;
+        BatchRunner.Summary summary;
+        try (ResultWriter writer = ResultWriter.forName(formatName, new BufferedWriter(sink, 64 * 1024))) {
+            summary = new BatchRunner(client, new ImageIoPreparer(), options).run(dir, writer, (record, done) -> {
+                if (done % 500 == 0) System.err.println("已完成 " + done);
+            });
+        }
+        System.err.printf(Locale.ROOT, "共 %d 张，成功 %d，失败 %d，耗时 %.1fs，%.1f 张/秒%n",
+                summary.total, summary.succeeded, summary.failed(), summary.elapsedMs / 1000.0, summary.perSecond());
+        System.err.println(summary.metrics.toJson());
+        System.err.println("限流 " + client.rateLimiter().stats().toJson());
+        return summary.failed() == 0 ? 0 : 1;
+    }
+
+    /**
+     * 共享连接池之外单独配置调度器：App 的默认值每个域名最多 6 个并发，批处理要放开到 parallel。
+     * 对冲请求在批量场景只会多花调用量，关掉。
+     */
+    static TencentOcrClient newClient(String secretId, String secretKey, String region, String endpoint, int parallel) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Math.max(64, parallel));
+        dispatcher.setMaxRequestsPerHost(Math.max(1, parallel));
+        OkHttpClient http = OcrHttp.shared().newBuilder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(Math.max(4, parallel), 5, TimeUnit.MINUTES))
+                .build();
+        TencentOcrClient client = new TencentOcrClient(secretId, secretKey, region, http);
+        if (endpoint != null) client.setEndpoint(endpoint);
+        RetryPolicy retry = RetryPolicy.defaults();
+        retry.hedging = false;
+        client.setRetryPolicy(retry);
+        return client;
+    }
+
+    private static CardSide parseSide(String s) {
+        switch (s.toLowerCase(Locale.ROOT)) {
+            case "front": return CardSide.FRONT;
+            case "back": return CardSide.BACK;
+            case "auto": return null;
+            default: throw new IllegalArgumentException("--side 只能是 front / back / auto");
+        }
+    }
+
+    private static String env(String name, String fallback) {
+        String v = System.getenv(name);
+        return v == null || v.isEmpty() ? fallback : v;
+    }
+}
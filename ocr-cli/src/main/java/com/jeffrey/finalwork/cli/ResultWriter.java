@@ -0,0 +1,91 @@
+package com.jeffrey.finalwork.cli;
+
+import com.google.gson.JsonObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 批处理结果输出，一张图一行。多个上传线程并发调用 write，内部加锁。
+ */
+public abstract class ResultWriter implements Closeable {
+
+    protected final Writer out;
+
+    ResultWriter(Writer out) {
+        this.out = out;
+    }
+
+    /** 按扩展名选格式：.csv 写 CSV，其余写 JSON Lines */
+    public static ResultWriter forName(String fileName, Writer out) {
+        return fileName != null && fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ? csv(out) : jsonl(out);
+    }
+
+    public static ResultWriter jsonl(Writer out) {
+        return new ResultWriter(out) {
+            @Override void writeRow(Map<String, Object> row) throws IOException {
+                JsonObject o = new JsonObject();
+                for (Map.Entry<String, Object> e : row.entrySet()) {
+                    Object v = e.getValue();
+                    if (v instanceof Number) o.addProperty(e.getKey(), (Number) v);
+                    else if (v instanceof Boolean) o.addProperty(e.getKey(), (Boolean) v);
+                    else if (v != null) o.addProperty(e.getKey(), v.toString());
+                }
+                out.write(o.toString());
+                out.write('\n');
+            }
+        };
+    }
+
+    public static ResultWriter csv(Writer out) {
+        return new ResultWriter(out) {
+            private boolean header;
+
+            @Override void writeRow(Map<String, Object> row) throws IOException {
+                if (!header) {
+                    writeLine(row.keySet());
+                    header = true;
+                }
+                writeLine(row.values());
+            }
+
+            private void writeLine(Iterable<?> cells) throws IOException {
+                boolean first = true;
+                for (Object cell : cells) {
+                    if (!first) out.write(',');
+                    first = false;
+                    out.write(escapeCsv(cell == null ? "" : cell.toString()));
+                }
+                out.write("\r\n");
+            }
+        };
+    }
+
+    abstract void writeRow(Map<String, Object> row) throws IOException;
+
+    public synchronized void write(BatchRunner.Record record) throws IOException {
+        writeRow(record.toRow());
+    }
+
+    /** 中途被杀掉时已完成的行也要落盘，调用方定期 flush */
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override public synchronized void close() throws IOException {
+        out.close();
+    }
+
+    // RFC 4180：含逗号、引号、换行的字段加引号，引号双写
+    static String escapeCsv(String s) {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        return quote ? '"' + s.replace("\"", "\"\"") + '"' : s;
+    }
+}
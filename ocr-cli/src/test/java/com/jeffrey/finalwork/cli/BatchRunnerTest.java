@@ -0,0 +1,126 @@
+package com.jeffrey.finalwork.cli;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.jeffrey.finalwork.net.FakeTencentOcrServer;
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.Assert.*;
+
+public class BatchRunnerTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private FakeTencentOcrServer server;
+    private TencentOcrClient client;
+
+    @Before public void setUp() throws Exception {
+        server = new FakeTencentOcrServer(7).start();
+        server.latencyMs = 30;
+        client = OcrBatchCli.newClient("id", "key", "ap-guangzhou", server.url(), 4);
+    }
+
+    @After public void tearDown() throws Exception {
+        server.close();
+    }
+
+    private static void image(File file, String format, int w, int h) throws Exception {
+        BufferedImage img = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < h; y++) for (int x = 0; x < w; x++) img.setRGB(x, y, (x * 31 + y * 17) & 0xffffff);
+        assertTrue(ImageIO.write(img, format, file));
+    }
+
+    @Test
+    public void processesDirectoryAndWritesJsonLinesWithTimings() throws Exception {
+        File root = tmp.newFolder("scans");
+        File sub = new File(root, "2024");
+        assertTrue(sub.mkdir());
+        for (int i = 0; i < 6; i++) image(new File(sub, "front_" + i + ".png"), "png", 400, 250);
+        image(new File(root, "a_back.jpg"), "jpg", 2400, 1500);
+        Files.write(new File(root, "broken.jpg").toPath(), "not an image".getBytes(StandardCharsets.UTF_8));
+        Files.write(new File(root, "notes.txt").toPath(), "skip".getBytes(StandardCharsets.UTF_8));
+
+        BatchRunner.Options options = new BatchRunner.Options();
+        options.parallel = 3;
+        options.prepareThreads = 2;
+        StringWriter out = new StringWriter();
+        BatchRunner.Summary summary;
+        try (ResultWriter writer = ResultWriter.jsonl(out)) {
+            summary = new BatchRunner(client, new ImageIoPreparer(), options).run(root.toPath(), writer, null);
+        }
+
+        assertEquals(8, summary.total);
+        assertEquals(7, summary.succeeded);
+        assertEquals(7, server.requests.get());
+
+        Map<String, JsonObject> rows = new HashMap<>();
+        for (String line : out.toString().split("\n")) {
+            JsonObject o = JsonParser.parseString(line).getAsJsonObject();
+            rows.put(o.get("file").getAsString(), o);
+        }
+        assertEquals(8, rows.size());
+
+        JsonObject back = rows.get("a_back.jpg");
+        assertEquals("BACK", back.get("side").getAsString());
+        assertTrue(back.get("ok").getAsBoolean());
+        assertFalse(back.get("authority").getAsString().isEmpty());
+        // 超过长边上限的图重新压缩，上传的比原图小
+        assertTrue(back.get("bytes_sent").getAsLong() < back.get("bytes_in").getAsLong());
+        // 网络耗时至少包含模拟服务的延迟
+        assertTrue(back.get("network_ms").getAsDouble() >= 30);
+        assertTrue(back.get("total_ms").getAsDouble() >= back.get("network_ms").getAsDouble());
+
+        JsonObject front = rows.get("2024" + File.separator + "front_0.png");
+        assertEquals("FRONT", front.get("side").getAsString());
+        assertEquals("110101199001011237", front.get("id_number").getAsString());
+        assertEquals("", front.get("check_issues").getAsString());
+
+        JsonObject broken = rows.get("broken.jpg");
+        assertFalse(broken.get("ok").getAsBoolean());
+        assertEquals("LocalError", broken.get("error_code").getAsString());
+    }
+
+    @Test
+    public void smallJpegIsUploadedAsIs() throws Exception {
+        File f = tmp.newFile("small.jpg");
+        image(f, "jpg", 800, 500);
+        byte[] original = Files.readAllBytes(f.toPath());
+        ImageIoPreparer.Prepared p = new ImageIoPreparer().prepare(original);
+        assertSame(original, p.jpeg);
+        assertEquals(0, p.quality);
+    }
+
+    @Test
+    public void csvEscapesAndWritesHeaderOnce() throws Exception {
+        assertEquals("\"a,b\"", ResultWriter.escapeCsv("a,b"));
+        assertEquals("\"say \"\"hi\"\"\"", ResultWriter.escapeCsv("say \"hi\""));
+        assertEquals("plain", ResultWriter.escapeCsv("plain"));
+
+        File root = tmp.newFolder("csv");
+        image(new File(root, "x.png"), "png", 200, 120);
+        StringWriter out = new StringWriter();
+        try (ResultWriter writer = ResultWriter.forName("result.csv", out)) {
+            new BatchRunner(client, new ImageIoPreparer(), new BatchRunner.Options()).run(root.toPath(), writer, null);
+        }
+        String[] lines = out.toString().split("\r\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("file,side,ok,"));
+        assertTrue(lines[1].startsWith("x.png,FRONT,true,"));
+    }
+}
@@ -0,0 +1,162 @@
+package com.jeffrey.finalwork.idcard;
+
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 人像面识别结果的本地校验：GB 11643 校验码、号码内出生日期与“出生”栏、
+ * 顺序码奇偶与“性别”栏、行政区划省级代码。任何一项不过都说明有字段读错了。
+ */
+public final class IdCardValidator {
+
+    public enum Issue {
+        ID_FORMAT("身份证号格式不对"),
+        ID_CHECKSUM("身份证号校验码不符"),
+        ID_REGION("身份证号地区码无效"),
+        BIRTH_INVALID("身份证号中的出生日期无效"),
+        BIRTH_MISMATCH("出生日期与身份证号不一致"),
+        SEX_MISMATCH("性别与身份证号不一致");
+
+        public final String message;
+
+        Issue(String message) {
+            this.message = message;
+        }
+    }
+
+    public static final class Report {
+        public static final Report OK = new Report(Collections.emptyList());
+
+        public final List<Issue> issues;
+
+        Report(List<Issue> issues) {
+            this.issues = issues;
+        }
+
+        public boolean ok() {
+            return issues.isEmpty();
+        }
+
+        /** 号码本身读错（而不只是其他栏位和号码对不上） */
+        public boolean idNumberSuspect() {
+            return issues.contains(Issue.ID_FORMAT) || issues.contains(Issue.ID_CHECKSUM)
+                    || issues.contains(Issue.ID_REGION) || issues.contains(Issue.BIRTH_INVALID);
+        }
+
+        public List<String> messages() {
+            List<String> out = new ArrayList<>(issues.size());
+            for (Issue i : issues) out.add(i.message);
+            return out;
+        }
+    }
+
+    private static final int[] WEIGHTS = {7, 9, 10, 5, 8, 4, 2, 1, 6, 3, 7, 9, 10, 5, 8, 4, 2};
+    private static final char[] CHECK = "10X98765432".toCharArray();
+
+    // 省级行政区划代码（GB/T 2260 前两位），按代码排序，二分查找
+    private static final int[] PROVINCES = {
+            11, 12, 13, 14, 15,
+            21, 22, 23,
+            31, 32, 33, 34, 35, 36, 37,
+            41, 42, 43, 44, 45, 46,
+            50, 51, 52, 53, 54,
+            61, 62, 63, 64, 65,
+            71, 81, 82, 83};
+
+    private IdCardValidator() {}
+
+    public static Report validate(TencentOcrClient.OcrResult r) {
+        Calendar now = Calendar.getInstance();
+        return validate(r, now.get(Calendar.YEAR) * 10_000 + (now.get(Calendar.MONTH) + 1) * 100 + now.get(Calendar.DAY_OF_MONTH));
+    }
+
+    /** today 为 yyyyMMdd 形式的整数 */
+    public static Report validate(TencentOcrClient.OcrResult r, int today) {
+        List<Issue> issues = new ArrayList<>(2);
+        String id = r.idNumber == null ? "" : r.idNumber.trim().toUpperCase(Locale.ROOT);
+        if (!wellFormed(id)) {
+            issues.add(Issue.ID_FORMAT);
+            return new Report(issues);
+        }
+        if (id.charAt(17) != checkDigit(id)) issues.add(Issue.ID_CHECKSUM);
+        if (!regionKnown(id)) issues.add(Issue.ID_REGION);
+
+        int birth = Integer.parseInt(id.substring(6, 14));
+        if (!validDate(birth) || birth > today || birth < 19_000_101) {
+            issues.add(Issue.BIRTH_INVALID);
+        } else {
+            int printed = parseDate(r.birth);
+            if (printed != 0 && printed != birth) issues.add(Issue.BIRTH_MISMATCH);
+        }
+
+        // 第 17 位奇数为男，偶数为女
+        boolean male = (id.charAt(16) - '0') % 2 == 1;
+        String sex = r.sex == null ? "" : r.sex.trim();
+        if ((sex.equals("男") && !male) || (sex.equals("女") && male)) issues.add(Issue.SEX_MISMATCH);
+
+        return issues.isEmpty() ? Report.OK : new Report(issues);
+    }
+
+    /** 前 17 位对应的校验码，调用方保证前 17 位都是数字 */
+    public static char checkDigit(CharSequence id) {
+        int sum = 0;
+        for (int i = 0; i < 17; i++) sum += (id.charAt(i) - '0') * WEIGHTS[i];
+        return CHECK[sum % 11];
+    }
+
+    private static boolean wellFormed(String id) {
+        if (id.length() != 18) return false;
+        for (int i = 0; i < 17; i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        char last = id.charAt(17);
+        return (last >= '0' && last <= '9') || last == 'X';
+    }
+
+    // 省级代码存在，且地市级不为 00（县级为 00 的地级市如东莞是合法的）。
+    // 只查省级表，地市级只排除 00。台湾和港澳台居民居住证（710000、810000、820000、830000）没有下级代码
+    private static boolean regionKnown(String id) {
+        int province = (id.charAt(0) - '0') * 10 + (id.charAt(1) - '0');
+        if (Arrays.binarySearch(PROVINCES, province) < 0) return false;
+        if (province >= 71) return true;
+        return id.charAt(2) != '0' || id.charAt(3) != '0';
+    }
+
+    static boolean validDate(int yyyymmdd) {
+        int y = yyyymmdd / 10_000;
+        int m = yyyymmdd / 100 % 100;
+        int d = yyyymmdd % 100;
+        if (m < 1 || m > 12 || d < 1) return false;
+        int[] days = {31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31};
+        boolean leap = (y % 4 == 0 && y % 100 != 0) || y % 400 == 0;
+        return d <= (m == 2 && leap ? 29 : days[m - 1]);
+    }
+
+    /** “1990/1/1”“1990年1月1日”等写法转成 yyyyMMdd，认不出返回 0 */
+    static int parseDate(String s) {
+        if (s == null) return 0;
+        int[] parts = new int[3];
+        int n = 0;
+        int value = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            char c = i < s.length() ? s.charAt(i) : ' ';
+            if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 99_999) return 0;
+            } else if (value >= 0) {
+                if (n == 3) return 0;
+                parts[n++] = value;
+                value = -1;
+            }
+        }
+        if (n != 3 || parts[0] < 1000) return 0;
+        return parts[0] * 10_000 + parts[1] * 100 + parts[2];
+    }
+}
@@ -0,0 +1,7 @@
+package com.jeffrey.finalwork.net;
+
+/** 身份证正反面：FRONT 为人像面，BACK 为国徽面 */
+public enum CardSide {
+    FRONT,
+    BACK
+}
@@ -0,0 +1,63 @@
+package com.jeffrey.finalwork.net;
+
+/**
+ * 简单熔断器：连续失败达到阈值后打开，openMs 内直接失败；之后放行一个探测请求（半开）。
+ */
+public final class CircuitBreaker {
+
+    private enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** PROBE 表示这次放行的是半开状态下唯一的探测请求，由它负责给出结论或归还名额 */
+    public enum Admission { DENIED, ALLOWED, PROBE }
+
+    private final int failureThreshold;
+    private final long openMs;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+
+    public CircuitBreaker(int failureThreshold, long openMs) {
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openMs = openMs;
+    }
+
+    public boolean allowRequest() {
+        return admit() != Admission.DENIED;
+    }
+
+    public synchronized Admission admit() {
+        if (state == State.CLOSED) return Admission.ALLOWED;
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt >= openMs) {
+            state = State.HALF_OPEN;
+            return Admission.PROBE;
+        }
+        // 半开状态下只放行一个探测请求
+        return Admission.DENIED;
+    }
+
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    /** 探测请求没有给出健康结论（被取消）时归还探测名额 */
+    public synchronized void release() {
+        if (state == State.HALF_OPEN) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis() - openMs;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return state == State.OPEN && System.currentTimeMillis() - openedAt < openMs;
+    }
+}
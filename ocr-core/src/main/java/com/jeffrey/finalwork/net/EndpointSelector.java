@@ -0,0 +1,207 @@
+package com.jeffrey.finalwork.net;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 多地域接入点选择：用响应头耗时（指数平滑）给候选地址排序。真实请求的耗时直接计入；
+ * 轻量探测只测到网络往返，加上从真实请求学到的服务端处理时间后折算进同一个估计值。
+ * 真实请求的网络 / 5xx 失败计入错误率，连续失败的地址暂时摘除，自动切到次优地址。
+ */
+public final class EndpointSelector {
+
+    public static final class Endpoint {
+        public final HttpUrl url;
+        /** 该地址对应的 X-TC-Region，为 null 时用客户端配置的地域 */
+        public final String region;
+        /** 参与签名的 Host 头，非默认端口要带上 */
+        public final String host;
+
+        // 以下状态由所属 EndpointSelector 加锁保护
+        // 按真实请求口径（含服务端处理）的响应头耗时
+        private double rttMs = Double.NaN;
+        private double probeRttMs = Double.NaN;
+        private double errorRate;
+        private int consecutiveFailures;
+        private long downUntil;
+        // 由真实请求的失败摘除时，探测成功不能提前恢复
+        private boolean downByTraffic;
+        private long lastProbeAt;
+
+        public Endpoint(String baseUrl, String region) {
+            this.url = HttpUrl.get(baseUrl);
+            this.region = region;
+            this.host = url.port() == HttpUrl.defaultPort(url.scheme()) ? url.host() : url.host() + ":" + url.port();
+        }
+    }
+
+    /** 某个地址当前的统计，用于调试输出 */
+    public static final class Stats {
+        public final String url;
+        public final double rttMs;
+        public final double errorRate;
+        public final boolean healthy;
+
+        Stats(String url, double rttMs, double errorRate, boolean healthy) {
+            this.url = url;
+            this.rttMs = rttMs;
+            this.errorRate = errorRate;
+            this.healthy = healthy;
+        }
+    }
+
+    private static final double RTT_ALPHA = 0.3;
+    private static final double ERROR_ALPHA = 0.2;
+    // 同一次识别的重试（默认 3 次）里就要能切走，所以连续 2 次即摘除
+    private static final int FAILURES_TO_MARK_DOWN = 2;
+
+    private final List<Endpoint> endpoints;
+    // 真实请求比同一地址的探测多出的耗时，各地址共用；由本对象加锁保护
+    private double processingMs = Double.NaN;
+    public volatile long probeIntervalMs = 60_000;
+    public volatile long downMs = 30_000;
+
+    public EndpointSelector(List<Endpoint> endpoints) {
+        if (endpoints.isEmpty()) throw new IllegalArgumentException("至少需要一个接入点");
+        this.endpoints = Collections.unmodifiableList(new ArrayList<>(endpoints));
+    }
+
+    public static EndpointSelector single(String baseUrl, String region) {
+        return new EndpointSelector(Collections.singletonList(new Endpoint(baseUrl, region)));
+    }
+
+    /** 腾讯云 OCR 的就近接入域名 + 几个常用地域域名，默认域名排第一，没有探测数据前用它 */
+    public static EndpointSelector tencentRegions(String defaultRegion) {
+        List<Endpoint> list = new ArrayList<>();
+        list.add(new Endpoint(TencentOcrClient.DEFAULT_ENDPOINT, defaultRegion));
+        list.add(new Endpoint("https://ocr.ap-guangzhou.tencentcloudapi.com", "ap-guangzhou"));
+        list.add(new Endpoint("https://ocr.ap-shanghai.tencentcloudapi.com", "ap-shanghai"));
+        list.add(new Endpoint("https://ocr.ap-beijing.tencentcloudapi.com", "ap-beijing"));
+        return new EndpointSelector(list);
+    }
+
+    public List<Endpoint> endpoints() {
+        return endpoints;
+    }
+
+    /** 选当前最快的健康地址；全部不健康时选最先恢复的那个 */
+    public synchronized Endpoint select() {
+        long now = System.currentTimeMillis();
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Endpoint e : endpoints) {
+            if (e.downUntil > now) continue;
+            double score = score(e);
+            if (best == null || score < bestScore) {
+                best = e;
+                bestScore = score;
+            }
+        }
+        if (best != null) return best;
+        best = endpoints.get(0);
+        for (Endpoint e : endpoints) if (e.downUntil < best.downUntil) best = e;
+        return best;
+    }
+
+    // 没有 RTT 数据的地址排在有数据的后面，之间保持列表顺序
+    private static double score(Endpoint e) {
+        double rtt = Double.isNaN(e.rttMs) ? 1e9 : e.rttMs;
+        return rtt * (1 + 4 * e.errorRate);
+    }
+
+    /** 一次真实请求的结果；被取消的请求不要上报 */
+    public synchronized void record(Endpoint e, boolean endpointFailure) {
+        e.errorRate = e.errorRate * (1 - ERROR_ALPHA) + (endpointFailure ? ERROR_ALPHA : 0);
+        if (!endpointFailure) {
+            e.consecutiveFailures = 0;
+            e.downUntil = 0;
+            e.downByTraffic = false;
+            return;
+        }
+        countFailure(e, true);
+    }
+
+    /** 一次成功的真实请求从发出到收到响应头的耗时 */
+    public synchronized void recordRequestRtt(Endpoint e, long rttMs) {
+        if (!Double.isNaN(e.probeRttMs)) processingMs = smooth(processingMs, Math.max(0, rttMs - e.probeRttMs));
+        e.rttMs = smooth(e.rttMs, rttMs);
+    }
+
+    /** 一次探测的网络往返，折算成真实请求口径再计入 */
+    public synchronized void recordRtt(Endpoint e, long probeRttMs) {
+        e.probeRttMs = smooth(e.probeRttMs, probeRttMs);
+        e.rttMs = smooth(e.rttMs, probeRttMs + (Double.isNaN(processingMs) ? 0 : processingMs));
+    }
+
+    private synchronized void recordProbe(Endpoint e, boolean ok) {
+        if (!ok) {
+            e.errorRate = e.errorRate * (1 - ERROR_ALPHA) + ERROR_ALPHA;
+            countFailure(e, false);
+        } else if (!e.downByTraffic) {
+            // 只能解除探测自己造成的摘除；真实请求在 5xx 时 HEAD 照样可能成功
+            e.downUntil = 0;
+        }
+    }
+
+    // 调用方持有锁
+    private void countFailure(Endpoint e, boolean byTraffic) {
+        if (++e.consecutiveFailures < FAILURES_TO_MARK_DOWN) return;
+        long now = System.currentTimeMillis();
+        e.downByTraffic = byTraffic || (e.downUntil > now && e.downByTraffic);
+        e.downUntil = now + downMs;
+        e.consecutiveFailures = 0;
+    }
+
+    private static double smooth(double current, double sample) {
+        return Double.isNaN(current) ? sample : current * (1 - RTT_ALPHA) + sample * RTT_ALPHA;
+    }
+
+    /**
+     * 对超过 probeIntervalMs 未探测的地址各发一个 HEAD。
+     * RTT 取请求发出到收到响应头的时间，不含建连；顺带把连接留在池里。
+     */
+    public void probe(OkHttpClient http) {
+        long now = System.currentTimeMillis();
+        List<Endpoint> due = new ArrayList<>();
+        synchronized (this) {
+            for (Endpoint e : endpoints) {
+                if (now - e.lastProbeAt < probeIntervalMs) continue;
+                e.lastProbeAt = now;
+                due.add(e);
+            }
+        }
+        for (Endpoint e : due) {
+            Request request = new Request.Builder().url(e.url).head().build();
+            http.newCall(request).enqueue(new okhttp3.Callback() {
+                @Override public void onFailure(Call call, IOException ex) {
+                    if (!call.isCanceled()) recordProbe(e, false);
+                }
+
+                @Override public void onResponse(Call call, Response response) {
+                    try {
+                        // 探测只关心能否到达，任何 HTTP 状态都算可达（根路径本来就不是合法接口）
+                        recordRtt(e, response.receivedResponseAtMillis() - response.sentRequestAtMillis());
+                        recordProbe(e, true);
+                    } finally {
+                        response.close();
+                    }
+                }
+            });
+        }
+    }
+
+    public synchronized List<Stats> stats() {
+        long now = System.currentTimeMillis();
+        List<Stats> out = new ArrayList<>(endpoints.size());
+        for (Endpoint e : endpoints) out.add(new Stats(e.url.toString(), e.rttMs, e.errorRate, e.downUntil <= now));
+        return out;
+    }
+}
@@ -0,0 +1,33 @@
+package com.jeffrey.finalwork.net;
+
+import java.util.Arrays;
+
+/** 最近 N 次成功请求的耗时，用于计算对冲延迟 */
+final class LatencyTracker {
+
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    LatencyTracker(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    synchronized void record(long ms) {
+        samples[next] = ms;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+    }
+
+    synchronized int size() {
+        return count;
+    }
+
+    synchronized long quantile(double q) {
+        if (count == 0) return 0;
+        long[] copy = Arrays.copyOf(samples, count);
+        Arrays.sort(copy);
+        int idx = (int) Math.ceil(q * count) - 1;
+        return copy[Math.max(0, Math.min(count - 1, idx))];
+    }
+}
@@ -0,0 +1,208 @@
+package com.jeffrey.finalwork.net;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 多张图片的并发识别：按提交顺序派发，同时在途数不超过 maxInFlight，
+ * 全部完成后把同一 pairKey 的正反面合并成一条 {@link Record}。
+ */
+public final class OcrBatch {
+
+    public static final class Item {
+        public final String pairKey;
+        public final CardSide side;
+        public final byte[] image;
+        public final String configJson;
+
+        public Item(String pairKey, CardSide side, byte[] image, String configJson) {
+            this.pairKey = pairKey;
+            this.side = side;
+            this.image = image;
+            this.configJson = configJson;
+        }
+    }
+
+    public static final class ItemResult {
+        public final int index;
+        public final Item item;
+        public final TencentOcrClient.OcrResult result;
+        public final OcrError error;
+        public final long elapsedMs;
+
+        ItemResult(int index, Item item, TencentOcrClient.OcrResult result, OcrError error, long elapsedMs) {
+            this.index = index;
+            this.item = item;
+            this.result = result;
+            this.error = error;
+            this.elapsedMs = elapsedMs;
+        }
+
+        public boolean isSuccess() {
+            return result != null;
+        }
+    }
+
+    /** 一张身份证的合并结果，front/back 缺失或失败时为 null */
+    public static final class Record {
+        public final String pairKey;
+        public TencentOcrClient.OcrResult front;
+        public TencentOcrClient.OcrResult back;
+
+        Record(String pairKey) {
+            this.pairKey = pairKey;
+        }
+
+        public TencentOcrClient.OcrResult merged() {
+            TencentOcrClient.OcrResult r = new TencentOcrClient.OcrResult();
+            if (front != null) {
+                r.name = front.name;
+                r.idNumber = front.idNumber;
+                r.address = front.address;
+                r.sex = front.sex;
+                r.nation = front.nation;
+                r.birth = front.birth;
+            }
+            if (back != null) {
+                r.authority = back.authority;
+                r.validDate = back.validDate;
+            }
+            return r;
+        }
+    }
+
+    public static final class Summary {
+        public final List<ItemResult> items;
+        public final List<Record> records;
+        public final int failed;
+        public final long elapsedMs;
+
+        Summary(List<ItemResult> items, List<Record> records, int failed, long elapsedMs) {
+            this.items = items;
+            this.records = records;
+            this.failed = failed;
+            this.elapsedMs = elapsedMs;
+        }
+    }
+
+    public interface Listener {
+        /** 单项完成，在网络线程回调，顺序不保证 */
+        void onItem(ItemResult result);
+        void onComplete(Summary summary);
+    }
+
+    private final TencentOcrClient client;
+    private final List<Item> items;
+    private final int maxInFlight;
+    private final Listener listener;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // 派发循环的重入计数：同时只有一个线程在循环里派发，其余只登记一次"再看看"
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicInteger remaining;
+    private final AtomicReferenceArray<ItemResult> results;
+    private long startedAt;
+
+    OcrBatch(TencentOcrClient client, List<Item> items, int maxInFlight, Listener listener) {
+        this.client = client;
+        this.items = new ArrayList<>(items);
+        this.maxInFlight = Math.max(1, maxInFlight);
+        this.listener = listener;
+        this.remaining = new AtomicInteger(items.size());
+        this.results = new AtomicReferenceArray<>(items.size());
+    }
+
+    void start() {
+        startedAt = System.currentTimeMillis();
+        if (items.isEmpty()) {
+            finish();
+            return;
+        }
+        pump();
+    }
+
+    /**
+     * 有空位就派发下一项。缓存命中、熔断、限流器当场放行时回调会在 idCardOcr 里同步发生，
+     * 这时 complete 再进来只会让外层循环多转一圈，不会一项套一项地递归下去。
+     */
+    private void pump() {
+        if (wip.getAndIncrement() != 0) return;
+        int missed = 1;
+        while (true) {
+            while (inFlight.get() < maxInFlight) {
+                int index = next.getAndIncrement();
+                if (index >= items.size()) break;
+                inFlight.incrementAndGet();
+                dispatch(index);
+            }
+            missed = wip.addAndGet(-missed);
+            if (missed == 0) return;
+        }
+    }
+
+    private void dispatch(int index) {
+        Item item = items.get(index);
+        long t0 = System.currentTimeMillis();
+        try {
+            client.idCardOcr(item.image, item.side, item.configJson, new TencentOcrClient.Callback() {
+                @Override public void onSuccess(TencentOcrClient.OcrResult result) {
+                    complete(new ItemResult(index, item, result, null, System.currentTimeMillis() - t0));
+                }
+
+                @Override public void onError(String msg) {
+                    onError(new OcrError("", msg, 0));
+                }
+
+                @Override public void onError(OcrError error) {
+                    complete(new ItemResult(index, item, null, error, System.currentTimeMillis() - t0));
+                }
+            });
+        } catch (RuntimeException e) {
+            // 一项抛异常不能让整批永远等不到 onComplete
+            complete(new ItemResult(index, item, null,
+                    new OcrError("", "Dispatch failed: " + e, 0), System.currentTimeMillis() - t0));
+        }
+    }
+
+    private void complete(ItemResult r) {
+        // 回调之后又抛异常的情况下只算第一次
+        if (!results.compareAndSet(r.index, null, r)) return;
+        try {
+            listener.onItem(r);
+        } finally {
+            // 一个完成就补一个，保持在途数稳定在 maxInFlight
+            inFlight.decrementAndGet();
+            if (remaining.decrementAndGet() == 0) finish();
+            else pump();
+        }
+    }
+
+    private void finish() {
+        List<ItemResult> all = new ArrayList<>(items.size());
+        Map<String, Record> records = new LinkedHashMap<>();
+        int failed = 0;
+        for (int i = 0; i < items.size(); i++) {
+            ItemResult r = results.get(i);
+            all.add(r);
+            Item item = items.get(i);
+            String key = item.pairKey != null ? item.pairKey : "#" + i;
+            Record rec = records.get(key);
+            if (rec == null) records.put(key, rec = new Record(key));
+            if (!r.isSuccess()) {
+                failed++;
+            } else if (item.side == CardSide.BACK) {
+                rec.back = r.result;
+            } else {
+                rec.front = r.result;
+            }
+        }
+        listener.onComplete(new Summary(Collections.unmodifiableList(all),
+                Collections.unmodifiableList(new ArrayList<>(records.values())),
+                failed, System.currentTimeMillis() - startedAt));
+    }
+}
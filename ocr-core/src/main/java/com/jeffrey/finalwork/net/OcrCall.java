@@ -0,0 +1,300 @@
+package com.jeffrey.finalwork.net;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import okhttp3.Call;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+/**
+ * 一次逻辑识别调用：负责熔断判断、对冲、指数退避重试，最终只回调一次。
+ * 每次尝试都通过 requestFactory 重新签名，保证时间戳新鲜。
+ * 每条腿发出前都要从 {@link OcrRateLimiter} 拿许可：主请求排队等，对冲拿不到就不发。
+ */
+final class OcrCall {
+
+    private static final long NO_RETRY = -1;
+    private static final long WAIT_OTHER_LEG = -2;
+
+    private final OkHttpClient http;
+    private final RetryPolicy policy;
+    private final CircuitBreaker breaker;
+    private final LatencyTracker latency;
+    private final ServerClock clock;
+    private final EndpointSelector endpoints;
+    private final OcrRateLimiter limiter;
+    private final OcrResponseDecoder.Options responseOptions;
+    private final Supplier<Request> requestFactory;
+    private final ScanTrace trace;
+    private final TencentOcrClient.Callback cb;
+
+    // 以下状态都由 this 加锁保护
+    private final List<Call> legs = new ArrayList<>(2);
+    private int attempt;
+    private int pendingLegs;
+    private boolean hedged;
+    private boolean skewRetried;
+    // 熔断器半开时放行的探测请求；重试和重签沿用这次放行，结束时由它给出结论
+    private boolean probe;
+    private boolean done;
+    private ScheduledFuture<?> timer;
+    // 正在排队等许可时，放弃排队的动作
+    private Runnable waiting;
+
+    OcrCall(OkHttpClient http, RetryPolicy policy, CircuitBreaker breaker, LatencyTracker latency,
+            ServerClock clock, EndpointSelector endpoints, OcrRateLimiter limiter, OcrResponseDecoder.Options responseOptions,
+            Supplier<Request> requestFactory, ScanTrace trace, TencentOcrClient.Callback cb) {
+        this.http = http;
+        this.policy = policy;
+        this.breaker = breaker;
+        this.latency = latency;
+        this.clock = clock;
+        this.endpoints = endpoints;
+        this.limiter = limiter;
+        this.responseOptions = responseOptions;
+        this.requestFactory = requestFactory;
+        this.trace = trace;
+        this.cb = cb;
+    }
+
+    void start() {
+        startAttempt();
+    }
+
+    void cancel() {
+        List<Call> toCancel;
+        Runnable leaveQueue;
+        boolean wasProbe;
+        synchronized (this) {
+            if (done) return;
+            done = true;
+            if (timer != null) timer.cancel(false);
+            toCancel = new ArrayList<>(legs);
+            leaveQueue = waiting;
+            waiting = null;
+            wasProbe = probe;
+        }
+        if (leaveQueue != null) leaveQueue.run();
+        for (Call c : toCancel) c.cancel();
+        // 只有探测请求占着半开名额
+        if (wasProbe) breaker.release();
+        cb.onError(new OcrError(OcrError.CANCELED, "已取消", 0));
+    }
+
+    private void startAttempt() {
+        if (!admit()) return;
+        if (limiter == null) {
+            onPermit(null);
+            return;
+        }
+        long t0 = System.nanoTime();
+        Runnable leave = limiter.acquire(permit -> {
+            TencentOcrClient.record(trace, ScanMetrics.Stage.QUEUE, t0, 0);
+            onPermit(permit);
+        });
+        synchronized (this) {
+            // 已经拿到许可（或整个调用已结束）时不用再记
+            if (!done && legs.isEmpty() && pendingLegs == 0) waiting = leave;
+        }
+    }
+
+    // 探测请求自己的重试不能被自己占着的半开状态挡掉；普通请求每次尝试都问熔断器
+    private boolean admit() {
+        synchronized (this) {
+            if (probe) return true;
+        }
+        CircuitBreaker.Admission a = breaker.admit();
+        if (a == CircuitBreaker.Admission.DENIED) {
+            finish(null, new OcrError(OcrError.CIRCUIT_OPEN, "服务暂不可用，请稍后重试", 0));
+            return false;
+        }
+        synchronized (this) {
+            if (!done) {
+                probe = a == CircuitBreaker.Admission.PROBE;
+                return true;
+            }
+        }
+        // 放行的同时已被取消，cancel 没看到探测标记，名额在这里归还
+        if (a == CircuitBreaker.Admission.PROBE) breaker.release();
+        return false;
+    }
+
+    private void onPermit(OcrRateLimiter.Permit permit) {
+        synchronized (this) {
+            waiting = null;
+            if (!done) {
+                hedged = false;
+                launchLeg(permit);
+                scheduleHedge();
+                return;
+            }
+        }
+        // 排队期间已被取消；许可在锁外归还，归还时可能直接放行别的调用
+        if (permit != null) permit.release();
+    }
+
+    // 调用方持有 this 锁
+    private void scheduleHedge() {
+        if (policy.hedging && latency.size() >= policy.minHedgeSamples) {
+            long delay = Math.max(policy.minHedgeDelayMs, latency.quantile(policy.hedgeQuantile));
+            timer = OcrHttp.scheduler().schedule(this::hedge, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void hedge() {
+        if (done || hedged || pendingLegs == 0) return;
+        OcrRateLimiter.Permit permit = null;
+        if (limiter != null) {
+            // 对冲是锦上添花，配额紧张时不和排队的主请求抢
+            permit = limiter.tryAcquire();
+            if (permit == null) return;
+        }
+        hedged = true;
+        launchLeg(permit);
+    }
+
+    // 调用方持有 this 锁；permit 在腿结束时于锁外结算
+    private void launchLeg(OcrRateLimiter.Permit permit) {
+        Call call = http.newCall(requestFactory.get());
+        legs.add(call);
+        pendingLegs++;
+        long t0 = System.nanoTime();
+        call.enqueue(new okhttp3.Callback() {
+            @Override public void onFailure(Call c, IOException e) {
+                OcrError error = c.isCanceled()
+                        ? new OcrError(OcrError.CANCELED, "已取消", 0)
+                        : OcrError.network(e.getMessage());
+                reportEndpoint(c, error, -1);
+                settle(permit, error, t0);
+                onLegDone(null, error, t0);
+            }
+
+            @Override public void onResponse(Call c, Response response) {
+                TencentOcrClient.OcrResult result = null;
+                OcrError error;
+                // 成功和失败的响应都带 Date 头，顺便校准时钟
+                Date serverDate = response.headers().getDate("Date");
+                if (serverDate != null) {
+                    clock.observe(serverDate.getTime(), response.sentRequestAtMillis(), response.receivedResponseAtMillis());
+                }
+                try (ResponseBody body = response.body()) {
+                    if (!response.isSuccessful()) {
+                        error = new OcrError("HTTP_" + response.code(), body != null ? body.string() : "", response.code());
+                    } else if (body == null) {
+                        error = new OcrError(OcrError.PARSE, "Empty response", response.code());
+                    } else {
+                        long parseStart = System.nanoTime();
+                        OcrResponseDecoder.Decoded d = OcrResponseDecoder.decode(body.charStream(), responseOptions);
+                        // 流式解析时读取响应体和解析交织在一起，这里的 PARSE 包含下载剩余部分
+                        TencentOcrClient.record(trace, ScanMetrics.Stage.PARSE, parseStart, 0);
+                        error = d.isError() ? new OcrError(d.errorCode, d.errorMessage, response.code()) : null;
+                        result = d.result;
+                    }
+                } catch (IOException e) {
+                    error = OcrError.network(e.getMessage());
+                } catch (Exception e) {
+                    error = new OcrError(OcrError.PARSE, "Parse error: " + e.getMessage(), response.code());
+                }
+                reportEndpoint(c, error, response.receivedResponseAtMillis() - response.sentRequestAtMillis());
+                settle(permit, error, t0);
+                onLegDone(result, error, t0);
+            }
+        });
+    }
+
+    // 被取消的对冲腿不代表地址好坏，不上报。只有成功的响应计入耗时：限流、报错的响应返回得快，会把估计拉低
+    private void reportEndpoint(Call c, OcrError error, long headerRttMs) {
+        EndpointSelector.Endpoint ep = c.request().tag(EndpointSelector.Endpoint.class);
+        if (ep == null || (error != null && OcrError.CANCELED.equals(error.code))) return;
+        endpoints.record(ep, error != null && error.isEndpointFailure());
+        if (error == null && headerRttMs >= 0) endpoints.recordRequestRtt(ep, headerRttMs);
+    }
+
+    private static void settle(OcrRateLimiter.Permit permit, OcrError error, long t0) {
+        if (permit == null) return;
+        if (error == null) permit.onSuccess((System.nanoTime() - t0) / 1_000_000);
+        else if (error.isThrottled()) permit.onThrottled();
+        else permit.release();
+    }
+
+    private void onLegDone(TencentOcrClient.OcrResult result, OcrError error, long t0) {
+        long elapsedMs = (System.nanoTime() - t0) / 1_000_000;
+        long backoff;
+        synchronized (this) {
+            pendingLegs--;
+            if (done) return;
+            if (error != null && error.isClockSkew() && !skewRetried) {
+                // 另一条腿用的是同一个时间戳，同样会被拒，等它回来再统一重签
+                if (pendingLegs > 0) return;
+                // Date 头已经校正了时钟偏差，立即重签重发一次，不占重试次数
+                skewRetried = true;
+                if (timer != null) timer.cancel(false);
+                legs.clear();
+                backoff = 0;
+            } else {
+                backoff = retryBackoff(error, elapsedMs);
+            }
+        }
+        if (backoff == WAIT_OTHER_LEG) return;
+        if (backoff >= 0) {
+            OcrHttp.scheduler().schedule(this::startAttempt, backoff, TimeUnit.MILLISECONDS);
+            return;
+        }
+        finish(result, error);
+    }
+
+    // 调用方持有 this 锁；返回退避毫秒数，NO_RETRY 表示就此结束，WAIT_OTHER_LEG 表示等另一条腿
+    private long retryBackoff(OcrError error, long elapsedMs) {
+        if (error == null) {
+            latency.record(elapsedMs);
+            return NO_RETRY;
+        }
+        if (!error.isRetryable()) return NO_RETRY;
+        // 另一条腿还在跑，等它的结果
+        if (pendingLegs > 0) return WAIT_OTHER_LEG;
+        // 主请求失败时对冲还没发出，直接进入重试
+        if (!hedged && timer != null && !timer.isDone()) timer.cancel(false);
+        if (attempt + 1 >= policy.maxAttempts) return NO_RETRY;
+        // 探测请求的中间失败不计，免得它还在重试时熔断器又放行下一个探测
+        if (error.isEndpointFailure() && !probe) breaker.onFailure();
+        attempt++;
+        legs.clear();
+        return policy.backoffMs(attempt);
+    }
+
+    private void finish(TencentOcrClient.OcrResult result, OcrError error) {
+        List<Call> others;
+        boolean wasProbe;
+        synchronized (this) {
+            if (done) return;
+            done = true;
+            if (timer != null) timer.cancel(false);
+            others = new ArrayList<>(legs);
+            wasProbe = probe;
+        }
+        // 先返回的一条已胜出，取消还在跑的对冲请求
+        for (Call c : others) c.cancel();
+        if (error == null) {
+            breaker.onSuccess();
+            cb.onSuccess(result);
+            return;
+        }
+        if (error.isEndpointFailure()) {
+            breaker.onFailure();
+        } else if (OcrError.CANCELED.equals(error.code)) {
+            if (wasProbe) breaker.release();
+        } else if (!OcrError.CIRCUIT_OPEN.equals(error.code)) {
+            // 业务错误 / 限流说明服务端可达
+            breaker.onSuccess();
+        }
+        cb.onError(error);
+    }
+}
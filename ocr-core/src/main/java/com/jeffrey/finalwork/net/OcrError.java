@@ -0,0 +1,67 @@
+package com.jeffrey.finalwork.net;
+
+/**
+ * 识别失败的分类信息：code 为腾讯云错误码，或 NETWORK / HTTP_xxx / CIRCUIT_OPEN 等本地分类。
+ */
+public final class OcrError {
+
+    public static final String NETWORK = "NETWORK";
+    public static final String CIRCUIT_OPEN = "CIRCUIT_OPEN";
+    public static final String PARSE = "PARSE";
+    public static final String CANCELED = "CANCELED";
+
+    public final String code;
+    public final String message;
+    public final int httpStatus;
+
+    public OcrError(String code, String message, int httpStatus) {
+        this.code = code == null ? "" : code;
+        this.message = message == null ? "" : message;
+        this.httpStatus = httpStatus;
+    }
+
+    public static OcrError network(String message) {
+        return new OcrError(NETWORK, message, 0);
+    }
+
+    public boolean isNetwork() {
+        return NETWORK.equals(code);
+    }
+
+    /** 限流、服务端内部错误、5xx、网络异常可以重试；鉴权、参数、图片类错误重试也没用 */
+    public boolean isRetryable() {
+        if (isNetwork()) return true;
+        if (httpStatus == 429 || httpStatus >= 500) return true;
+        return code.startsWith("RequestLimitExceeded")
+                || code.startsWith("InternalError")
+                || code.equals("FailedOperation.UnKnowError");
+    }
+
+    /** 图片或请求参数本身有问题（看不清、不是证件、参数非法），换网络、过一会儿再试都不会好 */
+    public boolean isBadInput() {
+        return code.startsWith("InvalidParameter")
+                || (code.startsWith("FailedOperation.") && code.contains("Image"));
+    }
+
+    /** 超过账号 QPS 配额，调用方应放慢而不是换地址 */
+    public boolean isThrottled() {
+        return httpStatus == 429 || code.startsWith("RequestLimitExceeded");
+    }
+
+    /** 签名时间戳与服务器时间相差过大，校正时钟后重签即可 */
+    public boolean isClockSkew() {
+        return "AuthFailure.SignatureExpire".equals(code);
+    }
+
+    /** 是否说明服务端本身不健康（计入熔断）；限流和业务错误不算 */
+    public boolean isEndpointFailure() {
+        return isNetwork() || httpStatus >= 500 || code.startsWith("InternalError");
+    }
+
+    @Override public String toString() {
+        if (isNetwork() || code.isEmpty()) return message;
+        if (code.startsWith("HTTP_")) return "HTTP " + httpStatus + " " + message;
+        if (CIRCUIT_OPEN.equals(code) || PARSE.equals(code) || CANCELED.equals(code)) return message;
+        return "Tencent Error: " + code + " " + message;
+    }
+}
@@ -0,0 +1,95 @@
+package com.jeffrey.finalwork.net;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Response;
+
+/**
+ * 把 OkHttp 的网络事件换算成 ScanMetrics 的阶段耗时。
+ * 请求带 ScanTrace 标签时记到该次扫描上，否则只记全局直方图。
+ * 上传和等待响应的耗时同时喂给客户端的 {@link UplinkEstimator}。
+ */
+final class OcrEventListener extends EventListener {
+
+    static EventListener.Factory factory(UplinkEstimator uplink) {
+        return call -> new OcrEventListener(call.request().tag(ScanTrace.class), uplink);
+    }
+
+    private final ScanTrace trace;
+    private final UplinkEstimator uplink;
+    private long dnsStart;
+    private long connectStart;
+    private long tlsStart;
+    private long uploadStart;
+    private long uploadEnd;
+    private long uploadBytes;
+    private long downloadStart;
+
+    private OcrEventListener(ScanTrace trace, UplinkEstimator uplink) {
+        this.trace = trace;
+        this.uplink = uplink;
+    }
+
+    private void record(ScanMetrics.Stage stage, long start, long byteCount) {
+        long d = System.nanoTime() - start;
+        if (trace != null) trace.record(stage, d, byteCount);
+        else ScanMetrics.global().record(stage, d, byteCount);
+    }
+
+    @Override public void dnsStart(Call call, String domainName) {
+        dnsStart = System.nanoTime();
+    }
+
+    @Override public void dnsEnd(Call call, String domainName, List<InetAddress> inetAddressList) {
+        record(ScanMetrics.Stage.DNS, dnsStart, 0);
+    }
+
+    @Override public void connectStart(Call call, InetSocketAddress inetSocketAddress, Proxy proxy) {
+        connectStart = System.nanoTime();
+    }
+
+    @Override public void secureConnectStart(Call call) {
+        tlsStart = System.nanoTime();
+        // TCP 部分到 TLS 开始为止
+        record(ScanMetrics.Stage.CONNECT, connectStart, 0);
+    }
+
+    @Override public void secureConnectEnd(Call call, Handshake handshake) {
+        record(ScanMetrics.Stage.TLS, tlsStart, 0);
+    }
+
+    @Override public void connectEnd(Call call, InetSocketAddress inetSocketAddress, Proxy proxy, Protocol protocol) {
+        if (tlsStart == 0) record(ScanMetrics.Stage.CONNECT, connectStart, 0);
+    }
+
+    @Override public void requestHeadersStart(Call call) {
+        uploadStart = System.nanoTime();
+    }
+
+    @Override public void requestBodyEnd(Call call, long byteCount) {
+        uploadEnd = System.nanoTime();
+        uploadBytes = byteCount;
+        record(ScanMetrics.Stage.UPLOAD, uploadStart, byteCount);
+    }
+
+    @Override public void responseHeadersStart(Call call) {
+        if (uploadEnd == 0) return;
+        record(ScanMetrics.Stage.SERVER_WAIT, uploadEnd, 0);
+        if (uplink != null) uplink.record(uploadBytes, uploadEnd - uploadStart, System.nanoTime() - uploadEnd);
+    }
+
+    @Override public void responseHeadersEnd(Call call, Response response) {
+        downloadStart = System.nanoTime();
+    }
+
+    @Override public void responseBodyEnd(Call call, long byteCount) {
+        if (downloadStart != 0) record(ScanMetrics.Stage.DOWNLOAD, downloadStart, byteCount);
+    }
+}
@@ -0,0 +1,16 @@
+package com.jeffrey.finalwork.net;
+
+/**
+ * 异步接口的失败包装，分类信息见 {@link #error}。
+ */
+public final class OcrException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public final OcrError error;
+
+    public OcrException(OcrError error) {
+        super(error.toString());
+        this.error = error;
+    }
+}
@@ -0,0 +1,94 @@
+package com.jeffrey.finalwork.net;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * 进程级共享的 HTTP 引擎：所有 TencentOcrClient 共用同一个连接池和调度器。
+ */
+public final class OcrHttp {
+
+    private static final long PREWARM_INTERVAL_MS = 30_000;
+
+    private static volatile OkHttpClient shared;
+    private static volatile ScheduledExecutorService scheduler;
+    // host -> 上次预热时间，避免连点拍照按钮时重复握手
+    private static final ConcurrentHashMap<String, Long> lastPrewarm = new ConcurrentHashMap<>();
+
+    private OcrHttp() {}
+
+    public static OkHttpClient shared() {
+        OkHttpClient c = shared;
+        if (c == null) {
+            synchronized (OcrHttp.class) {
+                c = shared;
+                if (c == null) shared = c = newClient();
+            }
+        }
+        return c;
+    }
+
+    /** 重试退避、对冲等定时任务共用的守护线程 */
+    static ScheduledExecutorService scheduler() {
+        ScheduledExecutorService s = scheduler;
+        if (s == null) {
+            synchronized (OcrHttp.class) {
+                s = scheduler;
+                if (s == null) {
+                    scheduler = s = Executors.newSingleThreadScheduledExecutor(r -> {
+                        Thread t = new Thread(r, "ocr-scheduler");
+                        t.setDaemon(true);
+                        return t;
+                    });
+                }
+            }
+        }
+        return s;
+    }
+
+    static OkHttpClient newClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(16);
+        dispatcher.setMaxRequestsPerHost(6);
+
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                // 单个域名为主，少量长连接即可；保活 5 分钟覆盖两次拍照的间隔
+                .connectionPool(new ConnectionPool(4, 5, TimeUnit.MINUTES))
+                .connectTimeout(10, TimeUnit.SECONDS)
+                .writeTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(20, TimeUnit.SECONDS)
+                .callTimeout(60, TimeUnit.SECONDS)
+                .retryOnConnectionFailure(true)
+                .build();
+    }
+
+    /** 提前完成 DNS / TCP / TLS，把握手移出拍照后的关键路径。结果被忽略，连接留在池中复用。 */
+    public static void prewarm(OkHttpClient http, String baseUrl) {
+        long now = System.currentTimeMillis();
+        Long last = lastPrewarm.get(baseUrl);
+        if (last != null && now - last < PREWARM_INTERVAL_MS) return;
+        lastPrewarm.put(baseUrl, now);
+
+        Request request = new Request.Builder().url(baseUrl).head().build();
+        http.newCall(request).enqueue(new okhttp3.Callback() {
+            @Override public void onFailure(Call call, IOException e) {
+                lastPrewarm.remove(baseUrl);
+            }
+
+            @Override public void onResponse(Call call, Response response) {
+                response.close();
+            }
+        });
+    }
+}
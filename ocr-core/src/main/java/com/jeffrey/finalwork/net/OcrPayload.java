@@ -0,0 +1,118 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.JsonPrimitive;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.HashingSink;
+import okio.Okio;
+
+/**
+ * IDCardOCR 请求体：写出时把图片边做 Base64 边写进 JSON 信封，内存里只有原图这一份，
+ * 外加一个分块缓冲。SHA-256 在创建时按同样方式编码一遍、直接喂给摘要算出，不留编码结果。
+ * 代价是每次写出（含重试、对冲）都要重新编码，相比上传耗时可以忽略。
+ */
+public final class OcrPayload {
+
+    private static final byte[] BASE64 =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes(StandardCharsets.US_ASCII);
+    // 3 的倍数，保证分块编码不会产生中间填充
+    private static final int CHUNK = 3 * 4096;
+
+    private final byte[] image;
+    private final byte[] head;
+    private final byte[] tail;
+    private final long length;
+    private String sha256Hex;
+
+    private OcrPayload(byte[] image, byte[] head, byte[] tail) {
+        this.image = image;
+        this.head = head;
+        this.tail = tail;
+        this.length = head.length + (image.length + 2L) / 3 * 4 + tail.length;
+    }
+
+    /** image 不复制，请求结束前调用方不能再改动它 */
+    public static OcrPayload encode(byte[] image, String cardSide, String configJson) {
+        StringBuilder tail = new StringBuilder(64);
+        tail.append("\",\"CardSide\":").append(new JsonPrimitive(cardSide));
+        if (configJson != null && !configJson.isEmpty()) {
+            tail.append(",\"Config\":").append(new JsonPrimitive(configJson));
+        }
+        tail.append('}');
+        OcrPayload payload = new OcrPayload(image,
+                "{\"ImageBase64\":\"".getBytes(StandardCharsets.UTF_8),
+                tail.toString().getBytes(StandardCharsets.UTF_8));
+        HashingSink hashing = HashingSink.sha256(Okio.blackhole());
+        try (BufferedSink sink = Okio.buffer(hashing)) {
+            payload.writeTo(sink);
+        } catch (IOException e) {
+            // 写入黑洞不会真正抛出 IOException
+            throw new IllegalStateException(e);
+        }
+        payload.sha256Hex = hashing.hash().hex();
+        return payload;
+    }
+
+    public String sha256Hex() {
+        return sha256Hex;
+    }
+
+    public long contentLength() {
+        return length;
+    }
+
+    public RequestBody toRequestBody(MediaType contentType) {
+        return new RequestBody() {
+            @Override public MediaType contentType() {
+                return contentType;
+            }
+
+            @Override public long contentLength() {
+                return length;
+            }
+
+            @Override public void writeTo(BufferedSink sink) throws IOException {
+                // 每次重新编码，同一请求体可被重试多次写出
+                OcrPayload.this.writeTo(sink);
+            }
+        };
+    }
+
+    private void writeTo(BufferedSink sink) throws IOException {
+        sink.write(head);
+        writeBase64(image, sink);
+        sink.write(tail);
+    }
+
+    private static void writeBase64(byte[] src, BufferedSink sink) throws IOException {
+        byte[] chunk = new byte[CHUNK / 3 * 4];
+        int i = 0;
+        int fullEnd = src.length - src.length % 3;
+        while (i < fullEnd) {
+            int end = Math.min(fullEnd, i + CHUNK);
+            int o = 0;
+            for (; i < end; i += 3) {
+                int v = (src[i] & 0xff) << 16 | (src[i + 1] & 0xff) << 8 | (src[i + 2] & 0xff);
+                chunk[o++] = BASE64[v >>> 18];
+                chunk[o++] = BASE64[(v >>> 12) & 0x3f];
+                chunk[o++] = BASE64[(v >>> 6) & 0x3f];
+                chunk[o++] = BASE64[v & 0x3f];
+            }
+            sink.write(chunk, 0, o);
+        }
+        int rest = src.length - fullEnd;
+        if (rest == 1) {
+            int v = (src[fullEnd] & 0xff) << 16;
+            sink.writeByte(BASE64[v >>> 18]).writeByte(BASE64[(v >>> 12) & 0x3f]).writeByte('=').writeByte('=');
+        } else if (rest == 2) {
+            int v = (src[fullEnd] & 0xff) << 16 | (src[fullEnd + 1] & 0xff) << 8;
+            sink.writeByte(BASE64[v >>> 18]).writeByte(BASE64[(v >>> 12) & 0x3f])
+                    .writeByte(BASE64[(v >>> 6) & 0x3f]).writeByte('=');
+        }
+    }
+}
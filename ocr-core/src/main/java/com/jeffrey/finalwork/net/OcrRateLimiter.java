@@ -0,0 +1,275 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.JsonObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * 进程内所有 {@link TencentOcrClient} 共用的请求闸门，让请求速率贴着账号配额走而不是反复撞限流：
+ * 令牌桶把每秒发出的请求数压在配置的 QPS 以内；并发上限按 AIMD 调整，
+ * 被限流时减半、耗时明显上涨时小幅收缩，健康时每轮加一。
+ * 拿不到许可的请求按先后顺序排队，不占调用线程和 OkHttp 线程。
+ */
+public final class OcrRateLimiter {
+
+    // IDCardOCR 默认配额每秒 20 次，留一成余量给时钟误差和服务端计数窗口
+    public static final double DEFAULT_QPS = 18;
+
+    private static final OcrRateLimiter SHARED = new OcrRateLimiter(DEFAULT_QPS, 8, 64);
+
+    // 耗时超过基线这么多倍视为服务端开始排队
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double THROTTLE_BACKOFF = 0.5;
+    private static final double LATENCY_BACKOFF = 0.9;
+    // 基线取最短耗时，慢慢上浮以适应换网络、换图片大小
+    private static final double BASELINE_RISE = 0.01;
+
+    public final class Permit {
+        private final long grantedNanos;
+        private boolean settled;
+
+        Permit(long grantedNanos) {
+            this.grantedNanos = grantedNanos;
+        }
+
+        /** 请求成功，latencyMs 为发出到拿到响应 */
+        public void onSuccess(long latencyMs) {
+            settle(this, latencyMs, false);
+        }
+
+        /** 服务端返回限流 */
+        public void onThrottled() {
+            settle(this, -1, true);
+        }
+
+        /** 网络错误、业务错误、取消等与配额无关的结束，只归还并发名额 */
+        public void release() {
+            settle(this, -1, false);
+        }
+    }
+
+    public static final class Stats {
+        public final double qps;
+        public final double limit;
+        public final int inFlight;
+        public final int queued;
+        public final long granted;
+        public final long throttled;
+        /** 排队等待许可的耗时（毫秒） */
+        public final RollingHistogram.Summary waitMs;
+
+        Stats(double qps, double limit, int inFlight, int queued, long granted, long throttled,
+              RollingHistogram.Summary waitMs) {
+            this.qps = qps;
+            this.limit = limit;
+            this.inFlight = inFlight;
+            this.queued = queued;
+            this.granted = granted;
+            this.throttled = throttled;
+            this.waitMs = waitMs;
+        }
+
+        public JsonObject toJson() {
+            JsonObject o = new JsonObject();
+            o.addProperty("qps", qps);
+            o.addProperty("limit", Math.round(limit * 10) / 10.0);
+            o.addProperty("inFlight", inFlight);
+            o.addProperty("queued", queued);
+            o.addProperty("granted", granted);
+            o.addProperty("throttled", throttled);
+            o.addProperty("waitP50", waitMs.p50);
+            o.addProperty("waitP95", waitMs.p95);
+            o.addProperty("waitMax", waitMs.max);
+            return o;
+        }
+    }
+
+    private static final class Waiter {
+        final Consumer<Permit> onGranted;
+        final long enqueuedNanos;
+
+        Waiter(Consumer<Permit> onGranted, long enqueuedNanos) {
+            this.onGranted = onGranted;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final LongSupplier nanoClock;
+    private final ScheduledExecutorService scheduler;
+    private final int minLimit;
+    private final int maxLimit;
+    private final RollingHistogram waits = new RollingHistogram(60_000, 5);
+
+    // 以下状态都由 this 加锁保护
+    private final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+    private double qps;
+    private double burst;
+    private double tokens;
+    private long refilledAt;
+    private double limit;
+    private int inFlight;
+    private double baselineMs = Double.NaN;
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+    private boolean drainScheduled;
+    private long granted;
+    private long throttled;
+
+    public OcrRateLimiter(double qps, int initialLimit, int maxLimit) {
+        this(qps, initialLimit, maxLimit, System::nanoTime, OcrHttp.scheduler());
+    }
+
+    OcrRateLimiter(double qps, int initialLimit, int maxLimit, LongSupplier nanoClock, ScheduledExecutorService scheduler) {
+        this.nanoClock = nanoClock;
+        this.scheduler = scheduler;
+        this.minLimit = 1;
+        this.maxLimit = Math.max(1, maxLimit);
+        this.limit = Math.max(minLimit, Math.min(this.maxLimit, initialLimit));
+        this.refilledAt = nanoClock.getAsLong();
+        setQps(qps);
+        this.tokens = burst;
+    }
+
+    /** 默认所有客户端共用这一个 */
+    public static OcrRateLimiter shared() {
+        return SHARED;
+    }
+
+    /**
+     * 账号配额调整后同步修改，建议取配额的九成。突发容量只有 100ms 的量：
+     * 服务端按整秒窗口计数，任一窗口内最多发出 1.1 倍 qps 个请求，仍在配额以内。
+     */
+    public synchronized void setQps(double qps) {
+        refill();
+        this.qps = Math.max(0.1, qps);
+        this.burst = Math.max(1, this.qps / 10);
+        tokens = Math.min(tokens, burst);
+    }
+
+    /**
+     * 排队申请一个许可，拿到时回调 onGranted（可能就在当前线程）；拿到的许可必须恰好结算一次。
+     * 返回的动作用于放弃排队，已经拿到许可后调用无效果。
+     */
+    public Runnable acquire(Consumer<Permit> onGranted) {
+        Waiter w = new Waiter(onGranted, nanoClock.getAsLong());
+        synchronized (this) {
+            queue.addLast(w);
+        }
+        drain();
+        return () -> {
+            synchronized (this) {
+                queue.remove(w);
+            }
+        };
+    }
+
+    /** 不排队：有空闲配额且没人在等时立即给许可，否则返回 null。用于对冲这类可有可无的请求 */
+    public synchronized Permit tryAcquire() {
+        refill();
+        if (!queue.isEmpty() || !available()) return null;
+        return grant();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(qps, limit, inFlight, queue.size(), granted, throttled, waits.summary());
+    }
+
+    /** 当前的并发上限 */
+    public synchronized double limit() {
+        return limit;
+    }
+
+    void drain() {
+        List<Waiter> ready = null;
+        List<Permit> permits = null;
+        synchronized (this) {
+            refill();
+            long now = nanoClock.getAsLong();
+            while (!queue.isEmpty() && available()) {
+                Waiter w = queue.pollFirst();
+                if (ready == null) {
+                    ready = new ArrayList<>();
+                    permits = new ArrayList<>();
+                }
+                ready.add(w);
+                permits.add(grant());
+                waits.record((now - w.enqueuedNanos) / 1_000_000);
+            }
+            // 卡在令牌上就等下一个令牌生成；卡在并发上限上由许可结算时再叫醒
+            if (!queue.isEmpty() && tokens < 1 && inFlight < (int) limit && !drainScheduled) {
+                long waitNanos = (long) Math.ceil((1 - tokens) / qps * 1e9);
+                drainScheduled = true;
+                scheduler.schedule(this::scheduledDrain, Math.max(1, waitNanos), TimeUnit.NANOSECONDS);
+            }
+        }
+        // 回调放在锁外，里面可能直接发请求
+        if (ready != null) {
+            for (int i = 0; i < ready.size(); i++) ready.get(i).onGranted.accept(permits.get(i));
+        }
+    }
+
+    private void scheduledDrain() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+        drain();
+    }
+
+    // 调用方持有锁
+    private boolean available() {
+        return tokens >= 1 && inFlight < (int) limit;
+    }
+
+    // 调用方持有锁
+    private Permit grant() {
+        tokens -= 1;
+        inFlight++;
+        granted++;
+        return new Permit(nanoClock.getAsLong());
+    }
+
+    // 调用方持有锁
+    private void refill() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * qps);
+        refilledAt = now;
+    }
+
+    private void settle(Permit permit, long latencyMs, boolean throttledResponse) {
+        synchronized (this) {
+            if (permit.settled) return;
+            permit.settled = true;
+            boolean saturated = inFlight >= limit / 2;
+            inFlight--;
+            if (throttledResponse) {
+                throttled++;
+                // 已经超配额了，攒下的令牌也别再突发出去
+                tokens = Math.min(tokens, 0);
+                decrease(permit, THROTTLE_BACKOFF);
+            } else if (latencyMs >= 0) {
+                boolean slow = !Double.isNaN(baselineMs) && latencyMs > baselineMs * LATENCY_TOLERANCE;
+                if (Double.isNaN(baselineMs) || latencyMs < baselineMs) baselineMs = latencyMs;
+                else baselineMs += (latencyMs - baselineMs) * BASELINE_RISE;
+                if (slow) {
+                    decrease(permit, LATENCY_BACKOFF);
+                } else if (saturated) {
+                    // 只有真用到了上限才往上加，否则空闲时上限会无限上涨
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+            }
+        }
+        drain();
+    }
+
+    // 调用方持有锁。在上次收缩之前发出的请求反映的是旧的并发，不重复收缩
+    private void decrease(Permit permit, double factor) {
+        if (permit.grantedNanos < lastDecreaseNanos) return;
+        limit = Math.max(minLimit, limit * factor);
+        lastDecreaseNanos = nanoClock.getAsLong();
+    }
+}
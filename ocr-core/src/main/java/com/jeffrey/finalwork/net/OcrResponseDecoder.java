@@ -0,0 +1,190 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Arrays;
+
+/**
+ * IDCardOCR 响应的流式解析：只取需要的字段，不建 JSON 树。
+ * AdvancedInfo 里的裁剪图默认直接跳过，不占内存。指定 cropDir 时 Base64 边解码边写文件，
+ * 但 AdvancedInfo 本身是一个 JSON 字符串，会先整段读进内存（两张裁剪图约几百 KB）；
+ * 请求 Config 里开了 CropIdCard / CropPortrait 却用不到时，不如直接关掉。
+ */
+public final class OcrResponseDecoder {
+
+    public static final class Options {
+        // 保留完整响应文本，仅调试用
+        public boolean keepRawJson = false;
+        // 裁剪图输出目录，null 表示不落盘也不解析
+        public File cropDir = null;
+    }
+
+    public static final class Decoded {
+        public TencentOcrClient.OcrResult result;
+        public String requestId = "";
+        public String errorCode = "";
+        public String errorMessage = "";
+
+        public boolean isError() {
+            return !errorCode.isEmpty();
+        }
+    }
+
+    private static final int[] BASE64_INDEX = new int[128];
+
+    static {
+        Arrays.fill(BASE64_INDEX, -1);
+        String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < alphabet.length(); i++) BASE64_INDEX[alphabet.charAt(i)] = i;
+    }
+
+    private OcrResponseDecoder() {}
+
+    public static Decoded decode(Reader body, Options opts) throws IOException {
+        if (opts.keepRawJson) {
+            StringBuilder sb = new StringBuilder();
+            char[] buf = new char[4096];
+            int n;
+            while ((n = body.read(buf)) > 0) sb.append(buf, 0, n);
+            String raw = sb.toString();
+            Decoded d = decodeStream(new StringReader(raw), opts);
+            if (d.result != null) d.result.rawJson = raw;
+            return d;
+        }
+        return decodeStream(body, opts);
+    }
+
+    private static Decoded decodeStream(Reader body, Options opts) throws IOException {
+        Decoded d = new Decoded();
+        boolean sawResponse = false;
+        try (JsonReader in = new JsonReader(body)) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if (!"Response".equals(in.nextName())) {
+                    in.skipValue();
+                    continue;
+                }
+                sawResponse = true;
+                readResponse(in, d, opts);
+            }
+            in.endObject();
+        }
+        if (!sawResponse) throw new IOException("Invalid JSON: no Response");
+        return d;
+    }
+
+    private static void readResponse(JsonReader in, Decoded d, Options opts) throws IOException {
+        TencentOcrClient.OcrResult r = new TencentOcrClient.OcrResult();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "Error": readError(in, d); break;
+                case "RequestId": d.requestId = str(in); break;
+                case "Name": r.name = str(in); break;
+                case "IdNum": r.idNumber = str(in); break;
+                case "Address": r.address = str(in); break;
+                case "Sex": r.sex = str(in); break;
+                case "Nation": r.nation = str(in); break;
+                case "Birth": r.birth = str(in); break;
+                case "Authority": r.authority = str(in); break;
+                case "ValidDate": r.validDate = str(in); break;
+                case "AdvancedInfo":
+                    if (opts.cropDir != null && in.peek() == JsonToken.STRING) {
+                        extractCrops(in.nextString(), r, opts.cropDir, d);
+                    } else {
+                        // skipValue 不会为跳过的字符串分配内存
+                        in.skipValue();
+                    }
+                    break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        r.requestId = d.requestId;
+        if (!d.isError()) d.result = r;
+    }
+
+    private static void readError(JsonReader in, Decoded d) throws IOException {
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "Code": d.errorCode = str(in); break;
+                case "Message": d.errorMessage = str(in); break;
+                default: in.skipValue(); break;
+            }
+        }
+        in.endObject();
+        if (d.errorCode.isEmpty()) d.errorCode = "Unknown";
+    }
+
+    private static String str(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return "";
+        }
+        return in.nextString();
+    }
+
+    // AdvancedInfo 本身是一段 JSON 字符串，直接在其字符上定位 IdCard / Portrait 并流式解码
+    private static void extractCrops(String info, TencentOcrClient.OcrResult r, File dir, Decoded d) throws IOException {
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+        String prefix = d.requestId.isEmpty() ? Long.toString(System.nanoTime()) : d.requestId;
+        r.cropIdCard = decodeField(info, "IdCard", new File(dir, prefix + "_idcard.jpg"));
+        r.cropPortrait = decodeField(info, "Portrait", new File(dir, prefix + "_portrait.jpg"));
+    }
+
+    private static File decodeField(String info, String key, File target) throws IOException {
+        int k = info.indexOf("\"" + key + "\"");
+        if (k < 0) return null;
+        int i = k + key.length() + 2;
+        while (i < info.length() && (info.charAt(i) == ':' || Character.isWhitespace(info.charAt(i)))) i++;
+        if (i >= info.length() || info.charAt(i) != '"') return null;
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(target))) {
+            if (decodeBase64(info, i + 1, out) == 0) {
+                //noinspection ResultOfMethodCallIgnored
+                target.delete();
+                return null;
+            }
+        }
+        return target;
+    }
+
+    /** 从 start 开始解码到下一个未转义的引号，忽略 JSON 转义的 '\' 和空白；返回写出的字节数 */
+    static long decodeBase64(CharSequence s, int start, OutputStream out) throws IOException {
+        byte[] buf = new byte[3 * 1024];
+        int n = 0;
+        long total = 0;
+        int acc = 0;
+        int bits = 0;
+        for (int i = start; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"') break;
+            if (c == '=') continue;
+            int v = c < 128 ? BASE64_INDEX[c] : -1;
+            if (v < 0) continue;
+            acc = (acc << 6) | v;
+            bits += 6;
+            if (bits >= 8) {
+                bits -= 8;
+                buf[n++] = (byte) (acc >> bits);
+                acc &= (1 << bits) - 1;
+                if (n == buf.length) {
+                    out.write(buf, 0, n);
+                    total += n;
+                    n = 0;
+                }
+            }
+        }
+        out.write(buf, 0, n);
+        return total + n;
+    }
+}
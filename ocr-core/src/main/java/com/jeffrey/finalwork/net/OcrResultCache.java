@@ -0,0 +1,292 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.Gson;
+
+import java.io.File;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.crypto.SecretKey;
+
+import okio.ByteString;
+
+/**
+ * 按内容寻址的识别结果缓存：key = SHA-256(图片字节) + CardSide + Config。
+ * 内存 LRU 为一级，可选的加密磁盘层为二级；相同 key 的并发请求只发一次网络调用。
+ * 缓存里存的是去掉原始响应和裁剪图的副本，每次命中再复制一份交出去。
+ */
+public final class OcrResultCache {
+
+    private static final Gson GSON = new Gson();
+
+    private final int maxEntries;
+    private final DiskTier disk;
+    private final LinkedHashMap<String, TencentOcrClient.OcrResult> memory;
+    // key -> 等待同一次网络调用结果的回调（含发起者自己）
+    private final Map<String, Flight> inFlight = new HashMap<>();
+
+    private static final class Flight {
+        final List<TencentOcrClient.Callback> waiters = new ArrayList<>(2);
+        OcrCall call;
+    }
+
+    public OcrResultCache(int maxEntries, DiskTier disk) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.disk = disk;
+        this.memory = new LinkedHashMap<String, TencentOcrClient.OcrResult>(16, 0.75f, true) {
+            @Override protected boolean removeEldestEntry(Map.Entry<String, TencentOcrClient.OcrResult> eldest) {
+                return size() > OcrResultCache.this.maxEntries;
+            }
+        };
+    }
+
+    public static String key(byte[] image, String cardSide, String configJson) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(image);
+            md.update((byte) 0);
+            md.update(String.valueOf(cardSide).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            md.update(String.valueOf(configJson).getBytes(StandardCharsets.UTF_8));
+            return ByteString.of(md.digest()).hex();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 error", e);
+        }
+    }
+
+    public TencentOcrClient.OcrResult get(String key) {
+        synchronized (memory) {
+            TencentOcrClient.OcrResult hit = memory.get(key);
+            if (hit != null) return hit.copy();
+        }
+        if (disk == null) return null;
+        TencentOcrClient.OcrResult fromDisk = disk.get(key);
+        if (fromDisk == null) return null;
+        TencentOcrClient.OcrResult stored = cacheable(fromDisk);
+        synchronized (memory) {
+            memory.put(key, stored);
+        }
+        return stored.copy();
+    }
+
+    public void put(String key, TencentOcrClient.OcrResult result) {
+        TencentOcrClient.OcrResult stored = cacheable(result);
+        synchronized (memory) {
+            memory.put(key, stored);
+        }
+        if (disk != null) disk.put(key, stored);
+    }
+
+    // 原始响应里带着裁剪图的 Base64，不能按 key 落盘；裁剪图文件只属于发起的那次请求
+    private static TencentOcrClient.OcrResult cacheable(TencentOcrClient.OcrResult result) {
+        TencentOcrClient.OcrResult c = result.copy();
+        c.rawJson = "";
+        c.cropIdCard = null;
+        c.cropPortrait = null;
+        return c;
+    }
+
+    // 裁剪图文件归拿原件的那一方处理，副本再指向同一文件会被重复删除或移动
+    private static TencentOcrClient.OcrResult withoutCrops(TencentOcrClient.OcrResult result) {
+        TencentOcrClient.OcrResult c = result.copy();
+        c.cropIdCard = null;
+        c.cropPortrait = null;
+        return c;
+    }
+
+    public void clear() {
+        synchronized (memory) {
+            memory.clear();
+        }
+        if (disk != null) disk.clear();
+    }
+
+    /**
+     * 加入同 key 的在途请求。返回 true 表示调用方是发起者，需要真正发请求，
+     * 并用 {@link #leaderCallback(String)} 作为网络回调。
+     * 上一次请求恰好在 {@link #get(String)} 之后完成时，直接用它刚写入的结果回调 cb 并返回 false。
+     */
+    boolean joinOrLead(String key, TencentOcrClient.Callback cb) {
+        TencentOcrClient.OcrResult hit;
+        synchronized (inFlight) {
+            Flight flight = inFlight.get(key);
+            if (flight != null) {
+                flight.waiters.add(cb);
+                return false;
+            }
+            // 发起者先 put 再摘掉在途记录，在途记录不在时结果要么还没有、要么已在内存里
+            synchronized (memory) {
+                hit = memory.get(key);
+            }
+            if (hit == null) {
+                flight = new Flight();
+                flight.waiters.add(cb);
+                inFlight.put(key, flight);
+                return true;
+            }
+        }
+        cb.onSuccess(hit.copy());
+        return false;
+    }
+
+    TencentOcrClient.Callback leaderCallback(String key) {
+        Flight flight;
+        synchronized (inFlight) {
+            flight = inFlight.get(key);
+        }
+        return new TencentOcrClient.Callback() {
+            @Override public void onSuccess(TencentOcrClient.OcrResult result) {
+                put(key, result);
+                // 排在最前的（一般是发起者）拿原件，搭车的各拿一份不带裁剪图的副本
+                List<TencentOcrClient.Callback> waiters = drain(key, flight);
+                for (int i = 0; i < waiters.size(); i++) {
+                    waiters.get(i).onSuccess(i == 0 ? result : withoutCrops(result));
+                }
+            }
+
+            @Override public void onError(String msg) {
+                onError(new OcrError("", msg, 0));
+            }
+
+            @Override public void onError(OcrError error) {
+                for (TencentOcrClient.Callback cb : drain(key, flight)) cb.onError(error);
+            }
+        };
+    }
+
+    /** 发起者把网络调用挂到这次在途记录上，所有等待者都退出时才真正取消 */
+    boolean attach(String key, OcrCall call) {
+        synchronized (inFlight) {
+            Flight flight = inFlight.get(key);
+            if (flight == null) return false;
+            flight.call = call;
+            return true;
+        }
+    }
+
+    /** 某个等待者不再需要结果；返回需要取消的网络调用（没人等了），否则返回 null */
+    OcrCall leave(String key, TencentOcrClient.Callback cb) {
+        synchronized (inFlight) {
+            Flight flight = inFlight.get(key);
+            if (flight == null || !flight.waiters.remove(cb) || !flight.waiters.isEmpty()) return null;
+            inFlight.remove(key);
+            return flight.call;
+        }
+    }
+
+    private List<TencentOcrClient.Callback> drain(String key, Flight flight) {
+        if (flight == null) return new ArrayList<>();
+        synchronized (inFlight) {
+            // 已被 leave 摘掉时不能误删同 key 的下一次请求
+            if (inFlight.get(key) == flight) inFlight.remove(key);
+            return new ArrayList<>(flight.waiters);
+        }
+    }
+
+    public interface DiskTier {
+        TencentOcrClient.OcrResult get(String key);
+        void put(String key, TencentOcrClient.OcrResult result);
+        void clear();
+    }
+
+    /** 每个 key 一个 AES-GCM 加密文件，按修改时间做 TTL 过期和数量上限淘汰 */
+    public static final class EncryptedDiskTier implements DiskTier {
+
+        private final File dir;
+        private final SealedBox box;
+        private final long ttlMs;
+        private final int maxFiles;
+
+        public EncryptedDiskTier(File dir, SecretKey key, long ttlMs, int maxFiles) {
+            this.dir = dir;
+            this.box = new SealedBox(key);
+            this.ttlMs = ttlMs;
+            this.maxFiles = Math.max(1, maxFiles);
+            //noinspection ResultOfMethodCallIgnored
+            dir.mkdirs();
+        }
+
+        @Override public synchronized TencentOcrClient.OcrResult get(String key) {
+            File f = file(key);
+            if (!f.isFile()) return null;
+            if (System.currentTimeMillis() - f.lastModified() > ttlMs) {
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+                return null;
+            }
+            try {
+                byte[] plain = box.open(readFully(f));
+                return GSON.fromJson(new String(plain, StandardCharsets.UTF_8), TencentOcrClient.OcrResult.class);
+            } catch (Exception e) {
+                // 密钥轮换或文件损坏：直接丢弃
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+                return null;
+            }
+        }
+
+        @Override public synchronized void put(String key, TencentOcrClient.OcrResult result) {
+            try {
+                byte[] sealed = box.seal(GSON.toJson(result).getBytes(StandardCharsets.UTF_8));
+                File tmp = new File(dir, key + ".tmp");
+                try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                    fos.write(sealed);
+                }
+                if (!tmp.renameTo(file(key))) {
+                    //noinspection ResultOfMethodCallIgnored
+                    tmp.delete();
+                }
+                evict();
+            } catch (Exception ignored) {
+                // 磁盘层只是加速，写失败不影响识别结果
+            }
+        }
+
+        @Override public synchronized void clear() {
+            File[] files = dir.listFiles();
+            if (files == null) return;
+            for (File f : files) {
+                //noinspection ResultOfMethodCallIgnored
+                f.delete();
+            }
+        }
+
+        private void evict() {
+            File[] files = dir.listFiles((d, name) -> name.endsWith(".bin"));
+            if (files == null) return;
+            long now = System.currentTimeMillis();
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified).reversed());
+            for (int i = 0; i < files.length; i++) {
+                if (i >= maxFiles || now - files[i].lastModified() > ttlMs) {
+                    //noinspection ResultOfMethodCallIgnored
+                    files[i].delete();
+                }
+            }
+        }
+
+        // java.nio.file.Files 需要 API 26，这里手动读
+        private static byte[] readFully(File f) throws IOException {
+            byte[] data = new byte[(int) f.length()];
+            try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+                in.readFully(data);
+            }
+            return data;
+        }
+
+        private File file(String key) {
+            return new File(dir, key + ".bin");
+        }
+    }
+}
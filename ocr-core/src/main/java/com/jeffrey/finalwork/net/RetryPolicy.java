@@ -0,0 +1,37 @@
+package com.jeffrey.finalwork.net;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 重试 / 对冲参数。对冲请求在 p95 延迟后仍未返回时再发一份，先返回者胜出；
+ * 注意两份请求都到达服务端时会各计费一次，所以每次调用最多对冲一次。
+ */
+public final class RetryPolicy {
+
+    public int maxAttempts = 3;
+    public long baseBackoffMs = 250;
+    public long maxBackoffMs = 4_000;
+
+    public boolean hedging = true;
+    public double hedgeQuantile = 0.95;
+    public long minHedgeDelayMs = 400;
+    // 样本太少时 p95 不可信，不对冲
+    public int minHedgeSamples = 20;
+
+    public static RetryPolicy defaults() {
+        return new RetryPolicy();
+    }
+
+    public static RetryPolicy none() {
+        RetryPolicy p = new RetryPolicy();
+        p.maxAttempts = 1;
+        p.hedging = false;
+        return p;
+    }
+
+    /** full jitter：在 [0, min(max, base * 2^attempt)] 之间均匀取值 */
+    long backoffMs(int attempt) {
+        long cap = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attempt, 16));
+        return ThreadLocalRandom.current().nextLong(cap + 1);
+    }
+}
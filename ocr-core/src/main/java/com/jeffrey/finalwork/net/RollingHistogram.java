@@ -0,0 +1,114 @@
+package com.jeffrey.finalwork.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁滚动直方图：按时间切成若干窗口轮转，桶按 log2 再四等分（相对误差约 19%）。
+ * 窗口复用时的清零与并发写入之间可能丢失极少量样本，对统计分位数无影响。
+ */
+public final class RollingHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+    private final long windowMs;
+    private final Window[] windows;
+
+    public RollingHistogram(long windowMs, int windowCount) {
+        this.windowMs = windowMs;
+        this.windows = new Window[windowCount];
+        for (int i = 0; i < windowCount; i++) windows[i] = new Window();
+    }
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        long epoch = System.currentTimeMillis() / windowMs;
+        Window w = windows[(int) (epoch % windows.length)];
+        long seen = w.epoch.get();
+        if (seen != epoch && w.epoch.compareAndSet(seen, epoch)) w.reset();
+        w.counts.incrementAndGet(bucket(value));
+        w.count.incrementAndGet();
+        w.sum.addAndGet(value);
+        long max;
+        while (value > (max = w.max.get()) && !w.max.compareAndSet(max, value)) { /* retry */ }
+    }
+
+    public Summary summary() {
+        long epoch = System.currentTimeMillis() / windowMs;
+        long[] merged = new long[BUCKETS];
+        long count = 0, sum = 0, max = 0;
+        for (Window w : windows) {
+            if (epoch - w.epoch.get() >= windows.length) continue;
+            for (int i = 0; i < BUCKETS; i++) merged[i] += w.counts.get(i);
+            count += w.count.get();
+            sum += w.sum.get();
+            max = Math.max(max, w.max.get());
+        }
+        return new Summary(count, sum, max,
+                percentile(merged, count, 0.50, max),
+                percentile(merged, count, 0.95, max),
+                percentile(merged, count, 0.99, max));
+    }
+
+    static int bucket(long v) {
+        if (v < SUB_BUCKETS) return (int) v;
+        int log = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (log - 2)) & (SUB_BUCKETS - 1);
+        return Math.min(BUCKETS - 1, log * SUB_BUCKETS + sub);
+    }
+
+    // 桶上界（含）
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) return bucket;
+        // 4..7 号桶不会被使用（4 以上的值最小落在 8 号桶）
+        if (bucket < 2 * SUB_BUCKETS) return SUB_BUCKETS - 1;
+        int log = bucket / SUB_BUCKETS;
+        int sub = bucket % SUB_BUCKETS;
+        return ((long) (SUB_BUCKETS + sub + 1) << (log - 2)) - 1;
+    }
+
+    private static long percentile(long[] counts, long total, double q, long max) {
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    public static final class Summary {
+        public final long count;
+        public final long sum;
+        public final long max;
+        public final long p50;
+        public final long p95;
+        public final long p99;
+
+        Summary(long count, long sum, long max, long p50, long p95, long p99) {
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+            this.p50 = p50;
+            this.p95 = p95;
+            this.p99 = p99;
+        }
+    }
+
+    private static final class Window {
+        final AtomicLong epoch = new AtomicLong(-1);
+        final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong sum = new AtomicLong();
+        final AtomicLong max = new AtomicLong();
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+}
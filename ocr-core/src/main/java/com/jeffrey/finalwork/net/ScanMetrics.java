@@ -0,0 +1,102 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.JsonObject;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 扫描流程分阶段计时：每个阶段一个耗时直方图（微秒）和字节计数。
+ * 写入无锁，可在任意线程调用；snapshot() 供测试和调试页读取。
+ */
+public final class ScanMetrics {
+
+    public enum Stage {
+        PREPARE,            // 解码 / 缩放 / 压缩
+        ENCODE,             // Base64 + JSON 信封 + 哈希
+        QUEUE,              // 等待限流器放行
+        SIGN,               // TC3 签名
+        DNS,
+        CONNECT,
+        TLS,
+        UPLOAD,             // 请求体写出
+        SERVER_WAIT,        // 请求发完到响应头到达
+        DOWNLOAD,           // 响应体读取
+        PARSE,              // 响应解析
+        UI_DISPATCH,        // 回调到主线程执行
+        TOTAL
+    }
+
+    private static final ScanMetrics GLOBAL = new ScanMetrics(60_000, 10);
+
+    private final EnumMap<Stage, RollingHistogram> latencies = new EnumMap<>(Stage.class);
+    private final EnumMap<Stage, AtomicLong> bytes = new EnumMap<>(Stage.class);
+    private final AtomicReference<ScanTrace> lastTrace = new AtomicReference<>();
+
+    public ScanMetrics(long windowMs, int windowCount) {
+        for (Stage s : Stage.values()) {
+            latencies.put(s, new RollingHistogram(windowMs, windowCount));
+            bytes.put(s, new AtomicLong());
+        }
+    }
+
+    public static ScanMetrics global() {
+        return GLOBAL;
+    }
+
+    public ScanTrace newTrace() {
+        return new ScanTrace(this);
+    }
+
+    public void record(Stage stage, long nanos, long byteCount) {
+        latencies.get(stage).record(nanos / 1_000);
+        if (byteCount > 0) bytes.get(stage).addAndGet(byteCount);
+    }
+
+    void onTraceFinished(ScanTrace trace) {
+        lastTrace.set(trace);
+    }
+
+    public Snapshot snapshot() {
+        EnumMap<Stage, RollingHistogram.Summary> stages = new EnumMap<>(Stage.class);
+        EnumMap<Stage, Long> totals = new EnumMap<>(Stage.class);
+        for (Stage s : Stage.values()) {
+            stages.put(s, latencies.get(s).summary());
+            totals.put(s, bytes.get(s).get());
+        }
+        return new Snapshot(stages, totals, lastTrace.get());
+    }
+
+    public static final class Snapshot {
+        public final Map<Stage, RollingHistogram.Summary> stages;
+        public final Map<Stage, Long> bytes;
+        public final ScanTrace lastScan;
+
+        Snapshot(Map<Stage, RollingHistogram.Summary> stages, Map<Stage, Long> bytes, ScanTrace lastScan) {
+            this.stages = stages;
+            this.bytes = bytes;
+            this.lastScan = lastScan;
+        }
+
+        /** 导出为 JSON，耗时单位为微秒 */
+        public JsonObject toJson() {
+            JsonObject root = new JsonObject();
+            for (Map.Entry<Stage, RollingHistogram.Summary> e : stages.entrySet()) {
+                RollingHistogram.Summary s = e.getValue();
+                if (s.count == 0) continue;
+                JsonObject o = new JsonObject();
+                o.addProperty("count", s.count);
+                o.addProperty("p50", s.p50);
+                o.addProperty("p95", s.p95);
+                o.addProperty("p99", s.p99);
+                o.addProperty("max", s.max);
+                o.addProperty("bytes", bytes.get(e.getKey()));
+                root.add(e.getKey().name(), o);
+            }
+            if (lastScan != null) root.add("lastScan", lastScan.toJson());
+            return root;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.jeffrey.finalwork.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.crypto.SecretKey;
+
+/**
+ * 持久化的待识别队列：每条记录（预处理后的图片 + 正反面 + Config）单独加密成一个文件，
+ * 进程被杀也不会丢。网络恢复后按批次、有限并发地清空；没清完的按退避自动再来。
+ */
+public final class ScanQueue {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String SUFFIX = ".scan";
+    // 被限流时整轮退避重来，不等下一次网络变化
+    private static final long THROTTLE_BACKOFF_MS = 2_000;
+    private static final long MAX_THROTTLE_BACKOFF_MS = 60_000;
+    // 网络一直在但请求失败（熔断、超时、服务端异常）时隔一段再来一轮，不能只等网络变化
+    private static final long RETRY_BACKOFF_MS = 30_000;
+    private static final long MAX_RETRY_BACKOFF_MS = 10 * 60_000;
+
+    public static final class Entry {
+        public final String id;
+        public final long createdAt;
+        public final CardSide side;
+        public final String configJson;
+        public final byte[] image;
+
+        Entry(String id, long createdAt, CardSide side, String configJson, byte[] image) {
+            this.id = id;
+            this.createdAt = createdAt;
+            this.side = side;
+            this.configJson = configJson;
+            this.image = image;
+        }
+    }
+
+    public interface DrainListener {
+        /** 一条排队记录识别成功，记录已从队列删除 */
+        void onResult(Entry entry, TencentOcrClient.OcrResult result);
+        /** 图片或参数有问题、重试也不会成功，记录已丢弃 */
+        void onDropped(Entry entry, OcrError error);
+        /** 本轮结束；remaining 为仍在队列中的条数 */
+        void onDrained(int succeeded, int remaining);
+    }
+
+    private final File dir;
+    private final SealedBox box;
+    private final Executor io;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // 等待中的下一轮，新一轮开始时取消，避免几条重试链叠在一起
+    private ScheduledFuture<?> pendingRetry;
+
+    public ScanQueue(File dir, SecretKey key) {
+        this(dir, key, Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "scan-queue");
+            t.setDaemon(true);
+            return t;
+        }));
+    }
+
+    /** io 用来读文件、解密下一批，可以和调用方共用同一个 IO 线程 */
+    public ScanQueue(File dir, SecretKey key, Executor io) {
+        this(dir, key, io, OcrHttp.scheduler());
+    }
+
+    ScanQueue(File dir, SecretKey key, Executor io, ScheduledExecutorService scheduler) {
+        this.dir = dir;
+        this.box = new SealedBox(key);
+        this.io = io;
+        this.scheduler = scheduler;
+        //noinspection ResultOfMethodCallIgnored
+        dir.mkdirs();
+    }
+
+    public synchronized String enqueue(byte[] image, CardSide side, String configJson) throws IOException {
+        long now = System.currentTimeMillis();
+        // 文件名以时间开头，目录排序即为先进先出
+        String id = String.format(java.util.Locale.US, "%013d_%s", now, UUID.randomUUID());
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(image.length + 256);
+        try (DataOutputStream out = new DataOutputStream(bos)) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(now);
+            out.writeUTF(side.name());
+            out.writeUTF(configJson == null ? "" : configJson);
+            out.writeInt(image.length);
+            out.write(image);
+        }
+        byte[] sealed;
+        try {
+            sealed = box.seal(bos.toByteArray());
+        } catch (GeneralSecurityException e) {
+            throw new IOException("加密失败", e);
+        }
+        File tmp = new File(dir, id + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(sealed);
+            fos.getFD().sync();
+        }
+        if (!tmp.renameTo(new File(dir, id + SUFFIX))) {
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            throw new IOException("写入队列失败");
+        }
+        return id;
+    }
+
+    public synchronized List<String> ids() {
+        String[] names = dir.list((d, name) -> name.endsWith(SUFFIX));
+        if (names == null) return new ArrayList<>();
+        Arrays.sort(names);
+        List<String> ids = new ArrayList<>(names.length);
+        for (String n : names) ids.add(n.substring(0, n.length() - SUFFIX.length()));
+        return ids;
+    }
+
+    public int size() {
+        return ids().size();
+    }
+
+    public synchronized Entry load(String id) throws IOException {
+        File f = new File(dir, id + SUFFIX);
+        byte[] sealed = new byte[(int) f.length()];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+            in.readFully(sealed);
+        }
+        byte[] plain;
+        try {
+            plain = box.open(sealed);
+        } catch (GeneralSecurityException e) {
+            throw new IOException("解密失败", e);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(plain))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) throw new IOException("未知队列格式: " + version);
+            long createdAt = in.readLong();
+            CardSide side = CardSide.valueOf(in.readUTF());
+            String config = in.readUTF();
+            byte[] image = new byte[in.readInt()];
+            in.readFully(image);
+            return new Entry(id, createdAt, side, config.isEmpty() ? null : config, image);
+        }
+    }
+
+    public synchronized void remove(String id) {
+        //noinspection ResultOfMethodCallIgnored
+        new File(dir, id + SUFFIX).delete();
+    }
+
+    /**
+     * 清空队列：第一批在调用线程上读入，之后每批在 io 线程上读，每批 maxParallel * 2 条交给批量识别。
+     * 只有图片、参数类错误会丢弃记录；网络、解析、鉴权、HTTP 错误都保留原记录并结束本轮，
+     * 30s 起按指数退避（上限 10 分钟）自动再来一轮，网络变化时调用方也可以提前开始。
+     * 被限流时不结束，按指数退避稍后接着清。同一时间只会有一轮在跑，重复调用直接返回 false。
+     */
+    public boolean drain(TencentOcrClient client, int maxParallel, DrainListener listener) {
+        return drain(client, Math.max(1, maxParallel), listener, 0);
+    }
+
+    private boolean drain(TencentOcrClient client, int maxParallel, DrainListener listener, int retryRounds) {
+        if (!draining.compareAndSet(false, true)) return false;
+        synchronized (this) {
+            if (pendingRetry != null) pendingRetry.cancel(false);
+            pendingRetry = null;
+        }
+        drainNextChunk(client, maxParallel, listener, 0, 0, retryRounds);
+        return true;
+    }
+
+    public boolean isDraining() {
+        return draining.get();
+    }
+
+    // retryRounds 是此前连续几轮都没清完，决定本轮没清完时等多久
+    private void drainNextChunk(TencentOcrClient client, int maxParallel, DrainListener listener,
+                                int succeededSoFar, int throttledRounds, int retryRounds) {
+        List<String> ids = ids();
+        List<Entry> chunk = new ArrayList<>();
+        for (String id : ids) {
+            if (chunk.size() >= maxParallel * 2) break;
+            try {
+                chunk.add(load(id));
+            } catch (IOException e) {
+                // 密钥丢失或文件损坏，无法恢复
+                remove(id);
+            }
+        }
+        if (chunk.isEmpty()) {
+            draining.set(false);
+            listener.onDrained(succeededSoFar, 0);
+            return;
+        }
+
+        List<OcrBatch.Item> items = new ArrayList<>(chunk.size());
+        for (Entry e : chunk) items.add(new OcrBatch.Item(e.id, e.side, e.image, e.configJson));
+
+        client.idCardOcrBatch(items, maxParallel, new OcrBatch.Listener() {
+            @Override public void onItem(OcrBatch.ItemResult r) {
+                Entry entry = chunk.get(r.index);
+                if (r.isSuccess()) {
+                    remove(entry.id);
+                    listener.onResult(entry, r.result);
+                } else if (r.error.isBadInput()) {
+                    remove(entry.id);
+                    listener.onDropped(entry, r.error);
+                }
+            }
+
+            @Override public void onComplete(OcrBatch.Summary summary) {
+                int ok = succeededSoFar + summary.items.size() - summary.failed;
+                boolean kept = false;
+                boolean offline = false;
+                for (OcrBatch.ItemResult r : summary.items) {
+                    if (r.isSuccess() || r.error.isBadInput()) continue;
+                    kept = true;
+                    if (!r.error.isThrottled()) offline = true;
+                }
+                if (!kept) {
+                    // 回调在网络线程上，下一批的读文件、解密放回 io 线程
+                    onIo(() -> drainNextChunk(client, maxParallel, listener, ok, 0, retryRounds));
+                } else if (offline) {
+                    // 留下的记录下一批还会读到，这一轮必须停，否则会原地打转
+                    draining.set(false);
+                    listener.onDrained(ok, size());
+                    int round = retryRounds + 1;
+                    scheduleRetry(() -> drain(client, maxParallel, listener, round),
+                            backoffMs(RETRY_BACKOFF_MS, MAX_RETRY_BACKOFF_MS, round));
+                } else {
+                    int round = throttledRounds + 1;
+                    scheduler.schedule(() -> onIo(() -> drainNextChunk(client, maxParallel, listener, ok, round, retryRounds)),
+                            throttleBackoffMs(round), TimeUnit.MILLISECONDS);
+                }
+            }
+        });
+    }
+
+    private void onIo(Runnable task) {
+        try {
+            io.execute(task);
+        } catch (RejectedExecutionException e) {
+            // IO 线程已关闭，这一轮到此为止
+            draining.set(false);
+        }
+    }
+
+    private synchronized void scheduleRetry(Runnable redrain, long delayMs) {
+        if (pendingRetry != null) pendingRetry.cancel(false);
+        pendingRetry = scheduler.schedule(() -> onIo(redrain), delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** 第 n 次连续限流后的等待：2s 起翻倍，上限 60s，在后一半区间内随机 */
+    static long throttleBackoffMs(int round) {
+        return backoffMs(THROTTLE_BACKOFF_MS, MAX_THROTTLE_BACKOFF_MS, round);
+    }
+
+    static long backoffMs(long base, long max, int round) {
+        long cap = Math.min(max, base << Math.min(round - 1, 16));
+        return cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+    }
+}
@@ -0,0 +1,61 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 单次扫描的分阶段记录。同一阶段多次出现（重试、对冲）时累加。
+ * 通过 Request.tag 传给 {@link OcrEventListener}，网络阶段由 OkHttp 事件自动填充。
+ */
+public final class ScanTrace {
+
+    private static final int N = ScanMetrics.Stage.values().length;
+
+    private final ScanMetrics metrics;
+    private final long startNanos = System.nanoTime();
+    private final AtomicLongArray nanos = new AtomicLongArray(N);
+    private final AtomicLongArray bytes = new AtomicLongArray(N);
+
+    ScanTrace(ScanMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void record(ScanMetrics.Stage stage, long durationNanos, long byteCount) {
+        nanos.addAndGet(stage.ordinal(), durationNanos);
+        if (byteCount > 0) bytes.addAndGet(stage.ordinal(), byteCount);
+        metrics.record(stage, durationNanos, byteCount);
+    }
+
+    /** 记录从 sinceNanos 到现在的耗时 */
+    public void since(ScanMetrics.Stage stage, long sinceNanos, long byteCount) {
+        record(stage, System.nanoTime() - sinceNanos, byteCount);
+    }
+
+    public void finish() {
+        record(ScanMetrics.Stage.TOTAL, System.nanoTime() - startNanos, 0);
+        metrics.onTraceFinished(this);
+    }
+
+    public long nanos(ScanMetrics.Stage stage) {
+        return nanos.get(stage.ordinal());
+    }
+
+    public long bytes(ScanMetrics.Stage stage) {
+        return bytes.get(stage.ordinal());
+    }
+
+    public JsonObject toJson() {
+        JsonObject o = new JsonObject();
+        for (ScanMetrics.Stage s : ScanMetrics.Stage.values()) {
+            long n = nanos.get(s.ordinal());
+            if (n == 0) continue;
+            JsonObject stage = new JsonObject();
+            stage.addProperty("us", n / 1_000);
+            long b = bytes.get(s.ordinal());
+            if (b > 0) stage.addProperty("bytes", b);
+            o.add(s.name(), stage);
+        }
+        return o;
+    }
+}
@@ -0,0 +1,46 @@
+package com.jeffrey.finalwork.net;
+
+import java.security.GeneralSecurityException;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * AES-GCM 封装：密文格式为 [IV 长度][IV][密文+Tag]。
+ * IV 由 Cipher 自行生成，因此同样适用于 Android Keystore 中不可导出的密钥。
+ */
+public final class SealedBox {
+
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = 128;
+
+    private final SecretKey key;
+
+    public SealedBox(SecretKey key) {
+        this.key = key;
+    }
+
+    public byte[] seal(byte[] plain) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, key);
+        byte[] iv = cipher.getIV();
+        byte[] out = new byte[1 + iv.length + cipher.getOutputSize(plain.length)];
+        out[0] = (byte) iv.length;
+        System.arraycopy(iv, 0, out, 1, iv.length);
+        int n = cipher.doFinal(plain, 0, plain.length, out, 1 + iv.length);
+        if (1 + iv.length + n == out.length) return out;
+        byte[] exact = new byte[1 + iv.length + n];
+        System.arraycopy(out, 0, exact, 0, exact.length);
+        return exact;
+    }
+
+    public byte[] open(byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length < 1) throw new GeneralSecurityException("sealed data too short");
+        int ivLen = sealed[0] & 0xff;
+        if (sealed.length < 1 + ivLen) throw new GeneralSecurityException("sealed data too short");
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, sealed, 1, ivLen));
+        return cipher.doFinal(sealed, 1 + ivLen, sealed.length - 1 - ivLen);
+    }
+}
@@ -0,0 +1,64 @@
+package com.jeffrey.finalwork.net;
+
+/**
+ * 服务器时间估计：从响应的 Date 头学习本机与服务端的时钟偏差，签名时间戳按偏差校正。
+ * 本机时间不准时，签名不会再因为 AuthFailure.SignatureExpire 白传一遍大图。
+ */
+public final class ServerClock {
+
+    /** 偏差持久化，进程重启后第一次请求就能用上 */
+    public interface Store {
+        long load();
+        void save(long offsetMs);
+    }
+
+    public static final Store NO_STORE = new Store() {
+        @Override public long load() {
+            return 0;
+        }
+
+        @Override public void save(long offsetMs) {}
+    };
+
+    // Date 头只精确到秒，加上往返时间的不确定性，小于这个值的变化不更新
+    private static final long MIN_CHANGE_MS = 2_000;
+
+    private final Store store;
+    private volatile long offsetMs;
+
+    public ServerClock(Store store) {
+        this.store = store;
+        this.offsetMs = store.load();
+    }
+
+    public long offsetMs() {
+        return offsetMs;
+    }
+
+    public long nowMillis() {
+        return System.currentTimeMillis() + offsetMs;
+    }
+
+    public long nowSeconds() {
+        return nowMillis() / 1000;
+    }
+
+    /**
+     * 记录一次响应的服务端时间。serverDateMs 取自 Date 头（截断到秒），
+     * sentAtMs / receivedAtMs 为本机发出请求和收到响应头的时间。
+     * 返回偏差是否发生了明显变化。
+     */
+    public boolean observe(long serverDateMs, long sentAtMs, long receivedAtMs) {
+        if (serverDateMs <= 0 || receivedAtMs < sentAtMs) return false;
+        // 服务端生成 Date 的时刻大致在往返中点，秒内部分取中值
+        long estimate = serverDateMs + 500 - (sentAtMs + (receivedAtMs - sentAtMs) / 2);
+        // 往返越久误差越大，只有超出误差范围的差异才值得采信
+        long tolerance = Math.max(MIN_CHANGE_MS, (receivedAtMs - sentAtMs) / 2 + 1_000);
+        synchronized (this) {
+            if (Math.abs(estimate - offsetMs) < tolerance) return false;
+            offsetMs = estimate;
+        }
+        store.save(estimate);
+        return true;
+    }
+}
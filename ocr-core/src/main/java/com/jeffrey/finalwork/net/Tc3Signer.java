@@ -0,0 +1,219 @@
+package com.jeffrey.finalwork.net;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+public final class Tc3Signer {
+
+    private static final String ALGORITHM = "TC3-HMAC-SHA256";
+    private static final String TERMINATION = "tc3_request";
+    private static final String SIGNED_HEADERS = "content-type;host;x-tc-action";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // 每个线程复用 Mac / MessageDigest / 缓冲区，签名过程不再反复 getInstance
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final String secretId;
+    private final byte[] rootKey;
+    // service -> 当天派生出的 secretSigning；跨天自动重新派生
+    private final ConcurrentHashMap<String, SigningKey> signingKeys = new ConcurrentHashMap<>();
+
+    public Tc3Signer(String secretId, String secretKey) {
+        this.secretId = secretId;
+        this.rootKey = ("TC3" + secretKey).getBytes(StandardCharsets.UTF_8);
+    }
+
+    public String authorization(
+            String service, String host,
+            String action,
+            String hashedPayload,
+            String contentType,
+            long timestampSeconds
+    ) {
+        Scratch s = SCRATCH.get();
+        long day = Math.floorDiv(timestampSeconds, 86_400L);
+        SigningKey key = signingKeys.get(service);
+        if (key == null || key.epochDay != day) {
+            key = new SigningKey(day, service, rootKey, s);
+            signingKeys.put(service, key);
+        }
+        return sign(s, secretId, key.date, key.spec, service, host, action, hashedPayload, contentType, timestampSeconds);
+    }
+
+    public static String buildAuthorization(
+            String secretId, String secretKey,
+            String service, String host,
+            String action,
+            String payload,
+            String contentType,
+            long timestampSeconds
+    ) {
+        return buildAuthorizationWithPayloadHash(
+                secretId, secretKey, service, host, action, sha256Hex(payload), contentType, timestampSeconds);
+    }
+
+    public static String buildAuthorizationWithPayloadHash(
+            String secretId, String secretKey,
+            String service, String host,
+            String action,
+            String hashedPayload,
+            String contentType,
+            long timestampSeconds
+    ) {
+        Scratch s = SCRATCH.get();
+        SigningKey key = new SigningKey(Math.floorDiv(timestampSeconds, 86_400L), service,
+                ("TC3" + secretKey).getBytes(StandardCharsets.UTF_8), s);
+        return sign(s, secretId, key.date, key.spec, service, host, action, hashedPayload, contentType, timestampSeconds);
+    }
+
+    static String sha256Hex(String s) {
+        Scratch scratch = SCRATCH.get();
+        return scratch.hex(scratch.sha256.digest(s.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String sign(
+            Scratch s, String secretId, String date, SecretKeySpec signingKey,
+            String service, String host, String action,
+            String hashedPayload, String contentType, long timestampSeconds
+    ) {
+        StringBuilder sb = s.sb;
+        sb.setLength(0);
+        sb.append("POST\n/\n\n")
+                .append("content-type:").append(contentType).append('\n')
+                .append("host:").append(host.toLowerCase(Locale.ROOT)).append('\n')
+                .append("x-tc-action:").append(action.toLowerCase(Locale.ROOT)).append('\n')
+                .append('\n')
+                .append(SIGNED_HEADERS).append('\n')
+                .append(hashedPayload);
+        String hashedCanonicalRequest = s.hex(s.sha256(sb));
+
+        sb.setLength(0);
+        sb.append(ALGORITHM).append('\n')
+                .append(timestampSeconds).append('\n')
+                .append(date).append('/').append(service).append('/').append(TERMINATION).append('\n')
+                .append(hashedCanonicalRequest);
+        String signature = s.hex(s.hmac(signingKey, sb));
+
+        sb.setLength(0);
+        return sb.append(ALGORITHM).append(' ')
+                .append("Credential=").append(secretId).append('/')
+                .append(date).append('/').append(service).append('/').append(TERMINATION).append(", ")
+                .append("SignedHeaders=").append(SIGNED_HEADERS).append(", ")
+                .append("Signature=").append(signature)
+                .toString();
+    }
+
+    /** epochDay -> "yyyy-MM-dd"（UTC），不依赖 SimpleDateFormat */
+    static String utcDate(long epochDay) {
+        // Howard Hinnant civil_from_days
+        long z = epochDay + 719_468;
+        long era = Math.floorDiv(z, 146_097);
+        long doe = z - era * 146_097;
+        long yoe = (doe - doe / 1460 + doe / 36_524 - doe / 146_096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        int d = (int) (doy - (153 * mp + 2) / 5 + 1);
+        int m = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long y = yoe + era * 400 + (m <= 2 ? 1 : 0);
+
+        char[] c = new char[10];
+        c[0] = (char) ('0' + y / 1000 % 10);
+        c[1] = (char) ('0' + y / 100 % 10);
+        c[2] = (char) ('0' + y / 10 % 10);
+        c[3] = (char) ('0' + y % 10);
+        c[4] = '-';
+        c[5] = (char) ('0' + m / 10);
+        c[6] = (char) ('0' + m % 10);
+        c[7] = '-';
+        c[8] = (char) ('0' + d / 10);
+        c[9] = (char) ('0' + d % 10);
+        return new String(c);
+    }
+
+    private static final class SigningKey {
+        final long epochDay;
+        final String date;
+        final SecretKeySpec spec;
+
+        SigningKey(long epochDay, String service, byte[] rootKey, Scratch s) {
+            this.epochDay = epochDay;
+            this.date = utcDate(epochDay);
+            byte[] secretDate = s.hmac(new SecretKeySpec(rootKey, "HmacSHA256"), date.getBytes(StandardCharsets.UTF_8));
+            byte[] secretService = s.hmac(new SecretKeySpec(secretDate, "HmacSHA256"), service.getBytes(StandardCharsets.UTF_8));
+            byte[] secretSigning = s.hmac(new SecretKeySpec(secretService, "HmacSHA256"), TERMINATION.getBytes(StandardCharsets.UTF_8));
+            this.spec = new SecretKeySpec(secretSigning, "HmacSHA256");
+        }
+    }
+
+    private static final class Scratch {
+        final Mac mac;
+        final MessageDigest sha256;
+        final StringBuilder sb = new StringBuilder(512);
+        final char[] hex = new char[64];
+        byte[] bytes = new byte[512];
+
+        Scratch() {
+            try {
+                mac = Mac.getInstance("HmacSHA256");
+                sha256 = MessageDigest.getInstance("SHA-256");
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("HMAC-SHA256/SHA-256 unavailable", e);
+            }
+        }
+
+        byte[] hmac(SecretKeySpec key, byte[] msg) {
+            try {
+                mac.init(key);
+                return mac.doFinal(msg);
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("HMAC-SHA256 error", e);
+            }
+        }
+
+        byte[] sha256(StringBuilder sb) {
+            int n = ascii(sb);
+            if (n < 0) return sha256.digest(sb.toString().getBytes(StandardCharsets.UTF_8));
+            sha256.update(bytes, 0, n);
+            return sha256.digest();
+        }
+
+        byte[] hmac(SecretKeySpec key, StringBuilder sb) {
+            int n = ascii(sb);
+            if (n < 0) return hmac(key, sb.toString().getBytes(StandardCharsets.UTF_8));
+            try {
+                mac.init(key);
+                mac.update(bytes, 0, n);
+                return mac.doFinal();
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException("HMAC-SHA256 error", e);
+            }
+        }
+
+        /** 纯 ASCII 时直接写入复用缓冲并返回长度，含非 ASCII 字符返回 -1 走 UTF-8 编码 */
+        private int ascii(StringBuilder sb) {
+            int n = sb.length();
+            if (bytes.length < n) bytes = new byte[Math.max(n, bytes.length * 2)];
+            for (int i = 0; i < n; i++) {
+                char c = sb.charAt(i);
+                if (c >= 0x80) return -1;
+                bytes[i] = (byte) c;
+            }
+            return n;
+        }
+
+        String hex(byte[] bytes) {
+            char[] out = bytes.length * 2 <= hex.length ? hex : new char[bytes.length * 2];
+            for (int i = 0; i < bytes.length; i++) {
+                out[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+                out[2 * i + 1] = HEX[bytes[i] & 0x0f];
+            }
+            return new String(out, 0, bytes.length * 2);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.jeffrey.finalwork.net;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+public class TencentOcrClient {
+
+    public static class OcrResult {
+        public String name = "";
+        public String idNumber = "";
+        public String address = "";
+        public String sex = "";
+        public String nation = "";
+        public String birth = "";
+        // 国徽面字段
+        public String authority = "";
+        public String validDate = "";
+        public String requestId = "";
+        // 仅在 Options.keepRawJson 时填充
+        public String rawJson = "";
+        // 裁剪图文件，仅在 Options.cropDir 设置时生成；不进入结果缓存
+        public transient File cropIdCard;
+        public transient File cropPortrait;
+
+        /** 逐字段复制；结果缓存交出去的都是副本，调用方改动字段不会影响其他人 */
+        public OcrResult copy() {
+            OcrResult c = new OcrResult();
+            c.name = name;
+            c.idNumber = idNumber;
+            c.address = address;
+            c.sex = sex;
+            c.nation = nation;
+            c.birth = birth;
+            c.authority = authority;
+            c.validDate = validDate;
+            c.requestId = requestId;
+            c.rawJson = rawJson;
+            c.cropIdCard = cropIdCard;
+            c.cropPortrait = cropPortrait;
+            return c;
+        }
+    }
+
+    public interface Callback {
+        void onSuccess(OcrResult result);
+        void onError(String msg);
+
+        /** 带错误分类的失败回调，默认转成文本 */
+        default void onError(OcrError error) {
+            onError(error.toString());
+        }
+    }
+
+    public static final String DEFAULT_ENDPOINT = "https://ocr.tencentcloudapi.com";
+    private static final String SERVICE = "ocr";
+    private static final String ACTION = "IDCardOCR";
+    private static final String VERSION = "2018-11-19";
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String EMPTY_SHA256 = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+
+    private final Tc3Signer signer;
+    private final String region;
+    private final OkHttpClient http;
+    private volatile EndpointSelector endpoints = EndpointSelector.single(DEFAULT_ENDPOINT, null);
+    private volatile OcrResultCache cache;
+    private volatile OcrResponseDecoder.Options responseOptions = new OcrResponseDecoder.Options();
+    private volatile RetryPolicy retryPolicy = RetryPolicy.defaults();
+    private final CircuitBreaker breaker = new CircuitBreaker(5, 15_000);
+    private final LatencyTracker latency = new LatencyTracker(128);
+    private volatile ServerClock clock = new ServerClock(ServerClock.NO_STORE);
+    private final UplinkEstimator uplink = new UplinkEstimator();
+    private volatile OcrRateLimiter limiter = OcrRateLimiter.shared();
+
+    public TencentOcrClient(String secretId, String secretKey, String region) {
+        this(secretId, secretKey, region, OcrHttp.shared());
+    }
+
+    public TencentOcrClient(String secretId, String secretKey, String region, OkHttpClient http) {
+        this.signer = new Tc3Signer(secretId, secretKey);
+        this.region = region;
+        // 共享同一连接池和调度器，只是挂上分阶段计时
+        this.http = http.newBuilder().eventListenerFactory(OcrEventListener.factory(uplink)).build();
+    }
+
+    public void setCache(OcrResultCache cache) {
+        this.cache = cache;
+    }
+
+    public void setResponseOptions(OcrResponseDecoder.Options options) {
+        this.responseOptions = options;
+    }
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    /** 默认与进程内其他客户端共用 {@link OcrRateLimiter#shared()}；传 null 不做客户端限流 */
+    public void setRateLimiter(OcrRateLimiter limiter) {
+        this.limiter = limiter;
+    }
+
+    public OcrRateLimiter rateLimiter() {
+        return limiter;
+    }
+
+    /** 签名时间戳按服务器时间校正；传入带持久化的实例可跨进程保留偏差 */
+    public void setClock(ServerClock clock) {
+        this.clock = clock;
+    }
+
+    public ServerClock clock() {
+        return clock;
+    }
+
+    /** 最近上传的带宽估计，配合 {@link UploadPlanner} 决定下一张图的压缩规格 */
+    public UplinkEstimator uplink() {
+        return uplink;
+    }
+
+    /** 替换服务地址，例如本地压测用的模拟服务；签名和 Host 头跟着变 */
+    public void setEndpoint(String baseUrl) {
+        this.endpoints = EndpointSelector.single(baseUrl, null);
+    }
+
+    /** 多个候选地址时按探测 RTT 和错误率选路，失败自动切换 */
+    public void setEndpointSelector(EndpointSelector selector) {
+        this.endpoints = selector;
+    }
+
+    public EndpointSelector endpointSelector() {
+        return endpoints;
+    }
+
+    public String endpoint() {
+        return endpoints.select().url.toString();
+    }
+
+    /** 探测各候选地址并预连当前最优的那个 */
+    public void prewarm() {
+        EndpointSelector selector = endpoints;
+        selector.probe(http);
+        OcrHttp.prewarm(http, selector.select().url.toString());
+    }
+
+    /**
+     * 提前做掉 JCA Provider 加载、当天签名密钥派生、JSON 解析相关类加载等一次性开销，
+     * 首个真实请求不再承担。不发网络请求，在后台线程调用。
+     */
+    public void warmUp() {
+        signer.authorization(SERVICE, endpoints.select().host, ACTION, EMPTY_SHA256, CONTENT_TYPE, clock.nowSeconds());
+        try {
+            OcrResponseDecoder.decode(new StringReader("{\"Response\":{\"RequestId\":\"\"}}"), responseOptions);
+        } catch (IOException ignored) {}
+    }
+
+    public void idCardOcr(byte[] image, CardSide side, String configJson, Callback cb) {
+        idCardOcr(image, side.name(), configJson, null, cb);
+    }
+
+    /** trace 不为空时，编码 / 签名 / 网络 / 解析各阶段耗时记到该次扫描上 */
+    public void idCardOcr(byte[] image, CardSide side, String configJson, ScanTrace trace, Callback cb) {
+        idCardOcr(image, side.name(), configJson, trace, cb);
+    }
+
+    /** 批量识别：最多 maxInFlight 个请求同时在途，正反面按 pairKey 合并为一条记录 */
+    public void idCardOcrBatch(List<OcrBatch.Item> items, int maxInFlight, OcrBatch.Listener listener) {
+        new OcrBatch(this, items, maxInFlight, listener).start();
+    }
+
+    public void idCardOcr(byte[] image, String cardSide, String configJson, Callback cb) {
+        idCardOcr(image, cardSide, configJson, null, cb);
+    }
+
+    /**
+     * 可取消的异步识别。编码和首次签名在调用线程完成，调用方应放在后台线程。
+     * cancel() 会取消底层 OkHttp 请求（含对冲和等待中的重试）；失败时以 {@link OcrException} 完成。
+     */
+    public CompletableFuture<OcrResult> idCardOcrAsync(byte[] image, CardSide side, String configJson, ScanTrace trace) {
+        OcrFuture future = new OcrFuture();
+        future.setCancelHook(idCardOcr(image, side.name(), configJson, trace, future));
+        return future;
+    }
+
+    /** 返回取消动作；缓存命中时为 null */
+    private Runnable idCardOcr(byte[] image, String cardSide, String configJson, ScanTrace trace, Callback cb) {
+        OcrResultCache cache = this.cache;
+        if (cache == null) {
+            OcrCall call = prepareCall(image, cardSide, configJson, trace, cb);
+            call.start();
+            return call::cancel;
+        }
+
+        String key = OcrResultCache.key(image, cardSide, configJson);
+        OcrResult hit = cache.get(key);
+        if (hit != null) {
+            cb.onSuccess(hit);
+            return null;
+        }
+        Callback waiter = cb;
+        Runnable leave = () -> {
+            OcrCall orphan = cache.leave(key, waiter);
+            if (orphan != null) orphan.cancel();
+        };
+        // 相同图片已在识别中：挂到那次请求上，不再重复计费；那次刚好做完时直接拿它的结果
+        if (!cache.joinOrLead(key, cb)) return leave;
+        OcrCall call = prepareCall(image, cardSide, configJson, trace, cache.leaderCallback(key));
+        // 编码期间所有等待者都已取消，就不必再发请求
+        if (cache.attach(key, call)) call.start();
+        return leave;
+    }
+
+    private OcrCall prepareCall(byte[] image, String cardSide, String configJson, ScanTrace trace, Callback cb) {
+        long t0 = System.nanoTime();
+        OcrPayload payload = OcrPayload.encode(image, cardSide, configJson);
+        record(trace, ScanMetrics.Stage.ENCODE, t0, payload.contentLength());
+
+        RequestBody body = payload.toRequestBody(MediaType.parse(CONTENT_TYPE));
+        return new OcrCall(http, retryPolicy, breaker, latency, clock, endpoints, limiter, responseOptions,
+                () -> buildRequest(payload.sha256Hex(), body, trace), trace, cb);
+    }
+
+    // 每次尝试重新签名，重试和对冲不会用到过期的时间戳
+    private Request buildRequest(String payloadHash, RequestBody body, ScanTrace trace) {
+        // 每次尝试重新选路，重试时自然切到其他地址
+        EndpointSelector.Endpoint ep = endpoints.select();
+        // 时间戳和签名日期都取校正后的服务器时间
+        long ts = clock.nowSeconds();
+
+        long t0 = System.nanoTime();
+        String authorization = signer.authorization(
+                SERVICE, ep.host, ACTION, payloadHash, CONTENT_TYPE, ts
+        );
+        record(trace, ScanMetrics.Stage.SIGN, t0, 0);
+
+        return new Request.Builder()
+                .url(ep.url)
+                .tag(ScanTrace.class, trace)
+                .tag(EndpointSelector.Endpoint.class, ep)
+                .post(body)
+                .addHeader("Authorization", authorization)
+                .addHeader("Content-Type", CONTENT_TYPE)
+                .addHeader("Host", ep.host)
+                .addHeader("X-TC-Action", ACTION)
+                .addHeader("X-TC-Timestamp", String.valueOf(ts))
+                .addHeader("X-TC-Version", VERSION)
+                .addHeader("X-TC-Region", ep.region != null ? ep.region : region)
+                .build();
+    }
+
+    private static final class OcrFuture extends CompletableFuture<OcrResult> implements Callback {
+        private volatile Runnable cancelHook;
+
+        void setCancelHook(Runnable hook) {
+            cancelHook = hook;
+            // cancel() 可能发生在请求发出之前
+            if (hook != null && isCancelled()) hook.run();
+        }
+
+        @Override public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean canceled = super.cancel(mayInterruptIfRunning);
+            Runnable hook = cancelHook;
+            if (canceled && hook != null) hook.run();
+            return canceled;
+        }
+
+        @Override public void onSuccess(OcrResult result) {
+            complete(result);
+        }
+
+        @Override public void onError(String msg) {
+            onError(new OcrError("", msg, 0));
+        }
+
+        @Override public void onError(OcrError error) {
+            completeExceptionally(new OcrException(error));
+        }
+    }
+
+    static void record(ScanTrace trace, ScanMetrics.Stage stage, long startNanos, long byteCount) {
+        long d = System.nanoTime() - startNanos;
+        if (trace != null) trace.record(stage, d, byteCount);
+        else ScanMetrics.global().record(stage, d, byteCount);
+    }
+}
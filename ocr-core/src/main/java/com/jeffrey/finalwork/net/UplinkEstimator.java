@@ -0,0 +1,56 @@
+package com.jeffrey.finalwork.net;
+
+/**
+ * 从最近几次上传估计当前上行带宽，由 {@link OcrEventListener} 在每次收到响应头时喂数据。
+ * 请求体写完只代表进了内核发送缓冲区，剩余部分是在等待响应期间发出去的；
+ * 等待时间里扣掉历史最短等待（服务端处理 + RTT 的近似）后计入上传时间。
+ */
+public final class UplinkEstimator {
+
+    // 太小的请求体基本全在发送缓冲区里，测不出带宽
+    private static final long MIN_SAMPLE_BYTES = 16 * 1024;
+    private static final double ALPHA = 0.3;
+    // 最短等待只慢慢上浮，换网络后几次请求内跟上
+    private static final double WAIT_RISE = 0.1;
+    // 太久没有样本就当作未知，网络可能已经换了
+    private static final long STALE_MS = 5 * 60_000;
+
+    private double bytesPerSecond = Double.NaN;
+    private double minWaitMs = Double.NaN;
+    private long lastSampleAt;
+
+    /** bytes 为请求体字节数；writeNanos 为请求头开始写到请求体写完，waitNanos 为之后到响应头到达 */
+    public synchronized void record(long bytes, long writeNanos, long waitNanos) {
+        double waitMs = waitNanos / 1e6;
+        boolean newMin = Double.isNaN(minWaitMs) || waitMs < minWaitMs;
+        if (newMin) minWaitMs = waitMs;
+        if (bytes >= MIN_SAMPLE_BYTES) {
+            double sendMs = writeNanos / 1e6 + Math.max(0, waitMs - minWaitMs);
+            if (sendMs > 0) {
+                double sample = bytes * 1000.0 / sendMs;
+                bytesPerSecond = Double.isNaN(bytesPerSecond) ? sample : bytesPerSecond * (1 - ALPHA) + sample * ALPHA;
+                lastSampleAt = System.currentTimeMillis();
+            }
+        }
+        // 先用旧的最短等待算完样本再上浮
+        if (!newMin) minWaitMs += (waitMs - minWaitMs) * WAIT_RISE;
+    }
+
+    /** 当前估计的上行字节/秒，没有可信样本时为 NaN */
+    public synchronized double bytesPerSecond() {
+        if (Double.isNaN(bytesPerSecond) || System.currentTimeMillis() - lastSampleAt > STALE_MS) return Double.NaN;
+        return bytesPerSecond;
+    }
+
+    /** 与请求大小无关的固定耗时（服务端处理 + RTT）估计，未知时为 0 */
+    public synchronized long fixedOverheadMs() {
+        return Double.isNaN(minWaitMs) ? 0 : Math.round(minWaitMs);
+    }
+
+    /** 预测上传 wireBytes 字节请求体到拿到响应头的耗时，带宽未知时返回 -1 */
+    public long predictMs(long wireBytes) {
+        double bps = bytesPerSecond();
+        if (Double.isNaN(bps)) return -1;
+        return Math.round(wireBytes * 1000.0 / bps) + fixedOverheadMs();
+    }
+}
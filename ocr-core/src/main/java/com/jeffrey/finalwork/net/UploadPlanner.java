@@ -0,0 +1,56 @@
+package com.jeffrey.finalwork.net;
+
+/**
+ * 按当前上行带宽决定下一张图的上传规格：预测上传耗时不超过 latencyBudgetMs，
+ * 但分辨率、体积和 JPEG 质量都不低于保证识别准确率的下限。带宽未知时按上限走。
+ */
+public final class UploadPlanner {
+
+    public static final class Target {
+        public final int maxBytes;
+        public final int maxLongEdge;
+        public final int quality;
+
+        Target(int maxBytes, int maxLongEdge, int quality) {
+            this.maxBytes = maxBytes;
+            this.maxLongEdge = maxLongEdge;
+            this.quality = quality;
+        }
+    }
+
+    // 请求体是 Base64 包在 JSON 里，约为 JPEG 字节数的 4/3
+    static final double WIRE_OVERHEAD = 4.0 / 3;
+
+    /** 从发请求到响应头到达的目标耗时 */
+    public long latencyBudgetMs = 2_000;
+
+    public int maxBytes = 600 * 1024;
+    public int maxLongEdge = 1600;
+    public int maxQuality = 90;
+
+    // 低于这些值身份证号、地址的识别错误率明显上升
+    public int minBytes = 100 * 1024;
+    public int minLongEdge = 960;
+    public int minQuality = 60;
+
+    public Target plan(UplinkEstimator uplink) {
+        return plan(uplink.bytesPerSecond(), uplink.fixedOverheadMs());
+    }
+
+    Target plan(double bytesPerSecond, long fixedOverheadMs) {
+        if (Double.isNaN(bytesPerSecond) || bytesPerSecond <= 0) {
+            return new Target(maxBytes, maxLongEdge, maxQuality);
+        }
+        double seconds = Math.max(0, latencyBudgetMs - fixedOverheadMs) / 1000.0;
+        long jpegBudget = (long) (bytesPerSecond * seconds / WIRE_OVERHEAD);
+        int bytes = (int) Math.max(minBytes, Math.min(maxBytes, jpegBudget));
+
+        // 同样的质量下 JPEG 体积大致与像素数成正比，长边按体积的平方根缩
+        double ratio = bytes / (double) maxBytes;
+        int edge = (int) Math.max(minLongEdge, Math.min(maxLongEdge, Math.round(maxLongEdge * Math.sqrt(ratio))));
+        // 体积在上下限之间时质量线性过渡，先让尺寸承担大部分压缩
+        double t = maxBytes == minBytes ? 1 : (bytes - minBytes) / (double) (maxBytes - minBytes);
+        int quality = (int) Math.round(minQuality + (maxQuality - minQuality) * Math.sqrt(t));
+        return new Target(bytes, edge, quality);
+    }
+}
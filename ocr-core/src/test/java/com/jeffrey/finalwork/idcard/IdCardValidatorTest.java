@@ -0,0 +1,88 @@
+package com.jeffrey.finalwork.idcard;
+
+import com.jeffrey.finalwork.net.TencentOcrClient;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class IdCardValidatorTest {
+
+    private static final int TODAY = 20260101;
+
+    private static TencentOcrClient.OcrResult front(String id, String birth, String sex) {
+        TencentOcrClient.OcrResult r = new TencentOcrClient.OcrResult();
+        r.idNumber = id;
+        r.birth = birth;
+        r.sex = sex;
+        return r;
+    }
+
+    @Test
+    public void consistentResultPasses() {
+        assertTrue(IdCardValidator.validate(front("110101199001011237", "1990/1/1", "男"), TODAY).ok());
+        // 校验码为 X，小写也认
+        assertTrue(IdCardValidator.validate(front("11010519491231002x", "1949年12月31日", "女"), TODAY).ok());
+        assertEquals('X', IdCardValidator.checkDigit("11010519491231002"));
+    }
+
+    @Test
+    public void singleMisreadDigitFailsChecksum() {
+        IdCardValidator.Report report = IdCardValidator.validate(front("110101199001015237", "1990/1/1", "男"), TODAY);
+        assertEquals(Arrays.asList(IdCardValidator.Issue.ID_CHECKSUM), report.issues);
+        assertTrue(report.idNumberSuspect());
+    }
+
+    @Test
+    public void malformedNumberStopsFurtherChecks() {
+        IdCardValidator.Report report = IdCardValidator.validate(front("11010119900101", "1990/1/1", "男"), TODAY);
+        assertEquals(Arrays.asList(IdCardValidator.Issue.ID_FORMAT), report.issues);
+        assertEquals(IdCardValidator.Issue.ID_FORMAT, IdCardValidator.validate(front(null, "", ""), TODAY).issues.get(0));
+    }
+
+    @Test
+    public void birthAndSexAreCrossChecked() {
+        IdCardValidator.Report report = IdCardValidator.validate(front("110101199001011237", "1990/7/1", "女"), TODAY);
+        assertEquals(Arrays.asList(IdCardValidator.Issue.BIRTH_MISMATCH, IdCardValidator.Issue.SEX_MISMATCH), report.issues);
+        assertFalse(report.idNumberSuspect());
+        // 出生栏没识别出来时不算不一致
+        assertTrue(IdCardValidator.validate(front("110101199001011237", "", "男"), TODAY).ok());
+    }
+
+    @Test
+    public void impossibleBirthAndRegionAreRejected() {
+        String feb30 = "11010119900230" + "123";
+        assertTrue(IdCardValidator.validate(front(feb30 + IdCardValidator.checkDigit(feb30), "", ""), TODAY)
+                .issues.contains(IdCardValidator.Issue.BIRTH_INVALID));
+        String future = "11010120300101" + "123";
+        assertTrue(IdCardValidator.validate(front(future + IdCardValidator.checkDigit(future), "", ""), TODAY)
+                .issues.contains(IdCardValidator.Issue.BIRTH_INVALID));
+        String region = "99010119900101" + "123";
+        assertEquals(Arrays.asList(IdCardValidator.Issue.ID_REGION),
+                IdCardValidator.validate(front(region + IdCardValidator.checkDigit(region), "", ""), TODAY).issues);
+    }
+
+    @Test
+    public void residencePermitRegionsPass() {
+        // 港澳台居民居住证的地址码只有省级
+        assertTrue(IdCardValidator.validate(front("810000199001011230", "1990/1/1", "男"), TODAY).ok());
+        assertTrue(IdCardValidator.validate(front("820000198512310029", "1985/12/31", "女"), TODAY).ok());
+        assertTrue(IdCardValidator.validate(front("830000200002290015", "2000/2/29", "男"), TODAY).ok());
+        // 内地省份的地市级仍不能为 00
+        assertEquals(Arrays.asList(IdCardValidator.Issue.ID_REGION),
+                IdCardValidator.validate(front("110000199001011235", "", ""), TODAY).issues);
+    }
+
+    @Test
+    public void parsesPrintedDates() {
+        assertEquals(19900101, IdCardValidator.parseDate("1990/1/1"));
+        assertEquals(19491231, IdCardValidator.parseDate("1949年12月31日"));
+        assertEquals(20000229, IdCardValidator.parseDate("2000-02-29"));
+        assertEquals(0, IdCardValidator.parseDate("1990/1"));
+        assertEquals(0, IdCardValidator.parseDate(null));
+        assertTrue(IdCardValidator.validDate(20000229));
+        assertFalse(IdCardValidator.validDate(19000229));
+    }
+}
@@ -0,0 +1,147 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+
+public class EndpointSelectorTest {
+
+    private FakeTencentOcrServer slow;
+    private FakeTencentOcrServer fast;
+    private OkHttpClient http;
+    private EndpointSelector selector;
+
+    @Before public void setUp() throws Exception {
+        slow = new FakeTencentOcrServer(1).start();
+        slow.latencyMs = 150;
+        slow.latencyJitterMs = 0;
+        fast = new FakeTencentOcrServer(2).start();
+        fast.latencyMs = 10;
+        fast.latencyJitterMs = 0;
+        http = OcrHttp.newClient();
+        // 慢的排第一，相当于默认域名
+        selector = new EndpointSelector(Arrays.asList(
+                new EndpointSelector.Endpoint(slow.url(), "ap-guangzhou"),
+                new EndpointSelector.Endpoint(fast.url(), "ap-shanghai")));
+    }
+
+    @After public void tearDown() throws Exception {
+        slow.close();
+        fast.close();
+        http.dispatcher().executorService().shutdown();
+    }
+
+    private void awaitProbes() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            boolean all = true;
+            for (EndpointSelector.Stats s : selector.stats()) all &= !Double.isNaN(s.rttMs);
+            if (all) return;
+            Thread.sleep(10);
+        }
+        fail("探测超时");
+    }
+
+    @Test
+    public void withoutSamples_usesListOrder() {
+        assertSame(selector.endpoints().get(0), selector.select());
+    }
+
+    @Test
+    public void probesRouteToLowerRtt() throws Exception {
+        selector.probe(http);
+        awaitProbes();
+        assertSame(selector.endpoints().get(1), selector.select());
+
+        // 间隔内不重复探测
+        int before = slow.requests.get() + fast.requests.get();
+        selector.probe(http);
+        Thread.sleep(50);
+        assertEquals(before, slow.requests.get() + fast.requests.get());
+    }
+
+    @Test
+    public void repeatedFailuresFailOverAndRecover() throws Exception {
+        selector.probe(http);
+        awaitProbes();
+        EndpointSelector.Endpoint best = selector.endpoints().get(1);
+        selector.downMs = 200;
+
+        for (int i = 0; i < 2; i++) selector.record(best, true);
+        assertSame(selector.endpoints().get(0), selector.select());
+        assertFalse(selector.stats().get(1).healthy);
+
+        Thread.sleep(250);
+        // 冷却结束重新参与排序，一次成功清掉连续失败
+        selector.record(best, false);
+        assertTrue(selector.stats().get(1).healthy);
+    }
+
+    @Test
+    public void probeSuccessDoesNotUndoTrafficMarkDown() throws Exception {
+        selector.probe(http);
+        awaitProbes();
+        EndpointSelector.Endpoint best = selector.endpoints().get(1);
+        // 真实请求连续 5xx，HEAD 探测却照常可达
+        for (int i = 0; i < 2; i++) selector.record(best, true);
+        assertFalse(selector.stats().get(1).healthy);
+
+        int before = fast.requests.get();
+        selector.probeIntervalMs = 0;
+        selector.probe(http);
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (fast.requests.get() == before && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        Thread.sleep(50);
+        assertFalse(selector.stats().get(1).healthy);
+        assertSame(selector.endpoints().get(0), selector.select());
+    }
+
+    @Test
+    public void requestLatencyRanksAlongsideProbes() {
+        EndpointSelector.Endpoint first = selector.endpoints().get(0);
+        EndpointSelector.Endpoint second = selector.endpoints().get(1);
+        selector.recordRtt(first, 100);
+        selector.recordRtt(second, 20);
+        assertSame(second, selector.select());
+
+        // 第二个地址网络近，但真实请求很慢
+        for (int i = 0; i < 20; i++) selector.recordRequestRtt(second, 2_000);
+        assertSame(first, selector.select());
+
+        // 只有探测数据的地址加上学到的处理时间折算，不会一直显得更快
+        for (int i = 0; i < 20; i++) selector.recordRtt(first, 100);
+        assertEquals(2_080, selector.stats().get(0).rttMs, 10);
+        assertSame(second, selector.select());
+    }
+
+    @Test
+    public void clientSignsForChosenHostAndFailsOver() throws Exception {
+        TencentOcrClient client = new TencentOcrClient("AKIDtest", "secret", "ap-beijing", http);
+        client.setEndpointSelector(selector);
+        client.setRetryPolicy(RetryPolicy.defaults());
+        selector.probe(http);
+        awaitProbes();
+        fast.takeRequest();
+        slow.takeRequest();
+
+        // 快的地址开始断连：重试时切到慢的地址，签名 Host 和地域跟着变
+        fast.disconnectRate = 1;
+        TencentOcrClient.OcrResult r = client.idCardOcrAsync(new byte[]{1}, CardSide.FRONT, null, null)
+                .get(10, TimeUnit.SECONDS);
+        assertEquals("张三", r.name);
+
+        RecordedRequest served = slow.takeRequest(1, TimeUnit.SECONDS);
+        assertNotNull(served);
+        String host = slow.url().replaceFirst("^http://", "").replaceFirst("/$", "");
+        assertEquals(host, served.getHeader("Host"));
+        assertEquals("ap-guangzhou", served.getHeader("X-TC-Region"));
+    }
+}
@@ -0,0 +1,77 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class OcrBatchTest {
+
+    /** 在调用线程上直接回调，模拟缓存命中、熔断打开这类同步完成 */
+    private static final class SyncClient extends TencentOcrClient {
+        final AtomicInteger depth = new AtomicInteger();
+        int maxDepth;
+
+        SyncClient() {
+            super("AKIDtest", "secret", "ap-guangzhou");
+        }
+
+        @Override public void idCardOcr(byte[] image, CardSide side, String configJson, Callback cb) {
+            maxDepth = Math.max(maxDepth, depth.incrementAndGet());
+            try {
+                if (image.length == 0) throw new IllegalStateException("boom");
+                if (image[0] == 0) cb.onError(new OcrError(OcrError.CIRCUIT_OPEN, "open", 0));
+                else cb.onSuccess(new OcrResult());
+            } finally {
+                depth.decrementAndGet();
+            }
+        }
+    }
+
+    private static List<OcrBatch.Item> items(int n, byte[] image) {
+        List<OcrBatch.Item> items = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) items.add(new OcrBatch.Item("k" + i, CardSide.FRONT, image, null));
+        return items;
+    }
+
+    private static OcrBatch.Summary run(TencentOcrClient client, List<OcrBatch.Item> items, int maxInFlight) {
+        AtomicReference<OcrBatch.Summary> done = new AtomicReference<>();
+        client.idCardOcrBatch(items, maxInFlight, new OcrBatch.Listener() {
+            @Override public void onItem(OcrBatch.ItemResult result) {}
+
+            @Override public void onComplete(OcrBatch.Summary summary) {
+                assertTrue(done.compareAndSet(null, summary));
+            }
+        });
+        return done.get();
+    }
+
+    @Test
+    public void synchronousCompletionsDoNotRecurse() {
+        SyncClient client = new SyncClient();
+        // 熔断打开时整批同步失败，旧实现每项多一层栈
+        OcrBatch.Summary summary = run(client, items(50_000, new byte[]{0}), 4);
+        assertNotNull(summary);
+        assertEquals(50_000, summary.failed);
+        assertEquals(1, client.maxDepth);
+
+        summary = run(client, items(1_000, new byte[]{1}), 8);
+        assertEquals(0, summary.failed);
+        assertEquals(1_000, summary.records.size());
+    }
+
+    @Test
+    public void dispatchExceptionBecomesItemError() {
+        List<OcrBatch.Item> items = items(3, new byte[]{1});
+        items.set(1, new OcrBatch.Item("bad", CardSide.FRONT, new byte[0], null));
+        OcrBatch.Summary summary = run(new SyncClient(), items, 2);
+        assertNotNull(summary);
+        assertEquals(1, summary.failed);
+        assertFalse(summary.items.get(1).isSuccess());
+        assertTrue(summary.items.get(1).error.message.contains("boom"));
+    }
+}
@@ -0,0 +1,114 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+import static org.junit.Assert.*;
+
+public class OcrCallTest {
+
+    private static final String OK = "{\"Response\":{\"Name\":\"张三\",\"RequestId\":\"r\"}}";
+
+    private MockWebServer server;
+    private OkHttpClient http;
+    private CircuitBreaker breaker;
+    private RetryPolicy policy;
+
+    @Before public void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        http = OcrHttp.newClient();
+        breaker = new CircuitBreaker(1, 50);
+        policy = RetryPolicy.none();
+        policy.maxAttempts = 3;
+        policy.baseBackoffMs = 1;
+    }
+
+    @After public void tearDown() throws Exception {
+        server.shutdown();
+        http.dispatcher().executorService().shutdown();
+    }
+
+    private static MockResponse error(String code) {
+        return new MockResponse().setBody("{\"Response\":{\"Error\":{\"Code\":\"" + code
+                + "\",\"Message\":\"m\"},\"RequestId\":\"r\"}}");
+    }
+
+    // 打开熔断器并等过冷却期，下一个请求就是半开状态下的探测
+    private void openAndCoolDown() throws InterruptedException {
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        Thread.sleep(80);
+    }
+
+    private CompletableFuture<TencentOcrClient.OcrResult> call() {
+        CompletableFuture<TencentOcrClient.OcrResult> f = new CompletableFuture<>();
+        OcrCall call = new OcrCall(http, policy, breaker, new LatencyTracker(16),
+                new ServerClock(ServerClock.NO_STORE), EndpointSelector.single(server.url("/").toString(), "ap-guangzhou"),
+                null, new OcrResponseDecoder.Options(),
+                () -> new Request.Builder().url(server.url("/")).post(RequestBody.create(new byte[0], null)).build(),
+                null, new TencentOcrClient.Callback() {
+                    @Override public void onSuccess(TencentOcrClient.OcrResult result) { f.complete(result); }
+                    @Override public void onError(String msg) {}
+                    @Override public void onError(OcrError error) { f.completeExceptionally(new OcrException(error)); }
+                });
+        call.start();
+        return f;
+    }
+
+    @Test
+    public void probeKeepsAdmissionAcrossItsRetries() throws Exception {
+        openAndCoolDown();
+        server.enqueue(error("RequestLimitExceeded"));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(new MockResponse().setBody(OK));
+
+        assertEquals("张三", call().get(5, TimeUnit.SECONDS).name);
+        assertEquals(3, server.getRequestCount());
+        // 探测成功，熔断器回到关闭
+        assertEquals(CircuitBreaker.Admission.ALLOWED, breaker.admit());
+    }
+
+    @Test
+    public void probeResignsAfterClockSkew() throws Exception {
+        openAndCoolDown();
+        server.enqueue(error("AuthFailure.SignatureExpire"));
+        server.enqueue(new MockResponse().setBody(OK));
+
+        assertEquals("张三", call().get(5, TimeUnit.SECONDS).name);
+        assertEquals(CircuitBreaker.Admission.ALLOWED, breaker.admit());
+    }
+
+    @Test
+    public void failedProbeReopensAndOthersFailFast() throws Exception {
+        openAndCoolDown();
+        for (int i = 0; i < 3; i++) server.enqueue(new MockResponse().setResponseCode(503));
+
+        try {
+            call().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("HTTP_503", ((OcrException) e.getCause()).error.code);
+        }
+        assertEquals(3, server.getRequestCount());
+        assertTrue(breaker.isOpen());
+        try {
+            call().get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals(OcrError.CIRCUIT_OPEN, ((OcrException) e.getCause()).error.code);
+        }
+        assertEquals(3, server.getRequestCount());
+    }
+}
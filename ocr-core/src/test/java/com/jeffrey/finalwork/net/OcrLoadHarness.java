@@ -0,0 +1,102 @@
+package com.jeffrey.finalwork.net;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 压测驱动：以固定并发持续向客户端提交识别请求，统计吞吐和端到端延迟分位数。
+ * 延迟包含客户端内部的重试、对冲和排队时间，即调用方实际等待的时间。
+ */
+public final class OcrLoadHarness {
+
+    public static final class Report {
+        public final int total;
+        public final int succeeded;
+        public final Map<String, Integer> errors;
+        public final long elapsedMs;
+        public final double throughputPerSec;
+        public final long p50Ms;
+        public final long p95Ms;
+        public final long p99Ms;
+        public final long maxMs;
+
+        Report(int total, int succeeded, Map<String, Integer> errors, long elapsedMs, long[] latenciesMs) {
+            this.total = total;
+            this.succeeded = succeeded;
+            this.errors = errors;
+            this.elapsedMs = elapsedMs;
+            this.throughputPerSec = elapsedMs == 0 ? 0 : total * 1000.0 / elapsedMs;
+            Arrays.sort(latenciesMs);
+            this.p50Ms = percentile(latenciesMs, 0.50);
+            this.p95Ms = percentile(latenciesMs, 0.95);
+            this.p99Ms = percentile(latenciesMs, 0.99);
+            this.maxMs = latenciesMs.length == 0 ? 0 : latenciesMs[latenciesMs.length - 1];
+        }
+
+        @Override public String toString() {
+            return String.format(Locale.US,
+                    "total=%d ok=%d errors=%s elapsed=%dms throughput=%.1f/s p50=%dms p95=%dms p99=%dms max=%dms",
+                    total, succeeded, errors, elapsedMs, throughputPerSec, p50Ms, p95Ms, p99Ms, maxMs);
+        }
+    }
+
+    private OcrLoadHarness() {}
+
+    public static Report run(TencentOcrClient client, byte[] image, int concurrency, int totalRequests,
+                             long timeoutMs) throws InterruptedException {
+        Semaphore permits = new Semaphore(Math.max(1, concurrency));
+        CountDownLatch done = new CountDownLatch(totalRequests);
+        long[] latencies = new long[totalRequests];
+        AtomicInteger ok = new AtomicInteger();
+        Map<String, Integer> errors = new TreeMap<>();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < totalRequests; i++) {
+            permits.acquire();
+            final int index = i;
+            final long t0 = System.nanoTime();
+            client.idCardOcr(image, CardSide.FRONT, null, new TencentOcrClient.Callback() {
+                @Override public void onSuccess(TencentOcrClient.OcrResult result) {
+                    ok.incrementAndGet();
+                    complete();
+                }
+
+                @Override public void onError(String msg) {
+                    onError(new OcrError("", msg, 0));
+                }
+
+                @Override public void onError(OcrError error) {
+                    synchronized (errors) {
+                        errors.merge(error.code.isEmpty() ? "UNKNOWN" : error.code, 1, Integer::sum);
+                    }
+                    complete();
+                }
+
+                private void complete() {
+                    latencies[index] = (System.nanoTime() - t0) / 1_000_000;
+                    permits.release();
+                    done.countDown();
+                }
+            });
+        }
+        if (!done.await(timeoutMs, TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("压测超时，未完成 " + done.getCount() + " 个请求");
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        synchronized (errors) {
+            return new Report(totalRequests, ok.get(), new TreeMap<>(errors), elapsedMs, latencies);
+        }
+    }
+
+    static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) return 0;
+        int idx = (int) Math.ceil(q * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, idx))];
+    }
+}
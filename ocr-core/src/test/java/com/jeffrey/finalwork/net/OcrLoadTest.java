@@ -0,0 +1,131 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * 针对本地模拟服务的压测。每项要跑几秒，默认只跑签名检查；加 -Docr.load=true 才跑压测，
+ * 规模可用系统属性调整，例如 -Docr.load.requests=2000 -Docr.load.concurrency=32 -Docr.load.latencyMs=80
+ */
+public class OcrLoadTest {
+
+    private static final boolean LOAD = Boolean.getBoolean("ocr.load");
+    private static final int REQUESTS = Integer.getInteger("ocr.load.requests", 200);
+    private static final int CONCURRENCY = Integer.getInteger("ocr.load.concurrency", 16);
+    private static final long LATENCY_MS = Long.getLong("ocr.load.latencyMs", 20);
+    private static final byte[] IMAGE = new byte[48 * 1024];
+
+    private FakeTencentOcrServer server;
+    private OkHttpClient http;
+
+    @Before public void setUp() throws Exception {
+        server = new FakeTencentOcrServer(42).start();
+        server.latencyMs = LATENCY_MS;
+        http = OcrHttp.newClient();
+    }
+
+    @After public void tearDown() throws Exception {
+        server.close();
+        http.dispatcher().executorService().shutdown();
+        http.connectionPool().evictAll();
+    }
+
+    private static void assumeLoadRun() {
+        assumeTrue("压测未开启（-Docr.load=true）", LOAD);
+    }
+
+    private TencentOcrClient newClient(RetryPolicy policy) {
+        TencentOcrClient client = new TencentOcrClient("AKIDtest", "secret", "ap-guangzhou", http);
+        client.setEndpoint(server.url());
+        client.setRetryPolicy(policy);
+        // 压测的是客户端本身，不经过进程级限流
+        client.setRateLimiter(null);
+        return client;
+    }
+
+    @Test
+    public void requestIsSignedForInjectedEndpoint() throws Exception {
+        TencentOcrClient client = newClient(RetryPolicy.none());
+        OcrLoadHarness.Report report = OcrLoadHarness.run(client, IMAGE, 1, 1, 10_000);
+        assertEquals(1, report.succeeded);
+
+        RecordedRequest req = server.takeRequest();
+        String host = server.url().replaceFirst("^http://", "").replaceFirst("/$", "");
+        assertEquals(host, req.getHeader("Host"));
+        assertTrue(req.getHeader("Authorization").startsWith("TC3-HMAC-SHA256 Credential=AKIDtest/"));
+        assertEquals("ap-guangzhou", req.getHeader("X-TC-Region"));
+    }
+
+    @Test
+    public void steadyLoad() throws Exception {
+        assumeLoadRun();
+        OcrLoadHarness.Report report = OcrLoadHarness.run(
+                newClient(RetryPolicy.defaults()), IMAGE, CONCURRENCY, REQUESTS, 120_000);
+
+        assertEquals("steady: " + report, REQUESTS, report.succeeded);
+        assertTrue("steady: " + report, report.errors.isEmpty());
+        assertTrue("steady: " + report, report.p50Ms >= LATENCY_MS);
+        assertTrue("steady: " + report, report.p50Ms <= report.p95Ms && report.p95Ms <= report.maxMs);
+    }
+
+    @Test
+    public void throttlingIsRetried() throws Exception {
+        assumeLoadRun();
+        server.maxQps = 50;
+        RetryPolicy policy = RetryPolicy.defaults();
+        policy.maxAttempts = 5;
+        OcrLoadHarness.Report report = OcrLoadHarness.run(newClient(policy), IMAGE, CONCURRENCY, 100, 120_000);
+        String msg = "throttled: " + report + " server_throttled=" + server.throttled.get();
+
+        assertTrue(msg, server.throttled.get() > 0);
+        // 限流不计入熔断，退避重试后大部分请求应能完成
+        assertFalse(msg, report.errors.containsKey(OcrError.CIRCUIT_OPEN));
+        assertTrue(msg, report.succeeded >= 90);
+    }
+
+    @Test
+    public void rateLimiterStaysUnderQuota() throws Exception {
+        assumeLoadRun();
+        server.maxQps = 50;
+        TencentOcrClient client = newClient(RetryPolicy.defaults());
+        OcrRateLimiter limiter = new OcrRateLimiter(40, 8, 64);
+        client.setRateLimiter(limiter);
+        OcrLoadHarness.Report report = OcrLoadHarness.run(client, IMAGE, CONCURRENCY, 120, 120_000);
+        OcrRateLimiter.Stats stats = limiter.stats();
+        String msg = "limited: " + report + " limiter=" + stats.toJson();
+
+        // 同样的并发不带限流会撞上限流（见 throttlingIsRetried），带上之后一次都不撞
+        assertEquals(msg, 120, report.succeeded);
+        assertEquals(msg, 0, server.throttled.get());
+        // 模拟服务本身排队时并发上限会收缩，吞吐只要求不被限流器拖垮
+        assertTrue(msg, report.throughputPerSec > 20);
+        assertEquals(msg, 0, stats.inFlight);
+        assertTrue(msg, stats.granted >= 120);
+        assertTrue(msg, stats.waitMs.max > 0);
+    }
+
+    @Test
+    public void injectedFailuresAreClassified() throws Exception {
+        assumeLoadRun();
+        server.internalErrorRate = 0.1;
+        server.badGatewayRate = 0.1;
+        OcrLoadHarness.Report noRetry = OcrLoadHarness.run(newClient(RetryPolicy.none()), IMAGE, 4, 100, 60_000);
+        String msg = "faults, no retry: " + noRetry;
+        assertTrue(msg, noRetry.succeeded < 100);
+        assertEquals(msg, 100 - noRetry.succeeded, noRetry.errors.values().stream().mapToInt(Integer::intValue).sum());
+        // 只会出现注入的两类错误
+        for (String code : noRetry.errors.keySet()) {
+            assertTrue(msg, code.equals("InternalError") || code.equals("HTTP_502"));
+        }
+
+        OcrLoadHarness.Report withRetry = OcrLoadHarness.run(newClient(RetryPolicy.defaults()), IMAGE, 4, 100, 60_000);
+        assertTrue("faults, retry: " + withRetry, withRetry.succeeded > noRetry.succeeded);
+    }
+}
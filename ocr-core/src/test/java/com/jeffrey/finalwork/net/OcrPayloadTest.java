@@ -0,0 +1,65 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+
+import static org.junit.Assert.*;
+
+public class OcrPayloadTest {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    // 流式编码之前的做法：整块 Base64 字符串放进 JsonObject
+    private static String legacyBody(byte[] image, String cardSide, String configJson) {
+        JsonObject body = new JsonObject();
+        body.addProperty("ImageBase64", Base64.getEncoder().encodeToString(image));
+        body.addProperty("CardSide", cardSide);
+        if (configJson != null && !configJson.isEmpty()) body.addProperty("Config", configJson);
+        return body.toString();
+    }
+
+    private static void assertSameAsLegacy(byte[] image, String cardSide, String configJson) throws Exception {
+        String expected = legacyBody(image, cardSide, configJson);
+        OcrPayload payload = OcrPayload.encode(image, cardSide, configJson);
+        RequestBody body = payload.toRequestBody(JSON);
+
+        Buffer first = new Buffer();
+        body.writeTo(first);
+        assertEquals(expected, first.readUtf8());
+        assertEquals(expected.getBytes(StandardCharsets.UTF_8).length, body.contentLength());
+        assertEquals(Tc3Signer.sha256Hex(expected), payload.sha256Hex());
+
+        // 重试时再写一遍，内容不变
+        Buffer again = new Buffer();
+        body.writeTo(again);
+        assertEquals(expected, again.readUtf8());
+    }
+
+    @Test
+    public void matchesJsonObjectBodyAndHash() throws Exception {
+        Random random = new Random(3);
+        // 覆盖无填充、一个 = 和两个 = 的结尾，以及跨越多个编码分块的长度
+        for (int len : new int[]{0, 1, 2, 3, 4, 5, 12_287, 12_288, 12_289, 100_000}) {
+            byte[] image = new byte[len];
+            random.nextBytes(image);
+            assertSameAsLegacy(image, "FRONT", null);
+        }
+    }
+
+    @Test
+    public void configIsEscapedLikeGson() throws Exception {
+        byte[] image = {1, 2, 3, 4};
+        assertSameAsLegacy(image, "BACK", "{\"CropIdCard\":true,\"CropPortrait\":true}");
+        assertSameAsLegacy(image, "FRONT", "");
+        assertSameAsLegacy(image, "FRONT", "{\"Note\":\"<a&b>='中文'\\n\"}");
+    }
+}
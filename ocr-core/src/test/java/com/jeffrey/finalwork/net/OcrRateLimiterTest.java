@@ -0,0 +1,153 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.junit.Assert.*;
+
+public class OcrRateLimiterTest {
+
+    private static final long MS = 1_000_000;
+
+    private final long[] now = {0};
+    private final CountDownLatch paused = new CountDownLatch(1);
+    private ScheduledExecutorService scheduler;
+
+    // 调度线程一直被占着，令牌到期的自动放行不会和测试里手动 drain 抢
+    @Before public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        scheduler.execute(() -> {
+            try {
+                paused.await();
+            } catch (InterruptedException ignored) {}
+        });
+    }
+
+    @After public void tearDown() {
+        paused.countDown();
+        scheduler.shutdownNow();
+    }
+
+    private OcrRateLimiter limiter(double qps, int initialLimit, int maxLimit) {
+        return new OcrRateLimiter(qps, initialLimit, maxLimit, () -> now[0], scheduler);
+    }
+
+    private static List<OcrRateLimiter.Permit> acquire(OcrRateLimiter limiter, int n) {
+        List<OcrRateLimiter.Permit> granted = new ArrayList<>();
+        for (int i = 0; i < n; i++) limiter.acquire(granted::add);
+        return granted;
+    }
+
+    @Test
+    public void tokenBucketPacesRequests() {
+        // 10 qps，突发容量 1 个
+        OcrRateLimiter limiter = limiter(10, 8, 8);
+        List<OcrRateLimiter.Permit> granted = acquire(limiter, 3);
+        assertEquals(1, granted.size());
+        assertEquals(2, limiter.stats().queued);
+
+        now[0] += 50 * MS;
+        limiter.drain();
+        assertEquals(1, granted.size());
+
+        now[0] += 50 * MS;
+        limiter.drain();
+        assertEquals(2, granted.size());
+
+        now[0] += 100 * MS;
+        limiter.drain();
+        assertEquals(3, granted.size());
+        OcrRateLimiter.Stats stats = limiter.stats();
+        assertEquals(0, stats.queued);
+        assertEquals(3, stats.inFlight);
+        assertEquals(200, stats.waitMs.max, 200 / 4);
+    }
+
+    @Test
+    public void concurrencyLimitQueuesUntilRelease() {
+        OcrRateLimiter limiter = limiter(1_000, 2, 8);
+        List<OcrRateLimiter.Permit> granted = acquire(limiter, 3);
+        assertEquals(2, granted.size());
+        // 排队中的请求优先，对冲拿不到许可
+        assertNull(limiter.tryAcquire());
+
+        granted.get(0).release();
+        assertEquals(3, granted.size());
+        // 同一个许可重复结算不会多还名额
+        granted.get(0).release();
+        assertEquals(2, limiter.stats().inFlight);
+    }
+
+    @Test
+    public void canceledWaiterIsNeverGranted() {
+        OcrRateLimiter limiter = limiter(1_000, 1, 1);
+        List<OcrRateLimiter.Permit> granted = new ArrayList<>();
+        limiter.acquire(granted::add);
+        Runnable leave = limiter.acquire(granted::add);
+        leave.run();
+        granted.get(0).release();
+        assertEquals(1, granted.size());
+        assertEquals(0, limiter.stats().queued);
+    }
+
+    @Test
+    public void throttlingHalvesLimitOncePerRound() {
+        OcrRateLimiter limiter = limiter(1_000, 8, 16);
+        List<OcrRateLimiter.Permit> granted = acquire(limiter, 4);
+        now[0] += 10 * MS;
+
+        granted.get(0).onThrottled();
+        assertEquals(4, limiter.limit(), 1e-9);
+        // 同一轮发出的其他请求也被限流，不再重复减半
+        granted.get(1).onThrottled();
+        assertEquals(4, limiter.limit(), 1e-9);
+        assertEquals(2, limiter.stats().throttled);
+
+        // 减半之后发出的请求再被限流才继续收缩
+        now[0] += 10 * MS;
+        OcrRateLimiter.Permit later = limiter.tryAcquire();
+        assertNotNull(later);
+        now[0] += 10 * MS;
+        later.onThrottled();
+        assertEquals(2, limiter.limit(), 1e-9);
+    }
+
+    @Test
+    public void healthyTrafficGrowsLimitAndSlowdownShrinksIt() {
+        OcrRateLimiter limiter = limiter(1_000, 2, 4);
+        // 用满上限且耗时稳定：每个成功加 1/limit
+        List<OcrRateLimiter.Permit> granted = acquire(limiter, 2);
+        granted.get(0).onSuccess(100);
+        assertEquals(2.5, limiter.limit(), 1e-9);
+
+        // 耗时超过基线两倍，说明服务端开始排队
+        now[0] += 10 * MS;
+        granted.get(1).onSuccess(300);
+        assertEquals(2.25, limiter.limit(), 1e-9);
+
+        // 上限不会超过 maxLimit
+        for (int i = 0; i < 50; i++) {
+            now[0] += 10 * MS;
+            List<OcrRateLimiter.Permit> round = acquire(limiter, (int) limiter.limit());
+            for (OcrRateLimiter.Permit p : round) p.onSuccess(100);
+        }
+        assertEquals(4, limiter.limit(), 1e-9);
+    }
+
+    @Test
+    public void idleTrafficDoesNotInflateLimit() {
+        OcrRateLimiter limiter = limiter(1_000, 8, 64);
+        for (int i = 0; i < 20; i++) {
+            now[0] += 10 * MS;
+            acquire(limiter, 1).get(0).onSuccess(100);
+        }
+        assertEquals(8, limiter.limit(), 1e-9);
+    }
+}
@@ -0,0 +1,164 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.JsonObject;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class OcrResponseDecoderTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static OcrResponseDecoder.Decoded decode(String json, OcrResponseDecoder.Options opts) throws IOException {
+        return OcrResponseDecoder.decode(new StringReader(json), opts);
+    }
+
+    private static byte[] decodeBase64(String s) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long n = OcrResponseDecoder.decodeBase64(s + "\"tail", 0, out);
+        assertEquals(out.size(), n);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void decodesSuccessAndSkipsUnknownFields() throws Exception {
+        String json = "{\"Other\":[1,{\"a\":null}],\"Response\":{"
+                + "\"Name\":\"张三\",\"Sex\":\"男\",\"Nation\":\"汉\",\"Birth\":\"1990/1/1\","
+                + "\"Address\":\"北京市东城区\",\"IdNum\":\"110101199001011237\","
+                + "\"Authority\":null,\"ValidDate\":\"\",\"Extra\":{\"Nested\":[true,1.5]},"
+                + "\"AdvancedInfo\":\"{\\\"IdCard\\\":\\\"AAAA\\\"}\",\"RequestId\":\"req-1\"}}";
+        OcrResponseDecoder.Decoded d = decode(json, new OcrResponseDecoder.Options());
+        assertFalse(d.isError());
+        assertEquals("req-1", d.requestId);
+        TencentOcrClient.OcrResult r = d.result;
+        assertEquals("张三", r.name);
+        assertEquals("110101199001011237", r.idNumber);
+        assertEquals("北京市东城区", r.address);
+        assertEquals("1990/1/1", r.birth);
+        assertEquals("", r.authority);
+        assertEquals("req-1", r.requestId);
+        // 没给 cropDir 时裁剪图直接跳过，也不保留原文
+        assertNull(r.cropIdCard);
+        assertEquals("", r.rawJson);
+    }
+
+    @Test
+    public void decodesErrorResponse() throws Exception {
+        OcrResponseDecoder.Decoded d = decode("{\"Response\":{\"Error\":{\"Code\":\"FailedOperation.ImageBlur\","
+                + "\"Message\":\"图片模糊\"},\"RequestId\":\"req-2\"}}", new OcrResponseDecoder.Options());
+        assertTrue(d.isError());
+        assertNull(d.result);
+        assertEquals("FailedOperation.ImageBlur", d.errorCode);
+        assertEquals("图片模糊", d.errorMessage);
+        assertEquals("req-2", d.requestId);
+
+        d = decode("{\"Response\":{\"Error\":{}}}", new OcrResponseDecoder.Options());
+        assertEquals("Unknown", d.errorCode);
+    }
+
+    @Test(expected = IOException.class)
+    public void missingResponseIsRejected() throws Exception {
+        decode("{\"Result\":{}}", new OcrResponseDecoder.Options());
+    }
+
+    @Test
+    public void extractsCropsFromAdvancedInfo() throws Exception {
+        Random random = new Random(1);
+        byte[] card = new byte[10_000];
+        byte[] portrait = new byte[4_001];
+        random.nextBytes(card);
+        random.nextBytes(portrait);
+
+        // AdvancedInfo 是一段 JSON 文本，服务端会把其中的 / 转义成 \/
+        JsonObject info = new JsonObject();
+        info.addProperty("Quality", 80);
+        info.addProperty("IdCard", Base64.getEncoder().encodeToString(card));
+        info.addProperty("Portrait", Base64.getEncoder().encodeToString(portrait));
+        JsonObject response = new JsonObject();
+        response.addProperty("RequestId", "req-3");
+        response.addProperty("AdvancedInfo", info.toString().replace("/", "\\/"));
+        response.addProperty("Name", "张三");
+        JsonObject root = new JsonObject();
+        root.add("Response", response);
+
+        OcrResponseDecoder.Options opts = new OcrResponseDecoder.Options();
+        opts.cropDir = tmp.newFolder("crops");
+        opts.keepRawJson = true;
+        TencentOcrClient.OcrResult r = decode(root.toString(), opts).result;
+
+        assertEquals("张三", r.name);
+        assertEquals(new File(opts.cropDir, "req-3_idcard.jpg"), r.cropIdCard);
+        assertArrayEquals(card, Files.readAllBytes(r.cropIdCard.toPath()));
+        assertArrayEquals(portrait, Files.readAllBytes(r.cropPortrait.toPath()));
+        assertEquals(root.toString(), r.rawJson);
+    }
+
+    @Test
+    public void missingOrEmptyCropsAreSkipped() throws Exception {
+        JsonObject info = new JsonObject();
+        info.addProperty("IdCard", "");
+        JsonObject response = new JsonObject();
+        response.addProperty("AdvancedInfo", info.toString());
+        JsonObject root = new JsonObject();
+        root.add("Response", response);
+
+        OcrResponseDecoder.Options opts = new OcrResponseDecoder.Options();
+        opts.cropDir = tmp.newFolder("crops");
+        TencentOcrClient.OcrResult r = decode(root.toString(), opts).result;
+        assertNull(r.cropIdCard);
+        assertNull(r.cropPortrait);
+        String[] left = opts.cropDir.list();
+        assertNotNull(left);
+        assertEquals(0, left.length);
+    }
+
+    @Test
+    public void base64MatchesJdkDecoder() throws Exception {
+        Random random = new Random(7);
+        for (int len = 0; len < 64; len++) {
+            byte[] data = new byte[len];
+            random.nextBytes(data);
+            String padded = Base64.getEncoder().encodeToString(data);
+            String unpadded = Base64.getEncoder().withoutPadding().encodeToString(data);
+            // MIME 编码每 76 个字符加 \r\n
+            String wrapped = Base64.getMimeEncoder().encodeToString(data);
+            assertArrayEquals(data, decodeBase64(padded));
+            assertArrayEquals(data, decodeBase64(unpadded));
+            assertArrayEquals(Base64.getMimeDecoder().decode(wrapped), decodeBase64(wrapped));
+        }
+        byte[] big = new byte[5_000];
+        random.nextBytes(big);
+        String wrapped = Base64.getMimeEncoder().encodeToString(big);
+        assertArrayEquals(big, decodeBase64(wrapped));
+        // JSON 里的 \/ 转义
+        assertArrayEquals(Base64.getDecoder().decode("ab/+"), decodeBase64("ab\\/+"));
+    }
+
+    @Test
+    public void base64IgnoresInvalidCharactersLikeMimeDecoder() throws Exception {
+        // 字母表外的字符和 MIME 解码器一样忽略
+        String noisy = "SGVs*bG8g!d29y\tbGQ=";
+        assertArrayEquals(Base64.getMimeDecoder().decode(noisy), decodeBase64(noisy));
+        assertEquals("Hello world", new String(decodeBase64(noisy), "UTF-8"));
+        // 在引号处停下
+        assertArrayEquals(new byte[0], decodeBase64(""));
+        // 末尾只剩 6 位凑不成一个字节：JDK 抛异常，这里丢掉残余，前面的字节照常输出
+        try {
+            Base64.getMimeDecoder().decode("SGVsbG8xQ");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertEquals("Hello1", new String(decodeBase64("SGVsbG8xQ"), "UTF-8"));
+    }
+}
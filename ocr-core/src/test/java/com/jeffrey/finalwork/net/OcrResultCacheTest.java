@@ -0,0 +1,113 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.crypto.KeyGenerator;
+
+import static org.junit.Assert.*;
+
+public class OcrResultCacheTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    private static TencentOcrClient.OcrResult result() {
+        TencentOcrClient.OcrResult r = new TencentOcrClient.OcrResult();
+        r.name = "张三";
+        r.idNumber = "110101199001011237";
+        r.rawJson = "{\"Response\":{\"AdvancedInfo\":\"{\\\"IdCard\\\":\\\"/9j/4AAQ\\\"}\"}}";
+        r.cropIdCard = new File("crop.jpg");
+        return r;
+    }
+
+    private static final class Collect implements TencentOcrClient.Callback {
+        final List<TencentOcrClient.OcrResult> results = new ArrayList<>();
+
+        @Override public void onSuccess(TencentOcrClient.OcrResult result) {
+            results.add(result);
+        }
+
+        @Override public void onError(String msg) {
+            fail(msg);
+        }
+    }
+
+    @Test
+    public void hitsAreIndependentCopies() {
+        OcrResultCache cache = new OcrResultCache(4, null);
+        cache.put("k", result());
+
+        TencentOcrClient.OcrResult first = cache.get("k");
+        first.idNumber = "110101********1237";
+        TencentOcrClient.OcrResult second = cache.get("k");
+        assertNotSame(first, second);
+        assertEquals("110101199001011237", second.idNumber);
+        // 原始响应和裁剪图只属于发起请求的那一次
+        assertEquals("", second.rawJson);
+        assertNull(second.cropIdCard);
+    }
+
+    @Test
+    public void diskTierNeverStoresRawJson() throws Exception {
+        KeyGenerator kg = KeyGenerator.getInstance("AES");
+        kg.init(256);
+        OcrResultCache.EncryptedDiskTier disk =
+                new OcrResultCache.EncryptedDiskTier(tmp.newFolder("cache"), kg.generateKey(), 60_000, 8);
+        new OcrResultCache(4, disk).put("k", result());
+
+        TencentOcrClient.OcrResult stored = disk.get("k");
+        assertEquals("张三", stored.name);
+        assertEquals("", stored.rawJson);
+
+        // 冷启动后从磁盘读回，同样交出副本
+        OcrResultCache reopened = new OcrResultCache(4, disk);
+        TencentOcrClient.OcrResult hit = reopened.get("k");
+        hit.name = "";
+        assertEquals("张三", reopened.get("k").name);
+    }
+
+    @Test
+    public void singleFlightWaitersGetSeparateInstances() {
+        OcrResultCache cache = new OcrResultCache(4, null);
+        Collect leader = new Collect();
+        Collect joiner = new Collect();
+        assertTrue(cache.joinOrLead("k", leader));
+        assertFalse(cache.joinOrLead("k", joiner));
+
+        TencentOcrClient.OcrResult fresh = result();
+        cache.leaderCallback("k").onSuccess(fresh);
+        assertSame(fresh, leader.results.get(0));
+        TencentOcrClient.OcrResult shared = joiner.results.get(0);
+        assertNotSame(fresh, shared);
+        shared.name = "";
+        assertEquals("张三", fresh.name);
+        assertEquals("张三", cache.get("k").name);
+        // 裁剪图文件只交给发起者
+        assertEquals(new File("crop.jpg"), fresh.cropIdCard);
+        assertNull(shared.cropIdCard);
+    }
+
+    @Test
+    public void joinAfterLeaderFinishedUsesStoredResult() {
+        OcrResultCache cache = new OcrResultCache(4, null);
+        Collect leader = new Collect();
+        assertTrue(cache.joinOrLead("k", leader));
+        // 上一个调用方 get 未命中后、joinOrLead 之前，发起的请求已经完成
+        cache.leaderCallback("k").onSuccess(result());
+
+        Collect late = new Collect();
+        assertFalse(cache.joinOrLead("k", late));
+        assertEquals(1, late.results.size());
+        assertEquals("张三", late.results.get(0).name);
+        assertNull(late.results.get(0).cropIdCard);
+        // 没有留下新的在途记录，下一次同样直接命中
+        Collect again = new Collect();
+        assertFalse(cache.joinOrLead("k", again));
+        assertEquals(1, again.results.size());
+    }
+}
@@ -0,0 +1,40 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ScanMetricsTest {
+
+    @Test
+    public void histogram_percentilesWithinBucketError() {
+        RollingHistogram h = new RollingHistogram(60_000, 4);
+        for (long v = 1; v <= 1000; v++) h.record(v);
+
+        RollingHistogram.Summary s = h.summary();
+        assertEquals(1000, s.count);
+        assertEquals(1000, s.max);
+        // log2 四等分桶，上界相对误差不超过 25%
+        assertTrue(s.p50 >= 500 && s.p50 <= 625);
+        assertTrue(s.p95 >= 950 && s.p95 <= 1000);
+        assertTrue(s.p99 >= 990 && s.p99 <= 1000);
+    }
+
+    @Test
+    public void trace_accumulatesStagesAndExports() {
+        ScanMetrics metrics = new ScanMetrics(60_000, 4);
+        ScanTrace trace = metrics.newTrace();
+        trace.record(ScanMetrics.Stage.PREPARE, 2_000_000, 300_000);
+        trace.record(ScanMetrics.Stage.SIGN, 50_000, 0);
+        trace.record(ScanMetrics.Stage.SIGN, 50_000, 0);
+        trace.finish();
+
+        assertEquals(100_000, trace.nanos(ScanMetrics.Stage.SIGN));
+        ScanMetrics.Snapshot snap = metrics.snapshot();
+        assertEquals(2, snap.stages.get(ScanMetrics.Stage.SIGN).count);
+        assertEquals(300_000L, (long) snap.bytes.get(ScanMetrics.Stage.PREPARE));
+        assertSame(trace, snap.lastScan);
+        assertEquals(2_000, snap.toJson().getAsJsonObject("PREPARE").get("p50").getAsLong(), 500);
+        assertFalse(snap.toJson().has("DNS"));
+    }
+}
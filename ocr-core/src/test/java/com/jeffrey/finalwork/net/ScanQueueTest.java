@@ -0,0 +1,179 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.*;
+
+public class ScanQueueTest {
+
+    @Rule public TemporaryFolder tmp = new TemporaryFolder();
+
+    @Test
+    public void entriesSurviveReopenInFifoOrder() throws Exception {
+        KeyGenerator kg = KeyGenerator.getInstance("AES");
+        kg.init(256);
+        SecretKey key = kg.generateKey();
+        File dir = tmp.newFolder("queue");
+
+        ScanQueue q = new ScanQueue(dir, key);
+        String first = q.enqueue(new byte[]{1, 2, 3}, CardSide.FRONT, "{\"CropIdCard\":true}");
+        Thread.sleep(2);
+        String second = q.enqueue(new byte[]{4, 5}, CardSide.BACK, null);
+
+        // 模拟进程重启
+        ScanQueue reopened = new ScanQueue(dir, key);
+        List<String> ids = reopened.ids();
+        assertEquals(2, ids.size());
+        assertEquals(first, ids.get(0));
+        assertEquals(second, ids.get(1));
+
+        ScanQueue.Entry e = reopened.load(first);
+        assertEquals(CardSide.FRONT, e.side);
+        assertEquals("{\"CropIdCard\":true}", e.configJson);
+        assertArrayEquals(new byte[]{1, 2, 3}, e.image);
+        assertNull(reopened.load(second).configJson);
+
+        reopened.remove(first);
+        assertEquals(1, reopened.size());
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void wrongKeyCannotRead() throws Exception {
+        KeyGenerator kg = KeyGenerator.getInstance("AES");
+        kg.init(256);
+        File dir = tmp.newFolder("queue");
+        String id = new ScanQueue(dir, kg.generateKey()).enqueue(new byte[]{9}, CardSide.FRONT, null);
+        new ScanQueue(dir, kg.generateKey()).load(id);
+    }
+
+    /** 按图片首字节决定结果：0 成功，其余按 errors 里的错误失败；第一轮之后一律成功 */
+    private static final class ScriptedClient extends TencentOcrClient {
+        final OcrError[] errors;
+        int failRounds = 1;
+
+        ScriptedClient(OcrError... errors) {
+            super("AKIDtest", "secret", "ap-guangzhou");
+            this.errors = errors;
+        }
+
+        @Override public void idCardOcr(byte[] image, CardSide side, String configJson, Callback cb) {
+            int k = image[0];
+            if (k == 0 || failRounds <= 0) cb.onSuccess(new OcrResult());
+            else cb.onError(errors[k - 1]);
+        }
+    }
+
+    /** 延迟任务立即执行，只记下延迟 */
+    private static final class ImmediateScheduler extends ScheduledThreadPoolExecutor {
+        final List<Long> delays = new ArrayList<>();
+        Runnable beforeRun = () -> {};
+
+        ImmediateScheduler() {
+            super(1);
+        }
+
+        @Override public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            delays.add(unit.toMillis(delay));
+            beforeRun.run();
+            command.run();
+            return null;
+        }
+    }
+
+    private static final class Recorder implements ScanQueue.DrainListener {
+        final List<String> dropped = new ArrayList<>();
+        int results;
+        int drained;
+        int remaining = -1;
+
+        @Override public void onResult(ScanQueue.Entry entry, TencentOcrClient.OcrResult result) {
+            results++;
+        }
+
+        @Override public void onDropped(ScanQueue.Entry entry, OcrError error) {
+            dropped.add(error.code);
+        }
+
+        @Override public void onDrained(int succeeded, int remaining) {
+            drained++;
+            this.remaining = remaining;
+        }
+    }
+
+    private ScanQueue newQueue(ImmediateScheduler scheduler) throws Exception {
+        KeyGenerator kg = KeyGenerator.getInstance("AES");
+        kg.init(256);
+        return new ScanQueue(tmp.newFolder(), kg.generateKey(), Runnable::run, scheduler);
+    }
+
+    @Test
+    public void onlyBadInputIsDropped() throws Exception {
+        ImmediateScheduler scheduler = new ImmediateScheduler();
+        // 检查完第一轮再让补跑的一轮成功
+        ScanQueue q = newQueue(scheduler);
+        ScriptedClient client = new ScriptedClient(
+                new OcrError("FailedOperation.ImageBlur", "blur", 200),
+                new OcrError("InvalidParameterValue.Config", "bad", 200),
+                new OcrError(OcrError.PARSE, "portal page", 200),
+                new OcrError("HTTP_302", "Found", 302),
+                new OcrError("AuthFailure.SignatureExpire", "expired", 200));
+        for (int k = 0; k <= 5; k++) q.enqueue(new byte[]{(byte) k}, CardSide.FRONT, null);
+
+        Recorder r = new Recorder();
+        scheduler.beforeRun = () -> {
+            assertEquals(Arrays.asList("FailedOperation.ImageBlur", "InvalidParameterValue.Config"), r.dropped);
+            assertEquals(1, r.results);
+            // 解析、HTTP、时钟类失败保留，本轮结束
+            assertEquals(1, r.drained);
+            assertEquals(3, r.remaining);
+            assertEquals(3, q.size());
+            assertFalse(q.isDraining());
+            client.failRounds--;
+        };
+        assertTrue(q.drain(client, 2, r));
+        // 网络没变也会隔一段自动再来一轮
+        assertEquals(1, scheduler.delays.size());
+        assertTrue(scheduler.delays.get(0) >= 15_000 && scheduler.delays.get(0) <= 30_000);
+        assertEquals(2, r.drained);
+        assertEquals(0, r.remaining);
+        assertEquals(4, r.results);
+        assertEquals(0, q.size());
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void throttledDrainBacksOffAndResumes() throws Exception {
+        ImmediateScheduler scheduler = new ImmediateScheduler();
+        ScanQueue q = newQueue(scheduler);
+        ScriptedClient client = new ScriptedClient(new OcrError("RequestLimitExceeded", "slow down", 200));
+        for (int i = 0; i < 3; i++) q.enqueue(new byte[]{1}, CardSide.FRONT, null);
+        client.failRounds = 2;
+        scheduler.beforeRun = () -> client.failRounds--;
+
+        Recorder r = new Recorder();
+        assertTrue(q.drain(client, 4, r));
+        // 限流两轮，退避时间翻倍，之后自己接着清空
+        assertEquals(2, scheduler.delays.size());
+        assertTrue(scheduler.delays.get(0) >= 1_000 && scheduler.delays.get(0) <= 2_000);
+        assertTrue(scheduler.delays.get(1) >= 2_000 && scheduler.delays.get(1) <= 4_000);
+        assertEquals(1, r.drained);
+        assertEquals(0, r.remaining);
+        assertEquals(3, r.results);
+        assertTrue(r.dropped.isEmpty());
+        assertEquals(0, q.size());
+        scheduler.shutdown();
+    }
+}
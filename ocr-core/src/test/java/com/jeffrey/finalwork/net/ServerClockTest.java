@@ -0,0 +1,55 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+public class ServerClockTest {
+
+    private static ServerClock.Store memoryStore(AtomicLong saved) {
+        return new ServerClock.Store() {
+            @Override public long load() {
+                return saved.get();
+            }
+
+            @Override public void save(long offsetMs) {
+                saved.set(offsetMs);
+            }
+        };
+    }
+
+    @Test
+    public void learnsLargeOffsetAndPersists() {
+        AtomicLong saved = new AtomicLong();
+        ServerClock clock = new ServerClock(memoryStore(saved));
+        long sent = 1_000_000;
+        long received = sent + 200;
+        // 服务端比本机快 10 分钟，Date 头截断到秒
+        long serverDate = (sent + 100 + 600_000) / 1000 * 1000;
+
+        assertTrue(clock.observe(serverDate, sent, received));
+        assertEquals(600_000, clock.offsetMs(), 1_000);
+        assertEquals(clock.offsetMs(), saved.get());
+
+        // 重启后直接用持久化的偏差
+        assertEquals(saved.get(), new ServerClock(memoryStore(saved)).offsetMs());
+    }
+
+    @Test
+    public void ignoresSubSecondNoise() {
+        ServerClock clock = new ServerClock(ServerClock.NO_STORE);
+        long sent = 5_000_000;
+        assertFalse(clock.observe(sent / 1000 * 1000, sent, sent + 80));
+        assertEquals(0, clock.offsetMs());
+    }
+
+    @Test
+    public void slowRoundTripWidensTolerance() {
+        ServerClock clock = new ServerClock(ServerClock.NO_STORE);
+        long sent = 5_000_000;
+        // 往返 8 秒，3 秒的差异在误差范围内
+        assertFalse(clock.observe(sent + 4_000 + 3_000, sent, sent + 8_000));
+    }
+}
@@ -0,0 +1,57 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import okio.ByteString;
+
+import static org.junit.Assert.*;
+
+public class Tc3SignerTest {
+
+    private static final String SECRET_ID = "AKIDz8krbsJ5yKBZQpn74WFkmLPx3EXAMPLE";
+    private static final String SECRET_KEY = "Gu5t9xGARNpq86cd98joQYCN3EXAMPLE";
+    private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+    private static final String PAYLOAD = "{\"ImageBase64\":\"AAAA\",\"CardSide\":\"FRONT\"}";
+
+    // 旧版 SimpleDateFormat + String.format 实现算出的结果
+    private static final String EXPECTED = "TC3-HMAC-SHA256 "
+            + "Credential=AKIDz8krbsJ5yKBZQpn74WFkmLPx3EXAMPLE/2019-02-25/ocr/tc3_request, "
+            + "SignedHeaders=content-type;host;x-tc-action, "
+            + "Signature=96c0fb9b66067b682f91028118a5c5f63d06bb9c874d67f5eb5e264afd93589f";
+
+    @Test
+    public void staticSigner_matchesReference() {
+        assertEquals(EXPECTED, Tc3Signer.buildAuthorization(
+                SECRET_ID, SECRET_KEY, "ocr", "ocr.tencentcloudapi.com", "IDCardOCR",
+                PAYLOAD, CONTENT_TYPE, 1551113065L));
+    }
+
+    @Test
+    public void instanceSigner_matchesStaticAcrossDays() {
+        Tc3Signer signer = new Tc3Signer(SECRET_ID, SECRET_KEY);
+        String hash = ByteString.encodeUtf8(PAYLOAD).sha256().hex();
+        assertEquals(EXPECTED, signer.authorization(
+                "ocr", "ocr.tencentcloudapi.com", "IDCardOCR", hash, CONTENT_TYPE, 1551113065L));
+
+        for (long ts = 1551113065L; ts < 1551113065L + 3 * 86_400L; ts += 7_919L) {
+            assertEquals(
+                    Tc3Signer.buildAuthorizationWithPayloadHash(SECRET_ID, SECRET_KEY,
+                            "ocr", "ocr.tencentcloudapi.com", "IDCardOCR", hash, CONTENT_TYPE, ts),
+                    signer.authorization("ocr", "ocr.tencentcloudapi.com", "IDCardOCR", hash, CONTENT_TYPE, ts));
+        }
+    }
+
+    @Test
+    public void utcDate_matchesCalendar() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        sdf.setTimeZone(TimeZone.getTimeZone("UTC"));
+        for (long day = 0; day < 40_000; day += 13) {
+            assertEquals(sdf.format(new Date(day * 86_400_000L)), Tc3Signer.utcDate(day));
+        }
+    }
+}
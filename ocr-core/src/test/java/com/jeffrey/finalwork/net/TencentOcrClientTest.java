@@ -0,0 +1,97 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.OkHttpClient;
+
+import static org.junit.Assert.*;
+
+public class TencentOcrClientTest {
+
+    private FakeTencentOcrServer server;
+    private OkHttpClient http;
+    private TencentOcrClient client;
+
+    @Before public void setUp() throws Exception {
+        server = new FakeTencentOcrServer(7).start();
+        http = OcrHttp.newClient();
+        client = new TencentOcrClient("AKIDtest", "secret", "ap-guangzhou", http);
+        client.setEndpoint(server.url());
+        client.setRetryPolicy(RetryPolicy.none());
+    }
+
+    @After public void tearDown() throws Exception {
+        server.close();
+        http.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    public void async_completesWithResult() throws Exception {
+        TencentOcrClient.OcrResult r = client.idCardOcrAsync(new byte[]{1, 2, 3}, CardSide.FRONT, null, null)
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("张三", r.name);
+    }
+
+    @Test
+    public void async_failureCarriesOcrError() throws Exception {
+        server.internalErrorRate = 1;
+        try {
+            client.idCardOcrAsync(new byte[]{1}, CardSide.FRONT, null, null).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertEquals("InternalError", ((OcrException) e.getCause()).error.code);
+        }
+    }
+
+    @Test
+    public void cancel_abortsUnderlyingCall() throws Exception {
+        // 比下面等待取消的 2s 长，又要短于 MockWebServer 关闭时等待服务线程的 5s
+        server.latencyMs = 3_000;
+        CompletableFuture<TencentOcrClient.OcrResult> f =
+                client.idCardOcrAsync(new byte[]{1}, CardSide.FRONT, null, null);
+        // 等请求真正进到服务端
+        server.takeRequest();
+        assertEquals(1, http.dispatcher().runningCallsCount());
+
+        assertTrue(f.cancel(true));
+        assertTrue(f.isCancelled());
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (http.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(0, http.dispatcher().runningCallsCount());
+    }
+
+    @Test
+    public void cancel_oneWaiterKeepsSharedCallForOthers() throws Exception {
+        client.setCache(new OcrResultCache(8, null));
+        server.latencyMs = 300;
+        byte[] image = {4, 5, 6};
+        CompletableFuture<TencentOcrClient.OcrResult> a = client.idCardOcrAsync(image, CardSide.FRONT, null, null);
+        CompletableFuture<TencentOcrClient.OcrResult> b = client.idCardOcrAsync(image, CardSide.FRONT, null, null);
+
+        a.cancel(true);
+        assertEquals("张三", b.get(5, TimeUnit.SECONDS).name);
+        assertEquals(1, server.requests.get());
+    }
+
+    @Test
+    public void clockSkew_isLearnedAndResignedOnce() throws Exception {
+        server.clockOffsetMs = 10 * 60_000;
+        TencentOcrClient.OcrResult r = client.idCardOcrAsync(new byte[]{1}, CardSide.FRONT, null, null)
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("张三", r.name);
+        // 第一次被拒，按 Date 头校正后重签成功
+        assertEquals(1, server.expiredSignatures.get());
+        assertEquals(2, server.requests.get());
+        assertEquals(10 * 60_000, client.clock().offsetMs(), 2_000);
+
+        client.idCardOcrAsync(new byte[]{2}, CardSide.FRONT, null, null).get(5, TimeUnit.SECONDS);
+        assertEquals(1, server.expiredSignatures.get());
+        assertEquals(3, server.requests.get());
+    }
+}
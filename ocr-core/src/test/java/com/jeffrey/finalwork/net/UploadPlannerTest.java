@@ -0,0 +1,74 @@
+package com.jeffrey.finalwork.net;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class UploadPlannerTest {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    public void unknownBandwidthUsesFullQuality() {
+        UploadPlanner planner = new UploadPlanner();
+        UploadPlanner.Target t = planner.plan(new UplinkEstimator());
+        assertEquals(planner.maxBytes, t.maxBytes);
+        assertEquals(planner.maxLongEdge, t.maxLongEdge);
+        assertEquals(planner.maxQuality, t.quality);
+    }
+
+    @Test
+    public void estimatorCountsBufferedDrainDuringWait() {
+        UplinkEstimator uplink = new UplinkEstimator();
+        // 小请求：只用来学习固定等待（服务端处理 + RTT）
+        uplink.record(2_000, 5 * MS, 300 * MS);
+        assertTrue(Double.isNaN(uplink.bytesPerSecond()));
+        assertEquals(300, uplink.fixedOverheadMs());
+
+        // 200KB 写入缓冲区只花 100ms，等待比最短等待多出 900ms，即真正发送约 1 秒
+        uplink.record(200_000, 100 * MS, 1_200 * MS);
+        assertEquals(200_000, uplink.bytesPerSecond(), 1_000);
+        assertEquals(1_000 + uplink.fixedOverheadMs(), uplink.predictMs(200_000), 20);
+    }
+
+    @Test
+    public void weakLinkShrinksToFloorAndFastLinkKeepsCeiling() {
+        UploadPlanner planner = new UploadPlanner();
+
+        // 3G 上行约 40KB/s：预算内只能传很小的图，但不低于识别准确率的下限
+        UploadPlanner.Target weak = planner.plan(40_000, 400);
+        assertEquals(planner.minBytes, weak.maxBytes);
+        assertEquals(planner.minLongEdge, weak.maxLongEdge);
+        assertEquals(planner.minQuality, weak.quality);
+
+        UploadPlanner.Target wifi = planner.plan(2_000_000, 300);
+        assertEquals(planner.maxBytes, wifi.maxBytes);
+        assertEquals(planner.maxLongEdge, wifi.maxLongEdge);
+        assertEquals(planner.maxQuality, wifi.quality);
+
+        // 中间档：体积按预算，长边和质量介于上下限之间，预测耗时不超预算
+        UploadPlanner.Target mid = planner.plan(250_000, 400);
+        assertTrue(mid.maxBytes > planner.minBytes && mid.maxBytes < planner.maxBytes);
+        assertTrue(mid.maxLongEdge > planner.minLongEdge && mid.maxLongEdge < planner.maxLongEdge);
+        assertTrue(mid.quality > planner.minQuality && mid.quality < planner.maxQuality);
+        double predictedMs = mid.maxBytes * UploadPlanner.WIRE_OVERHEAD * 1000 / 250_000 + 400;
+        assertTrue(predictedMs <= planner.latencyBudgetMs + 1);
+    }
+
+    @Test
+    public void clientFeedsEstimatorFromRealUploads() throws Exception {
+        try (FakeTencentOcrServer server = new FakeTencentOcrServer(3).start()) {
+            server.latencyMs = 20;
+            TencentOcrClient client = new TencentOcrClient("id", "key", "ap-guangzhou");
+            client.setEndpoint(server.url());
+            byte[] image = new byte[120 * 1024];
+            for (int i = 0; i < 3; i++) {
+                client.idCardOcrAsync(image, CardSide.FRONT, "{}", null).get(10, TimeUnit.SECONDS);
+            }
+            assertFalse(Double.isNaN(client.uplink().bytesPerSecond()));
+            assertTrue(client.uplink().fixedOverheadMs() >= 0);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.jeffrey.finalwork.net;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+/**
+ * 本地模拟的 IDCardOCR 服务：返回与腾讯云相同结构的响应和错误码，
+ * 可配置延迟、限流（RequestLimitExceeded）和各类故障注入，用于离线压测客户端。
+ */
+public final class FakeTencentOcrServer implements Closeable {
+
+    // 以下参数在 start() 前后都可以改，下一次请求生效
+    public volatile long latencyMs = 20;
+    public volatile long latencyJitterMs = 10;
+    /** 每秒允许的请求数，超出返回 RequestLimitExceeded；<= 0 不限流 */
+    public volatile int maxQps = 0;
+    /** 返回业务错误 InternalError 的概率 */
+    public volatile double internalErrorRate = 0;
+    /** 返回 HTTP 502 的概率 */
+    public volatile double badGatewayRate = 0;
+    /** 直接断开连接的概率，客户端表现为网络错误 */
+    public volatile double disconnectRate = 0;
+    /** 模拟服务端时钟比本机快多少；X-TC-Timestamp 偏离超过 5 分钟返回 SignatureExpire */
+    public volatile long clockOffsetMs = 0;
+
+    public final AtomicInteger requests = new AtomicInteger();
+    public final AtomicInteger throttled = new AtomicInteger();
+    public final AtomicInteger injectedFailures = new AtomicInteger();
+    public final AtomicInteger expiredSignatures = new AtomicInteger();
+
+    private final MockWebServer server = new MockWebServer();
+    private final Random random;
+    private long windowStart;
+    private int windowCount;
+
+    public FakeTencentOcrServer(long seed) {
+        random = new Random(seed);
+        server.setDispatcher(new Dispatcher() {
+            @Override public MockResponse dispatch(RecordedRequest request) {
+                return handle(request);
+            }
+        });
+    }
+
+    public FakeTencentOcrServer start() throws IOException {
+        server.start();
+        return this;
+    }
+
+    public String url() {
+        return server.url("/").toString();
+    }
+
+    public RecordedRequest takeRequest() throws InterruptedException {
+        return server.takeRequest();
+    }
+
+    public RecordedRequest takeRequest(long timeout, TimeUnit unit) throws InterruptedException {
+        return server.takeRequest(timeout, unit);
+    }
+
+    @Override public void close() throws IOException {
+        server.shutdown();
+    }
+
+    private MockResponse handle(RecordedRequest request) {
+        requests.incrementAndGet();
+        String requestId = UUID.randomUUID().toString();
+
+        double roll;
+        long delay;
+        synchronized (random) {
+            roll = random.nextDouble();
+            delay = latencyMs + (latencyJitterMs > 0 ? (long) (random.nextDouble() * latencyJitterMs) : 0);
+        }
+
+        // 探测 / 预连接用的 HEAD：只回响应头，不能带 body，否则连接复用时会错位
+        if ("HEAD".equals(request.getMethod())) {
+            return new MockResponse().setResponseCode(404).setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+        }
+        if (roll < disconnectRate) {
+            injectedFailures.incrementAndGet();
+            return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AFTER_REQUEST);
+        }
+        roll -= disconnectRate;
+        if (roll < badGatewayRate) {
+            injectedFailures.incrementAndGet();
+            return new MockResponse().setResponseCode(502).setBody("Bad Gateway")
+                    .setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+        }
+        roll -= badGatewayRate;
+
+        if (!"IDCardOCR".equals(request.getHeader("X-TC-Action"))) {
+            return error("InvalidAction", "接口不存在", requestId, delay);
+        }
+        String auth = request.getHeader("Authorization");
+        if (auth == null || !auth.startsWith("TC3-HMAC-SHA256 Credential=")) {
+            return error("AuthFailure.SignatureFailure", "请求签名验证失败", requestId, delay);
+        }
+        long serverNow = System.currentTimeMillis() + clockOffsetMs;
+        String ts = request.getHeader("X-TC-Timestamp");
+        if (ts == null || Math.abs(Long.parseLong(ts) * 1000 - serverNow) > 300_000) {
+            expiredSignatures.incrementAndGet();
+            return error("AuthFailure.SignatureExpire", "签名过期。Timestamp 和服务器时间相差不得超过五分钟", requestId, delay);
+        }
+        if (overQps()) {
+            throttled.incrementAndGet();
+            return error("RequestLimitExceeded", "请求的次数超过了频率限制", requestId, delay);
+        }
+        if (roll < internalErrorRate) {
+            injectedFailures.incrementAndGet();
+            return error("InternalError", "内部错误", requestId, delay);
+        }
+
+        String cardSide = "FRONT";
+        try {
+            JsonObject body = JsonParser.parseString(request.getBody().readUtf8()).getAsJsonObject();
+            if (!body.has("ImageBase64")) {
+                return error("InvalidParameter", "缺少 ImageBase64", requestId, delay);
+            }
+            if (body.has("CardSide")) cardSide = body.get("CardSide").getAsString();
+        } catch (RuntimeException e) {
+            return error("InvalidParameter", "请求体不是合法 JSON", requestId, delay);
+        }
+
+        JsonObject resp = new JsonObject();
+        if ("BACK".equals(cardSide)) {
+            resp.addProperty("Authority", "北京市公安局东城分局");
+            resp.addProperty("ValidDate", "2015.01.01-2035.01.01");
+        } else {
+            resp.addProperty("Name", "张三");
+            resp.addProperty("Sex", "男");
+            resp.addProperty("Nation", "汉");
+            resp.addProperty("Birth", "1990/1/1");
+            resp.addProperty("Address", "北京市东城区景山前街4号");
+            resp.addProperty("IdNum", "110101199001011237");
+        }
+        resp.addProperty("AdvancedInfo", "{}");
+        resp.addProperty("RequestId", requestId);
+        return ok(resp, delay);
+    }
+
+    private synchronized boolean overQps() {
+        int limit = maxQps;
+        if (limit <= 0) return false;
+        long now = System.nanoTime();
+        if (now - windowStart >= 1_000_000_000L) {
+            windowStart = now;
+            windowCount = 0;
+        }
+        return ++windowCount > limit;
+    }
+
+    private MockResponse error(String code, String message, String requestId, long delay) {
+        JsonObject err = new JsonObject();
+        err.addProperty("Code", code);
+        err.addProperty("Message", message);
+        JsonObject resp = new JsonObject();
+        resp.add("Error", err);
+        resp.addProperty("RequestId", requestId);
+        // 腾讯云的业务错误也是 HTTP 200
+        return ok(resp, delay);
+    }
+
+    private MockResponse ok(JsonObject resp, long delay) {
+        JsonObject root = new JsonObject();
+        root.add("Response", resp);
+        SimpleDateFormat http = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US);
+        http.setTimeZone(TimeZone.getTimeZone("GMT"));
+        return new MockResponse()
+                .setHeader("Date", http.format(new Date(System.currentTimeMillis() + clockOffsetMs)))
+                .setHeader("Content-Type", "application/json")
+                .setBody(root.toString())
+                .setHeadersDelay(delay, TimeUnit.MILLISECONDS);
+    }
+}